@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import com.google.common.base.Preconditions;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An insertion-ordered map from strings to strings for renaming tables, which
+ * can hold millions of entries.
+ *
+ * <p>Keys and values are kept in two parallel arrays in insertion order, and
+ * an open-addressing hash table of indexes into these arrays finds the keys.
+ * There is no object per entry, so an entry costs about 16 bytes in addition
+ * to its strings, compared to about 40 bytes for a {@link java.util.HashMap}
+ * and 48 bytes for a {@link java.util.LinkedHashMap}.
+ *
+ * <p>Like a {@code LinkedHashMap}, replacing the value of a key keeps the
+ * position of the key. Entries cannot be removed, and null keys and values
+ * are not permitted. A map can be made immutable with {@link #freeze}, so it
+ * can be handed out without a defensive copy.
+ *
+ * <p>This class is not thread-safe. Freezing a map does not publish it to
+ * other threads: its fields are not final, so a frozen map may only be read
+ * concurrently after it has been published safely, for example through a
+ * final field or a lock.
+ */
+final class CompactStringMap extends AbstractMap<String, String> {
+
+  private static final int MIN_TABLE_SIZE = 16;
+
+  private String[] keys;
+  private String[] values;
+
+  /**
+   * The hash table. Each slot holds the index of an entry plus one, or 0 if
+   * the slot is empty. The length is a power of two and the table is at most
+   * half full.
+   */
+  private int[] table;
+
+  private int size;
+
+  private boolean frozen = false;
+
+  CompactStringMap() {
+    this(0);
+  }
+
+  CompactStringMap(int expectedSize) {
+    Preconditions.checkArgument(expectedSize >= 0);
+    keys = new String[expectedSize];
+    values = new String[expectedSize];
+    table = new int[tableSizeFor(expectedSize)];
+  }
+
+  CompactStringMap(Map<? extends String, ? extends String> m) {
+    this(m.size());
+    putAll(m);
+  }
+
+  private static int tableSizeFor(int expectedSize) {
+    int tableSize = MIN_TABLE_SIZE;
+    while (tableSize < expectedSize * 2) {
+      tableSize <<= 1;
+    }
+    return tableSize;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** Returns the index of the entry for the key, or -1 if there is none. */
+  private int indexOf(Object key) {
+    int mask = table.length - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (index < 0 || keys[index].equals(key)) {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * Makes this map immutable and returns it. This does not make the map safe
+   * to publish to other threads without synchronization.
+   */
+  CompactStringMap freeze() {
+    frozen = true;
+    return this;
+  }
+
+  /**
+   * Returns an immutable copy of the given map, or the map itself if it is a
+   * frozen {@code CompactStringMap}, like {@code ImmutableMap.copyOf}.
+   */
+  static CompactStringMap immutableCopyOf(
+      Map<? extends String, ? extends String> m) {
+    if (m instanceof CompactStringMap && ((CompactStringMap) m).frozen) {
+      return (CompactStringMap) m;
+    }
+    return new CompactStringMap(m).freeze();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return key != null && indexOf(key) >= 0;
+  }
+
+  @Override
+  public String get(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    int index = indexOf(key);
+    return index < 0 ? null : values[index];
+  }
+
+  @Override
+  public String put(String key, String value) {
+    checkNotFrozen();
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    int mask = table.length - 1;
+    int slot = hash(key) & mask;
+    for (int index; (index = table[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+      if (keys[index].equals(key)) {
+        String previous = values[index];
+        values[index] = value;
+        return previous;
+      }
+    }
+    if (size == keys.length) {
+      int capacity = Math.max(MIN_TABLE_SIZE / 2, size + (size >> 1));
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    keys[size] = key;
+    values[size] = value;
+    size++;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    } else {
+      table[slot] = size;
+    }
+    return null;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private void rehash(int tableSize) {
+    int[] newTable = new int[tableSize];
+    int mask = tableSize - 1;
+    for (int index = 0; index < size; index++) {
+      int slot = hash(keys[index]) & mask;
+      while (newTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      newTable[slot] = index + 1;
+    }
+    table = newTable;
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends String> m) {
+    checkNotFrozen();
+    if (size + m.size() > keys.length) {
+      // Grow geometrically, like put, so that many small calls stay linear.
+      int capacity = Math.max(size + m.size(), keys.length + (keys.length >> 1));
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    if ((size + m.size()) * 2 > table.length) {
+      rehash(tableSizeFor(size + m.size()));
+    }
+    for (Map.Entry<? extends String, ? extends String> e : m.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<Map.Entry<String, String>>() {
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return new Iterator<Map.Entry<String, String>>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < size;
+          }
+
+          @Override
+          public Map.Entry<String, String> next() {
+            if (next >= size) {
+              throw new NoSuchElementException();
+            }
+            int index = next++;
+            return new SimpleImmutableEntry<>(keys[index], values[index]);
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+}
@@ -70,6 +70,8 @@ public class JobDescription {
   public final boolean createSourceMap;
   public final SourceMapDetailLevel sourceMapLevel;
   public final boolean preserveImportantComments;
+  public final boolean renameByFrequency;
+  public final Map<String, Integer> classNameUsageCounts;
 
   static final String CONDITION_FOR_LTR = "GSS_LTR";
   static final String CONDITION_FOR_RTL = "GSS_RTL";
@@ -142,7 +144,8 @@ public class JobDescription {
       boolean suppressDependencyCheck, Map<String, Integer> compileConstants,
       boolean createSourceMap,
       SourceMapDetailLevel sourceMapLevel,
-      boolean preserveImportantComments) {
+      boolean preserveImportantComments, boolean renameByFrequency,
+      Map<String, Integer> classNameUsageCounts) {
     this.allowUndefinedConstants = allowUndefinedConstants;
     Preconditions.checkArgument(!inputs.contains(null));
     Preconditions.checkNotNull(outputFormat);
@@ -153,6 +156,7 @@ public class JobDescription {
     Preconditions.checkNotNull(allowedAtRules);
     Preconditions.checkNotNull(excludedClassesFromRenaming);
     Preconditions.checkNotNull(compileConstants);
+    Preconditions.checkNotNull(classNameUsageCounts);
     this.inputs = ImmutableList.copyOf(inputs);
     this.copyrightNotice = copyrightNotice;
     this.outputFormat = outputFormat;
@@ -191,6 +195,8 @@ public class JobDescription {
     this.createSourceMap = createSourceMap;
     this.sourceMapLevel = sourceMapLevel;
     this.preserveImportantComments = preserveImportantComments;
+    this.renameByFrequency = renameByFrequency;
+    this.classNameUsageCounts = ImmutableMap.copyOf(classNameUsageCounts);
   }
 
   /**
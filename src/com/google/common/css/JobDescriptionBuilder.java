@@ -27,6 +27,8 @@ import com.google.common.css.JobDescription.OptimizeStrategy;
 import com.google.common.css.JobDescription.OutputFormat;
 import com.google.common.css.JobDescription.OutputOrientation;
 import com.google.common.css.JobDescription.SourceMapDetailLevel;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +73,8 @@ public class JobDescriptionBuilder {
   boolean suppressDependencyCheck;
   Map<String, Integer> compileConstants;
   boolean preserveImportantComments;
+  boolean renameByFrequency;
+  Map<String, Integer> classNameUsageCounts;
 
   JobDescription job = null;
   boolean createSourceMap;
@@ -112,6 +116,8 @@ public class JobDescriptionBuilder {
     this.createSourceMap = false;
     this.sourceMapLevel = SourceMapDetailLevel.DEFAULT;
     this.preserveImportantComments = false;
+    this.renameByFrequency = false;
+    this.classNameUsageCounts = new HashMap<>();
   }
 
   public JobDescriptionBuilder copyFrom(JobDescription jobToCopy) {
@@ -152,6 +158,8 @@ public class JobDescriptionBuilder {
     this.createSourceMap = jobToCopy.createSourceMap;
     this.sourceMapLevel = jobToCopy.sourceMapLevel;
     this.preserveImportantComments = jobToCopy.preserveImportantComments;
+    this.renameByFrequency = jobToCopy.renameByFrequency;
+    setClassNameUsageCounts(jobToCopy.classNameUsageCounts);
     return this;
   }
 
@@ -400,7 +408,22 @@ public class JobDescriptionBuilder {
   public JobDescriptionBuilder setInputRenamingMap(Map<String, String> inputRenamingMap) {
     checkJobIsNotAlreadyCreated();
     Preconditions.checkNotNull(inputRenamingMap);
-    this.inputRenamingMap = ImmutableMap.copyOf(inputRenamingMap);
+    this.inputRenamingMap = CompactStringMap.immutableCopyOf(inputRenamingMap);
+    return this;
+  }
+
+  /**
+   * Sets the input renaming map to the one read from the given input, which is
+   * in the given format. Unlike reading the map with
+   * {@link OutputRenamingMapFormat#readRenamingMap} and passing it to
+   * {@link #setInputRenamingMap(Map)}, this holds a large map only once.
+   */
+  public JobDescriptionBuilder readInputRenamingMap(
+      OutputRenamingMapFormat format, Reader in) throws IOException {
+    checkJobIsNotAlreadyCreated();
+    CompactStringMap mappings = new CompactStringMap();
+    format.readRenamingMapInto(in, mappings);
+    this.inputRenamingMap = mappings.freeze();
     return this;
   }
 
@@ -465,6 +488,36 @@ public class JobDescriptionBuilder {
     return setPreserveImportantComments(true);
   }
 
+  /**
+   * Sets whether CSS classes are renamed in order of how often they are used,
+   * so that substitution maps that are
+   * {@linkplain com.google.common.css.SubstitutionMap.FrequencyAware frequency
+   * aware} give the shortest names to the most frequently used classes.
+   */
+  public JobDescriptionBuilder setRenameByFrequency(boolean renameByFrequency) {
+    checkJobIsNotAlreadyCreated();
+    this.renameByFrequency = renameByFrequency;
+    return this;
+  }
+
+  /**
+   * Sets how often CSS classes are used outside of the stylesheets, for
+   * example in JavaScript. These counts are added to the number of selectors
+   * that use each class when renaming by frequency. The classes that no
+   * selector uses are ignored.
+   */
+  public JobDescriptionBuilder setClassNameUsageCounts(
+      Map<String, Integer> newClassNameUsageCounts) {
+    checkJobIsNotAlreadyCreated();
+    Preconditions.checkState(this.classNameUsageCounts.isEmpty());
+    Preconditions.checkArgument(!newClassNameUsageCounts.containsKey(null));
+    for (Integer count : newClassNameUsageCounts.values()) {
+      Preconditions.checkArgument(count >= 0, "Usage counts cannot be negative");
+    }
+    this.classNameUsageCounts = new HashMap<>(newClassNameUsageCounts);
+    return this;
+  }
+
   public JobDescription getJobDescription() {
     if (job != null) {
       return job;
@@ -495,7 +548,8 @@ public class JobDescriptionBuilder {
         gssFunctionMapProvider, cssSubstitutionMapProvider,
         outputRenamingMapFormat, inputRenamingMap, preserveComments,
         suppressDependencyCheck, compileConstants,
-        createSourceMap, sourceMapLevel, preserveImportantComments);
+        createSourceMap, sourceMapLevel, preserveImportantComments,
+        renameByFrequency, classNameUsageCounts);
     return job;
   }
 
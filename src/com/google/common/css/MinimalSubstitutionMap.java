@@ -19,7 +19,8 @@ package com.google.common.css;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
@@ -30,7 +31,8 @@ import java.util.Set;
  *
  * @author bolinfest@google.com (Michael Bolin)
  */
-public class MinimalSubstitutionMap implements SubstitutionMap.Initializable {
+public class MinimalSubstitutionMap
+    implements SubstitutionMap.Initializable, SubstitutionMap.FrequencyAware {
 
   /** Possible first chars in a CSS class name */
   private static final char[] START_CHARS = {
@@ -136,7 +138,7 @@ public class MinimalSubstitutionMap implements SubstitutionMap.Initializable {
     this.chars = Arrays.copyOf(chars, chars.length);
     this.charsRadix = this.chars.length;
     this.logCharsRadix = Math.log(charsRadix);
-    this.renamedCssClasses = Maps.newHashMap();
+    this.renamedCssClasses = new CompactStringMap();
     this.outputValueBlacklist =
         ImmutableSet.copyOf(Preconditions.checkNotNull(outputValueBlacklist));
   }
@@ -163,6 +165,19 @@ public class MinimalSubstitutionMap implements SubstitutionMap.Initializable {
     this.renamedCssClasses.putAll(m);
   }
 
+  /**
+   * Assigns the shortest names to the most frequently used keys. Keys with the
+   * same count are assigned names in the iteration order of the multiset, and
+   * keys that were already renamed, for example by
+   * {@link #initializeWithMappings}, keep their names.
+   */
+  @Override
+  public void assignByFrequency(Multiset<String> keyCounts) {
+    for (String key : Multisets.copyHighestCountFirst(keyCounts).elementSet()) {
+      get(key);
+    }
+  }
+
   /**
    * Converts a 32-bit integer to a unique short string whose first character
    * is in {@link #START_CHARS} and whose subsequent characters, if any, are
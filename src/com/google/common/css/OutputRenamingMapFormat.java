@@ -23,18 +23,16 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.escape.CharEscaperBuilder;
 import com.google.common.escape.Escaper;
-import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import java.io.BufferedReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
@@ -104,10 +102,8 @@ public enum OutputRenamingMapFormat {
     }
 
     @Override
-    void readMapInto(
-        BufferedReader in, ImmutableMap.Builder<? super String, ? super String> builder)
-        throws IOException {
-      readOnePerLine('=', in, builder);
+    void readMapInto(MappingReader in, Map<String, String> mappings) throws IOException {
+      readOnePerLine('=', in, mappings);
     }
   },
 
@@ -123,10 +119,8 @@ public enum OutputRenamingMapFormat {
     }
 
     @Override
-    void readMapInto(
-        BufferedReader in, ImmutableMap.Builder<? super String, ? super String> builder)
-        throws IOException {
-      readOnePerLine(':', in, builder);
+    void readMapInto(MappingReader in, Map<String, String> mappings) throws IOException {
+      readOnePerLine(':', in, mappings);
     }
   };
 
@@ -176,8 +170,23 @@ public enum OutputRenamingMapFormat {
   /**
    * Reads the output of {@link #writeRenamingMap} so a renaming map can be reused from one compile
    * to another.
+   *
+   * <p>The mappings are briefly held twice while the immutable map is built; use
+   * {@link #readRenamingMapInto} to read a large map with a single copy.
    */
   public ImmutableMap<String, String> readRenamingMap(Reader in) throws IOException {
+    Map<String, String> mappings = new CompactStringMap();
+    readRenamingMapInto(in, mappings);
+    return ImmutableMap.copyOf(mappings);
+  }
+
+  /**
+   * Reads the output of {@link #writeRenamingMap} into the given map, which should be empty and
+   * keep the insertion order, as the input is parsed. A large map is therefore never held twice.
+   * Like {@link #readRenamingMap}, this fails with an {@link IllegalArgumentException} if a key is
+   * repeated in a one-per-line format.
+   */
+  public void readRenamingMapInto(Reader in, Map<String, String> mappings) throws IOException {
     String subsitutionMarker = "%s";
     int formatStringSubstitutionIndex = formatString.indexOf(subsitutionMarker);
     Preconditions.checkState(formatStringSubstitutionIndex >= 0, formatString);
@@ -186,30 +195,22 @@ public enum OutputRenamingMapFormat {
     String formatSuffix =
         formatString.substring(formatStringSubstitutionIndex + subsitutionMarker.length());
 
-    // GSON's JSONParser does not stop reading bytes when it sees a bracket that
-    // closes the value.
-    // We read the whole input in, then strip prefixes and suffixes and then parse
-    // the rest.
-    String content = CharStreams.toString(in);
-
-    content = content.trim();
-    formatPrefix = formatPrefix.trim();
-    formatSuffix = formatSuffix.trim();
-
-    if (!content.startsWith(formatPrefix)
-        || !content.endsWith(formatSuffix)
-        || content.length() < formatPrefix.length() + formatSuffix.length()) {
-      throw new IOException("Input does not match format " + formatString + " : " + content);
+    // The input is parsed as it is read, so that large maps are never held in
+    // memory as text. Whitespace around the prefix, the mapping and the suffix
+    // is ignored.
+    MappingReader mappingReader = new MappingReader(in);
+    mappingReader.skipWhitespace();
+    if (!mappingReader.consume(formatPrefix.trim())) {
+      throw new IOException("Input does not match format " + formatString);
     }
 
-    content = content.substring(formatPrefix.length(), content.length() - formatSuffix.length());
-
-    ImmutableMap.Builder<String, String> b = ImmutableMap.builder();
-    BufferedReader br = new BufferedReader(new StringReader(content));
-    readMapInto(br, b);
-    requireEndOfInput(br);
+    readMapInto(mappingReader, mappings);
 
-    return b.build();
+    mappingReader.skipWhitespace();
+    if (!mappingReader.consume(formatSuffix.trim())) {
+      throw new IOException("Input does not match format " + formatString);
+    }
+    requireEndOfInput(mappingReader);
   }
 
   /**
@@ -219,19 +220,32 @@ public enum OutputRenamingMapFormat {
    * names to originals into their format string, and may be overridden by formats that do something
    * different.
    */
-  void readMapInto(BufferedReader in, ImmutableMap.Builder<? super String, ? super String> builder)
-      throws IOException {
-    JsonElement json = new JsonParser().parse(in);
-    for (Map.Entry<String, JsonElement> e : json.getAsJsonObject().entrySet()) {
-      builder.put(e.getKey(), e.getValue().getAsString());
+  void readMapInto(MappingReader in, Map<String, String> mappings) throws IOException {
+    JsonReader json = new JsonReader(in);
+    // The object is opened before switching to lenient parsing, because a
+    // lenient reader looks ahead for a non-execute prefix at the start and
+    // could read past the end of a short object.
+    json.beginObject();
+    json.setLenient(true);
+    // JSON objects may repeat a name; like a parsed JsonObject, the last value
+    // wins but the entry keeps the position of the first one, as in the
+    // insertion-ordered maps that this is read into.
+    while (json.hasNext()) {
+      String key = json.nextName();
+      if (json.peek() == JsonToken.BOOLEAN) {
+        mappings.put(key, String.valueOf(json.nextBoolean()));
+      } else {
+        mappings.put(key, json.nextString());
+      }
     }
+    json.endObject();
   }
 
   /**
    * Raises an IOException if there are any non-space characters on in, and consumes the remaining
    * characters on in.
    */
-  private static void requireEndOfInput(BufferedReader in) throws IOException {
+  private static void requireEndOfInput(Reader in) throws IOException {
     for (int ch; (ch = in.read()) >= 0; ) {
       if (!Character.isSpace((char) ch)) {
         throw new IOException("Expected end of input, not '" + escape((char) ch) + "'");
@@ -315,15 +329,188 @@ public enum OutputRenamingMapFormat {
 
   private static void readOnePerLine(
       char separator,
-      BufferedReader in,
-      ImmutableMap.Builder<? super String, ? super String> builder)
+      MappingReader in,
+      Map<String, String> mappings)
       throws IOException {
-    for (String line; (line = in.readLine()) != null; ) {
-      int eq = line.indexOf(separator);
-      if (eq < 0 && !line.isEmpty()) {
+    StringBuilder line = new StringBuilder();
+    while (in.readLine(line)) {
+      boolean isLastLine = in.isAtTrailingWhitespace();
+      if (isLastLine) {
+        // Like the rest of the input, the end of the mapping is trimmed.
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) <= ' ') {
+          end--;
+        }
+        line.setLength(end);
+        if (end == 0) {
+          return;
+        }
+      }
+      int eq = 0;
+      while (eq < line.length() && line.charAt(eq) != separator) {
+        eq++;
+      }
+      if (eq == line.length()) {
         throw new IOException("Line is missing a '" + separator + "': " + line);
       }
-      builder.put(line.substring(0, eq), line.substring(eq + 1));
+      String key = line.substring(0, eq);
+      Preconditions.checkArgument(
+          mappings.put(key, line.substring(eq + 1)) == null,
+          "Multiple entries with same key: %s", key);
+      if (isLastLine) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * A buffered reader over the input of {@link #readRenamingMap}, so that the
+   * mapping can be parsed while it is read.
+   *
+   * <p>Bulk reads stop after each {@code '}'}. A {@link JsonReader} reading a
+   * flat JSON object from this reader therefore never buffers characters past
+   * the end of the object, and whatever follows the object can still be read
+   * from here.
+   */
+  static final class MappingReader extends Reader {
+    private final Reader in;
+    private char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+
+    MappingReader(Reader in) {
+      this.in = in;
+    }
+
+    /** Makes sure the buffer is not empty; returns false at the end of input. */
+    private boolean fill() throws IOException {
+      if (pos < limit) {
+        return true;
+      }
+      int n;
+      do {
+        n = in.read(buffer, 0, buffer.length);
+      } while (n == 0);
+      if (n < 0) {
+        return false;
+      }
+      pos = 0;
+      limit = n;
+      return true;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int end = Math.min(limit, pos + len);
+      for (int i = pos; i < end; i++) {
+        if (buffer[i] == '}') {
+          end = i + 1;
+          break;
+        }
+      }
+      int n = end - pos;
+      System.arraycopy(buffer, pos, cbuf, off, n);
+      pos = end;
+      return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? buffer[pos++] : -1;
+    }
+
+    /** Returns the next character without consuming it, or -1 at the end of input. */
+    int peek() throws IOException {
+      return fill() ? buffer[pos] : -1;
+    }
+
+    /**
+     * Returns whether only characters that {@link String#trim} would remove are
+     * left. Nothing is consumed; the buffer grows to look ahead if needed.
+     */
+    boolean isAtTrailingWhitespace() throws IOException {
+      for (int i = pos; ; i++) {
+        if (i == limit) {
+          if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            i -= pos;
+            limit -= pos;
+            pos = 0;
+          }
+          if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          int n = in.read(buffer, limit, buffer.length - limit);
+          if (n < 0) {
+            return true;
+          }
+          limit += n;
+          if (i == limit) {
+            continue;
+          }
+        }
+        if (buffer[i] > ' ') {
+          return false;
+        }
+      }
+    }
+
+    /** Skips the characters that {@link String#trim} would remove. */
+    void skipWhitespace() throws IOException {
+      while (fill() && buffer[pos] <= ' ') {
+        pos++;
+      }
+    }
+
+    /** Consumes the given text, returning false if the input does not match it. */
+    boolean consume(String text) throws IOException {
+      for (int i = 0; i < text.length(); i++) {
+        if (read() != text.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Reads the next line into {@code line}, without its terminator. Lines end
+     * like they do for {@link java.io.BufferedReader#readLine}.
+     *
+     * @return false if there are no more lines
+     */
+    boolean readLine(StringBuilder line) throws IOException {
+      line.setLength(0);
+      if (!fill()) {
+        return false;
+      }
+      do {
+        int start = pos;
+        while (pos < limit) {
+          char ch = buffer[pos];
+          if (ch == '\n' || ch == '\r') {
+            line.append(buffer, start, pos - start);
+            pos++;
+            if (ch == '\r' && fill() && buffer[pos] == '\n') {
+              pos++;
+            }
+            return true;
+          }
+          pos++;
+        }
+        line.append(buffer, start, pos - start);
+      } while (fill());
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
     }
   }
 }
@@ -16,6 +16,7 @@
 
 package com.google.common.css;
 
+import com.google.common.collect.Multiset;
 import java.util.Map;
 
 /**
@@ -23,8 +24,8 @@ import java.util.Map;
  * delegate substitution map).
  *
  */
-public class PrefixingSubstitutionMap
-    implements MultipleMappingSubstitutionMap, SubstitutionMap.Initializable {
+public class PrefixingSubstitutionMap implements MultipleMappingSubstitutionMap,
+    SubstitutionMap.Initializable, SubstitutionMap.FrequencyAware {
   private final SubstitutionMap delegate;
   private final String prefix;
 
@@ -42,6 +43,13 @@ public class PrefixingSubstitutionMap
     }
   }
 
+  @Override
+  public void assignByFrequency(Multiset<String> keyCounts) {
+    if (delegate instanceof SubstitutionMap.FrequencyAware) {
+      ((SubstitutionMap.FrequencyAware) delegate).assignByFrequency(keyCounts);
+    }
+  }
+
   @Override
   public String get(String key) {
     return prefix + delegate.get(key);
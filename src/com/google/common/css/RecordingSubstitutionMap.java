@@ -20,24 +20,39 @@ package com.google.common.css;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
 import com.google.common.css.MultipleMappingSubstitutionMap.ValueWithMappings;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * A decorator for a {@link SubstitutionMap} that records which values it maps.
  *
  * @author bolinfest@google.com (Michael Bolin)
  */
-public class RecordingSubstitutionMap implements SubstitutionMap.Initializable {
+public class RecordingSubstitutionMap
+    implements SubstitutionMap.Initializable, SubstitutionMap.FrequencyAware {
 
   private final SubstitutionMap delegate;
 
   private final Predicate<? super String> shouldRecordMappingForCodeGeneration;
 
-  // Use a LinkedHashMap so getMappings() is deterministic.
-  private final Map<String, String> mappings = Maps.newLinkedHashMap();
+  // Use an insertion-ordered map so getMappings() is deterministic.
+  private final Map<String, String> mappings = new CompactStringMap();
+
+  /**
+   * The values of the keys looked up in a {@link MultipleMappingSubstitutionMap}
+   * delegate. Their mappings are recorded all at once on the first lookup, so
+   * later lookups of the same key need neither the delegate nor any recording.
+   */
+  private final Map<String, String> multipleMappingValues = new CompactStringMap();
+
+  /**
+   * The mappings used by lookups, if they differ from {@link #mappings}
+   * because the map was initialized with mappings that may not be used.
+   */
+  @Nullable private Map<String, String> usedMappings;
 
   private RecordingSubstitutionMap(
       SubstitutionMap map, Predicate<? super String> shouldRecordMappingForCodeGeneration) {
@@ -60,27 +75,61 @@ public class RecordingSubstitutionMap implements SubstitutionMap.Initializable {
       // The final value only bears a loose relationship to the mappings.
       // For example, PrefixingSubstitutionMap applied to a MinimalSubstitutionMap
       // minimizes all components but only prefixes the first.
-      // We can't memoize the value here, so don't look up in mappings first.
-      ValueWithMappings valueWithMappings =
-          ((MultipleMappingSubstitutionMap) delegate).getValueWithMappings(key);
-      mappings.putAll(valueWithMappings.mappings);
-      return valueWithMappings.value;
+      // We can't look up the value in mappings, so it is memoized separately.
+      String value = multipleMappingValues.get(key);
+      if (value == null) {
+        ValueWithMappings valueWithMappings =
+            ((MultipleMappingSubstitutionMap) delegate).getValueWithMappings(key);
+        mappings.putAll(valueWithMappings.mappings);
+        if (usedMappings != null) {
+          usedMappings.putAll(valueWithMappings.mappings);
+        }
+        value = valueWithMappings.value;
+        multipleMappingValues.put(key, value);
+      }
+      return value;
     } else {
       String value = mappings.get(key);
       if (value == null) {
         value = delegate.get(key);
         mappings.put(key, value);
       }
+      if (usedMappings != null) {
+        usedMappings.put(key, value);
+      }
       return value;
     }
   }
 
+  /**
+   * Returns the mappings that were used by lookups, in the order they were
+   * first used. Unlike {@link #getMappings}, this leaves out the initial
+   * mappings that were not looked up, so it can be used to find out which
+   * renamed classes are still in use, as {@link RenamingStore} does.
+   */
+  public Map<String, String> getUsedMappings() {
+    return usedMappings == null
+        ? getMappings() : CompactStringMap.immutableCopyOf(usedMappings);
+  }
+
+  /**
+   * Passes the counts of the keys that are renamed to the delegate. Nothing
+   * is recorded until the keys are looked up.
+   */
+  @Override
+  public void assignByFrequency(Multiset<String> keyCounts) {
+    if (delegate instanceof SubstitutionMap.FrequencyAware) {
+      ((SubstitutionMap.FrequencyAware) delegate).assignByFrequency(
+          Multisets.filter(keyCounts, shouldRecordMappingForCodeGeneration));
+    }
+  }
+
   /**
    * @return The recorded mappings in the order they were created. This output may be used with
    *     {@link OutputRenamingMapFormat#writeRenamingMap}
    */
   public Map<String, String> getMappings() {
-    return ImmutableMap.copyOf(mappings);
+    return CompactStringMap.immutableCopyOf(mappings);
   }
 
   @Override
@@ -88,6 +137,7 @@ public class RecordingSubstitutionMap implements SubstitutionMap.Initializable {
     Preconditions.checkState(mappings.isEmpty());
     if (!newMappings.isEmpty()) {
       mappings.putAll(newMappings);
+      usedMappings = new CompactStringMap();
       ((SubstitutionMap.Initializable) delegate).initializeWithMappings(newMappings);
     }
   }
@@ -97,7 +147,7 @@ public class RecordingSubstitutionMap implements SubstitutionMap.Initializable {
     private SubstitutionMap delegate = new IdentitySubstitutionMap();
     private Predicate<? super String> shouldRecordMappingForCodeGeneration =
         Predicates.alwaysTrue();
-    private Map<String, String> mappings = Maps.newLinkedHashMap();
+    private Map<String, String> mappings = new CompactStringMap();
 
     /** Specifies the underlying map. Multiple calls clobber. */
     public Builder withSubstitutionMap(SubstitutionMap d) {
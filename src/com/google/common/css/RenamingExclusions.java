@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * A predicate that is true for the CSS class names that should be excluded
+ * from renaming.
+ *
+ * <p>Each exclusion is either a class name, which is matched exactly, or a
+ * pattern containing the wildcards {@code *} (any sequence of characters) and
+ * {@code ?} (any single character). Neither character can appear unescaped in
+ * a class name. A pattern such as {@code goog-*} excludes all classes with a
+ * prefix.
+ *
+ * <p>Class names are kept in a hash set. Patterns are kept in a trie keyed by
+ * the literal text before their first wildcard, so a class name is only
+ * matched against the patterns whose literal prefix it starts with, and
+ * prefix patterns are matched by the trie walk alone. Testing a class name
+ * therefore takes time proportional to its length rather than to the number
+ * of exclusions.
+ */
+public final class RenamingExclusions implements Predicate<String> {
+
+  private static final RenamingExclusions NONE =
+      new RenamingExclusions(ImmutableSet.<String>of(), null);
+
+  private final ImmutableSet<String> classNames;
+  @Nullable private final TrieNode patterns;
+
+  private RenamingExclusions(ImmutableSet<String> classNames, @Nullable TrieNode patterns) {
+    this.classNames = classNames;
+    this.patterns = patterns;
+  }
+
+  /** Compiles the given class names and patterns into a predicate. */
+  public static RenamingExclusions compile(Iterable<String> exclusions) {
+    ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+    TrieNode patterns = null;
+    for (String exclusion : exclusions) {
+      Preconditions.checkNotNull(exclusion);
+      int wildcard = indexOfWildcard(exclusion, 0);
+      if (wildcard == -1) {
+        classNames.add(exclusion);
+        continue;
+      }
+      if (patterns == null) {
+        patterns = new TrieNode();
+      }
+      TrieNode node = patterns;
+      for (int i = 0; i < wildcard; i++) {
+        node = node.getOrAddChild(exclusion.charAt(i));
+      }
+      String suffixPattern = exclusion.substring(wildcard);
+      if (suffixPattern.equals("*")) {
+        node.matchesAnySuffix = true;
+      } else {
+        node.addSuffixPattern(suffixPattern);
+      }
+    }
+    ImmutableSet<String> classNameSet = classNames.build();
+    return classNameSet.isEmpty() && patterns == null
+        ? NONE : new RenamingExclusions(classNameSet, patterns);
+  }
+
+  @Override
+  public boolean apply(String className) {
+    if (classNames.contains(className)) {
+      return true;
+    }
+    TrieNode node = patterns;
+    for (int i = 0; node != null; i++) {
+      if (node.matchesAnySuffix || node.matchesSuffix(className, i)) {
+        return true;
+      }
+      if (i == className.length()) {
+        break;
+      }
+      node = node.getChild(className.charAt(i));
+    }
+    return false;
+  }
+
+  private static int indexOfWildcard(String s, int fromIndex) {
+    for (int i = fromIndex; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '*' || c == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns whether the text of {@code s} from {@code start} matches the
+   * pattern, which may contain wildcards.
+   */
+  static boolean matches(String pattern, String s, int start) {
+    int p = 0;
+    int i = start;
+    // The position in the pattern after the last star and the position in s
+    // it was matched up to, for backtracking.
+    int starP = -1;
+    int starI = -1;
+    while (i < s.length()) {
+      if (p < pattern.length()
+          && (pattern.charAt(p) == '?' || pattern.charAt(p) == s.charAt(i))) {
+        p++;
+        i++;
+      } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+        starP = ++p;
+        starI = i;
+      } else if (starP != -1) {
+        p = starP;
+        i = ++starI;
+      } else {
+        return false;
+      }
+    }
+    while (p < pattern.length() && pattern.charAt(p) == '*') {
+      p++;
+    }
+    return p == pattern.length();
+  }
+
+  /** A node of the trie of pattern prefixes. */
+  private static final class TrieNode {
+    private static final char[] NO_LABELS = new char[0];
+    private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+    private static final String[] NO_PATTERNS = new String[0];
+
+    /** The labels of the children, sorted for binary search. */
+    private char[] labels = NO_LABELS;
+    private TrieNode[] children = NO_CHILDREN;
+
+    /** Whether a prefix pattern ends at this node. */
+    boolean matchesAnySuffix;
+
+    /** The rest of the patterns whose literal prefix ends at this node. */
+    private String[] suffixPatterns = NO_PATTERNS;
+
+    @Nullable TrieNode getChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      return index < 0 ? null : children[index];
+    }
+
+    TrieNode getOrAddChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      if (index >= 0) {
+        return children[index];
+      }
+      index = -index - 1;
+      TrieNode child = new TrieNode();
+      char[] newLabels = new char[labels.length + 1];
+      TrieNode[] newChildren = new TrieNode[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newLabels[index] = label;
+      newChildren[index] = child;
+      System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+
+    void addSuffixPattern(String pattern) {
+      suffixPatterns = Arrays.copyOf(suffixPatterns, suffixPatterns.length + 1);
+      suffixPatterns[suffixPatterns.length - 1] = pattern;
+    }
+
+    boolean matchesSuffix(String className, int start) {
+      for (String pattern : suffixPatterns) {
+        if (matches(pattern, className, start)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
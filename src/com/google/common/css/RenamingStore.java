@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A persistent store of CSS class renamings that keeps the renamed names of
+ * classes stable from one build to the next, so that browser and CDN caches
+ * of unchanged stylesheets and scripts stay valid across deploys.
+ *
+ * <p>Each build is one generation. Before a build, {@link #getMappings} is
+ * used as the input renaming map, so every class in the store keeps its name.
+ * After the build, {@link #recordBuild} is given the mappings that the build
+ * used, from {@link RecordingSubstitutionMap#getUsedMappings}. Classes that
+ * have not been used for {@code maxUnusedBuilds} builds are removed from the
+ * store. Their names are then no longer reserved, so a substitution map such
+ * as {@link MinimalSubstitutionMap}, which hands out the shortest free names,
+ * will reuse them for new classes.
+ *
+ * <p>Reusing a name is safe once no deployed output still refers to the class
+ * it was freed from, so {@code maxUnusedBuilds} should be at least the number
+ * of recent builds whose output may still be served or cached.
+ *
+ * <p>The store is written as a header line with the generation, followed by
+ * one line per class with its name and the last generation that used it,
+ * separated by tabs.
+ */
+public final class RenamingStore {
+
+  private static final String HEADER = "# renaming store generation ";
+
+  private final int maxUnusedBuilds;
+  private final Map<String, Entry> entries = Maps.newLinkedHashMap();
+  private int generation;
+  private Stats stats;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param maxUnusedBuilds the number of consecutive builds that may not use a
+   *     class before it is removed from the store
+   */
+  public RenamingStore(int maxUnusedBuilds) {
+    Preconditions.checkArgument(maxUnusedBuilds > 0, "maxUnusedBuilds must be positive");
+    this.maxUnusedBuilds = maxUnusedBuilds;
+    this.stats = new Stats(0, 0, 0, 0, 0, 0);
+  }
+
+  /** Reads a store written by {@link #write}. */
+  public static RenamingStore read(Reader reader, int maxUnusedBuilds) throws IOException {
+    RenamingStore store = new RenamingStore(maxUnusedBuilds);
+    BufferedReader in =
+        reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    String line = in.readLine();
+    if (line == null || !line.startsWith(HEADER)) {
+      throw new IOException("Not a renaming store: missing header");
+    }
+    store.generation = parseGeneration(line.substring(HEADER.length()), line);
+    while ((line = in.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      int firstTab = line.indexOf('\t');
+      int lastTab = line.lastIndexOf('\t');
+      if (firstTab <= 0 || lastTab == firstTab) {
+        throw new IOException("Malformed renaming store line: " + line);
+      }
+      int lastSeen = parseGeneration(line.substring(lastTab + 1), line);
+      if (lastSeen > store.generation) {
+        throw new IOException("Renaming store line is from a later generation: " + line);
+      }
+      store.entries.put(
+          line.substring(0, firstTab),
+          new Entry(line.substring(firstTab + 1, lastTab), lastSeen));
+    }
+    store.stats = new Stats(store.generation, store.entries.size(), 0, 0, 0, 0);
+    return store;
+  }
+
+  private static int parseGeneration(String s, String line) throws IOException {
+    try {
+      int generation = Integer.parseInt(s);
+      if (generation >= 0) {
+        return generation;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new IOException("Malformed renaming store generation: " + line);
+  }
+
+  /** Writes the store in the format read by {@link #read}. */
+  public void write(Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write(Integer.toString(generation));
+    writer.write('\n');
+    for (Map.Entry<String, Entry> e : entries.entrySet()) {
+      writer.write(e.getKey());
+      writer.write('\t');
+      writer.write(e.getValue().value);
+      writer.write('\t');
+      writer.write(Integer.toString(e.getValue().lastSeen));
+      writer.write('\n');
+    }
+  }
+
+  /** Returns the number of builds recorded in this store. */
+  public int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Returns the mappings of all the classes in the store, to initialize the
+   * substitution map of the next build with.
+   */
+  public Map<String, String> getMappings() {
+    CompactStringMap mappings = new CompactStringMap(entries.size());
+    for (Map.Entry<String, Entry> e : entries.entrySet()) {
+      mappings.put(e.getKey(), e.getValue().value);
+    }
+    return mappings.freeze();
+  }
+
+  /**
+   * Records the mappings used by a build as the next generation, and removes
+   * the classes that have now been unused for {@code maxUnusedBuilds} builds.
+   *
+   * @param usedMappings the mappings used by the build, which must have been
+   *     initialized with {@link #getMappings}
+   * @return the statistics of this build
+   */
+  public Stats recordBuild(Map<String, String> usedMappings) {
+    generation++;
+    int added = 0;
+    for (Map.Entry<String, String> e : usedMappings.entrySet()) {
+      Entry entry = entries.get(e.getKey());
+      if (entry == null) {
+        entries.put(e.getKey(), new Entry(e.getValue(), generation));
+        added++;
+      } else {
+        entry.value = e.getValue();
+        entry.lastSeen = generation;
+      }
+    }
+    int unused = 0;
+    int removed = 0;
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+      Entry entry = it.next();
+      if (entry.lastSeen == generation) {
+        continue;
+      }
+      if (generation - entry.lastSeen >= maxUnusedBuilds) {
+        it.remove();
+        removed++;
+      } else {
+        unused++;
+      }
+    }
+    stats = new Stats(generation, entries.size(), usedMappings.size(), added, unused, removed);
+    return stats;
+  }
+
+  /** Returns the statistics of the last build, or of the store as read. */
+  public Stats getStats() {
+    return stats;
+  }
+
+  private static final class Entry {
+    String value;
+    int lastSeen;
+
+    Entry(String value, int lastSeen) {
+      this.value = value;
+      this.lastSeen = lastSeen;
+    }
+  }
+
+  /** Statistics about the store after a build. */
+  public static final class Stats {
+    private final int generation;
+    private final int size;
+    private final int used;
+    private final int added;
+    private final int unused;
+    private final int removed;
+
+    Stats(int generation, int size, int used, int added, int unused, int removed) {
+      this.generation = generation;
+      this.size = size;
+      this.used = used;
+      this.added = added;
+      this.unused = unused;
+      this.removed = removed;
+    }
+
+    /** The generation of the build. */
+    public int getGeneration() {
+      return generation;
+    }
+
+    /** The number of classes in the store. */
+    public int getSize() {
+      return size;
+    }
+
+    /** The number of classes used by the build. */
+    public int getUsed() {
+      return used;
+    }
+
+    /** The number of classes the build added to the store. */
+    public int getAdded() {
+      return added;
+    }
+
+    /** The number of classes the build did not use but that are kept. */
+    public int getUnused() {
+      return unused;
+    }
+
+    /** The number of classes the build removed, freeing their names. */
+    public int getRemoved() {
+      return removed;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("generation", generation)
+          .add("size", size)
+          .add("used", used)
+          .add("added", added)
+          .add("unused", unused)
+          .add("removed", removed)
+          .toString();
+    }
+  }
+}
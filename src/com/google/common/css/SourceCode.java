@@ -18,6 +18,7 @@ package com.google.common.css;
 
 import com.google.common.base.Preconditions;
 
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 /**
@@ -32,6 +33,14 @@ public final class SourceCode {
   private final String fileName;
   private final String fileContents;
 
+  /**
+   * The character index of the first character of each line, computed from
+   * the file contents the first time it is needed. Element 0 is the start of
+   * line 1. The table is shared by every location and character stream that
+   * refers to this source code.
+   */
+  private volatile int[] lineStarts;
+
   /**
    * Constructs a {@code SourceCode}. At least one of fileName and fileContents
    * must be non-{@code null}.
@@ -58,4 +67,54 @@ public final class SourceCode {
   int getFileContentsLength() {
     return fileContents.length();
   }
+
+  /**
+   * Returns the character index of the first character of the given line.
+   * Lines are separated by {@code '\n'} and numbered from 1.
+   *
+   * @throws IllegalStateException if the file contents are not known
+   * @throws IndexOutOfBoundsException if there is no such line
+   */
+  public int getLineStart(int lineNumber) {
+    return getLineStarts()[lineNumber - 1];
+  }
+
+  /**
+   * Returns the number of the line that contains the character at the given
+   * index. Indexes past the end of the contents belong to the last line.
+   *
+   * @throws IllegalStateException if the file contents are not known
+   */
+  public int getLineNumber(int characterIndex) {
+    Preconditions.checkArgument(characterIndex >= 0,
+        "Invalid character index %s", characterIndex);
+    int[] starts = getLineStarts();
+    int index = Arrays.binarySearch(starts, characterIndex);
+    // A miss returns (-insertionPoint - 1); the line is the one before the
+    // insertion point, which is insertionPoint in 1-based numbering.
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  private int[] getLineStarts() {
+    int[] result = lineStarts;
+    if (result == null) {
+      Preconditions.checkState(fileContents != null,
+          "The contents of %s are not known", fileName);
+      int lineCount = 1;
+      for (int i = 0; i < fileContents.length(); i++) {
+        if (fileContents.charAt(i) == '\n') {
+          lineCount++;
+        }
+      }
+      result = new int[lineCount];
+      int line = 1;
+      for (int i = 0; i < fileContents.length(); i++) {
+        if (fileContents.charAt(i) == '\n') {
+          result[line++] = i + 1;
+        }
+      }
+      lineStarts = result;
+    }
+    return result;
+  }
 }
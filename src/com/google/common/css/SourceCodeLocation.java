@@ -21,6 +21,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Ints;
+import java.util.Arrays;
 import java.util.Iterator;
 import javax.annotation.Nullable;
 
@@ -197,17 +198,34 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
     SourceCodeLocation result = new SourceCodeLocation(
         UNKNOWN_SOURCE_CODE,
         -1 /* beginCharacterIndex */,
-        0 /* beginLineNumber */,
-        0 /* beginIndexInLine */,
-        -1 /* endCharacterindex */,
-        0 /* endLineNumber */,
-        0 /* endIndexInLine */);
+        -1 /* endCharacterIndex */,
+        null /* explicitCoordinates */);
     Preconditions.checkState(result.isUnknown());
-    Preconditions.checkState(result.begin.hasValidUnknownCoordinates());
-    Preconditions.checkState(result.end.hasValidUnknownCoordinates());
     return result;
   }
 
+  /**
+   * Returns the location of the characters between the two given indexes of
+   * the source code. Line numbers and indexes in lines are not stored; they
+   * are computed from the contents of the source code when asked for.
+   *
+   * @param sourceCode the source code, whose contents must be known
+   * @param beginCharacterIndex the index of the first character
+   * @param endCharacterIndex the index after the last character
+   */
+  public static SourceCodeLocation fromOffsets(
+      SourceCode sourceCode, int beginCharacterIndex, int endCharacterIndex) {
+    Preconditions.checkNotNull(sourceCode);
+    Preconditions.checkArgument(sourceCode.getFileContents() != null,
+        "The contents of %s are not known", sourceCode.getFileName());
+    Preconditions.checkArgument(
+        beginCharacterIndex >= 0 && endCharacterIndex >= beginCharacterIndex,
+        "Invalid character indexes [%s, %s)",
+        beginCharacterIndex, endCharacterIndex);
+    return new SourceCodeLocation(
+        sourceCode, beginCharacterIndex, endCharacterIndex, null);
+  }
+
   /**
    * Returns a new SourceCodeLocation which covers everything between the beginning of the first
    * location and the end of the second location.
@@ -226,14 +244,7 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
         "Begin location %s must be less than or equal to end location %s",
         beginLocation,
         endLocation);
-    return new SourceCodeLocation(
-        beginLocation.sourceCode,
-        beginLocation.getBeginCharacterIndex(),
-        beginLocation.getBeginLineNumber(),
-        beginLocation.getBeginIndexInLine(),
-        endLocation.getEndCharacterIndex(),
-        endLocation.getEndLineNumber(),
-        endLocation.getEndIndexInLine());
+    return span(beginLocation.sourceCode, beginLocation, endLocation);
   }
 
   /**
@@ -253,21 +264,21 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
     }
 
     SourceCode sourceCode = loc.sourceCode;
-    SourceCodePoint begin = loc.begin;
-    SourceCodePoint end = loc.end;
+    SourceCodeLocation first = loc;
+    SourceCodeLocation last = loc;
     while (i.hasNext()) {
       loc = i.next();
       if (loc == null || loc.isUnknown() || !loc.sourceCode.equals(sourceCode)) {
         continue;
       }
-      if (loc.begin.compareTo(begin) < 0) {
-        begin = loc.begin;
+      if (loc.beginCharacterIndex < first.beginCharacterIndex) {
+        first = loc;
       }
-      if (loc.end.compareTo(end) > 0) {
-        end = loc.end;
+      if (loc.endCharacterIndex > last.endCharacterIndex) {
+        last = loc;
       }
     }
-    return new SourceCodeLocation(sourceCode, begin, end);
+    return span(sourceCode, first, last);
   }
 
   /**
@@ -278,30 +289,80 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
     return mergeAll(Iterables.transform(locations, LOCATABLE_TO_LOCATION));
   }
 
+  /**
+   * Returns the location from the begin point of {@code first} to the end
+   * point of {@code last}. The result stays offset-only when the line numbers
+   * of both points can still be computed from the character indexes.
+   */
+  private static SourceCodeLocation span(
+      SourceCode sourceCode, SourceCodeLocation first, SourceCodeLocation last) {
+    int begin = first.beginCharacterIndex;
+    int end = last.endCharacterIndex;
+    if (first.explicitCoordinates == null && last.explicitCoordinates == null
+        && (begin == end || last.beginCharacterIndex < end)) {
+      return new SourceCodeLocation(sourceCode, begin, end, null);
+    }
+    return new SourceCodeLocation(
+        sourceCode,
+        begin,
+        first.getBeginLineNumber(),
+        first.getBeginIndexInLine(),
+        end,
+        last.getEndLineNumber(),
+        last.getEndIndexInLine());
+  }
+
+  private static final int BEGIN_LINE = 0;
+  private static final int BEGIN_INDEX_IN_LINE = 1;
+  private static final int END_LINE = 2;
+  private static final int END_INDEX_IN_LINE = 3;
+
   private final SourceCode sourceCode;
 
   /**
-   * The sequence starts at the character immediately following the begin point.
+   * The sequence starts at this character. The line number and the index in
+   * the line of the begin point are those of this character.
+   */
+  private final int beginCharacterIndex;
+
+  /**
+   * The sequence ends at the character immediately before this index, which
+   * is not part of the sequence. The empty sequence's begin and end indexes
+   * are the same. The end point is on the line of the last character of the
+   * sequence, one position after it.
    */
-  private final SourceCodePoint begin;
+  private final int endCharacterIndex;
 
   /**
-   * The sequence ends at the character immediately before the end point. The
-   * character immediately after the end point (the one indicated by the end's
-   * {@link SourceCodePoint#characterIndex}) is not part of the sequence. The
-   * empty sequence's begin point and end point are the same:
-   * {@code begin.equals(end)}.
+   * The line numbers and indexes in lines of the begin and end points, or
+   * {@code null} if they are computed from the character indexes and the
+   * contents of the source code. They are only stored when they were given
+   * explicitly and differ from the computed ones, or when the contents of the
+   * source code are not known.
    */
-  private final SourceCodePoint end;
+  @Nullable private final int[] explicitCoordinates;
+
+  private SourceCodeLocation(SourceCode sourceCode, int beginCharacterIndex,
+      int endCharacterIndex, @Nullable int[] explicitCoordinates) {
+    this.sourceCode = sourceCode;
+    this.beginCharacterIndex = beginCharacterIndex;
+    this.endCharacterIndex = endCharacterIndex;
+    this.explicitCoordinates = explicitCoordinates;
+  }
 
   @VisibleForTesting
   public SourceCodeLocation(SourceCode sourceCode, SourceCodePoint begin, SourceCodePoint end) {
     Preconditions.checkNotNull(sourceCode);
-    this.sourceCode = sourceCode;
-    this.begin = begin;
-    this.end = end;
     Preconditions.checkArgument(begin.compareTo(end) <= 0,
         "Beginning location must come before the end location.");
+    this.sourceCode = sourceCode;
+    this.beginCharacterIndex = begin.getCharacterIndex();
+    this.endCharacterIndex = end.getCharacterIndex();
+    int[] coordinates = {
+        begin.getLineNumber(), begin.getIndexInLine(),
+        end.getLineNumber(), end.getIndexInLine()};
+    this.explicitCoordinates =
+        Arrays.equals(coordinates, computeCoordinates()) ? null : coordinates;
   }
 
   @VisibleForTesting
@@ -319,17 +380,58 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
         new SourceCodePoint(endCharacterIndex, endLineNumber, endIndexInLine));
   }
 
+  /**
+   * Computes the line numbers and indexes in lines from the character
+   * indexes, or returns {@code null} if they cannot be computed because the
+   * contents of the source code are not known or too short.
+   */
+  @Nullable
+  private int[] computeCoordinates() {
+    if (beginCharacterIndex == -1) {
+      return new int[4];
+    }
+    String contents = sourceCode.getFileContents();
+    if (contents == null || endCharacterIndex > contents.length()) {
+      return null;
+    }
+    int[] coordinates = new int[4];
+    int beginLine = sourceCode.getLineNumber(beginCharacterIndex);
+    coordinates[BEGIN_LINE] = beginLine;
+    coordinates[BEGIN_INDEX_IN_LINE] =
+        beginCharacterIndex - sourceCode.getLineStart(beginLine) + 1;
+    if (endCharacterIndex == beginCharacterIndex) {
+      coordinates[END_LINE] = coordinates[BEGIN_LINE];
+      coordinates[END_INDEX_IN_LINE] = coordinates[BEGIN_INDEX_IN_LINE];
+    } else {
+      int endLine = sourceCode.getLineNumber(endCharacterIndex - 1);
+      coordinates[END_LINE] = endLine;
+      coordinates[END_INDEX_IN_LINE] =
+          endCharacterIndex - sourceCode.getLineStart(endLine) + 1;
+    }
+    return coordinates;
+  }
+
+  private int getLineNumber(int characterIndex) {
+    return characterIndex == -1 ? 0 : sourceCode.getLineNumber(characterIndex);
+  }
+
+  private int getIndexInLine(int characterIndex, int lineNumber) {
+    return characterIndex == -1
+        ? 0 : characterIndex - sourceCode.getLineStart(lineNumber) + 1;
+  }
+
   public SourceCode getSourceCode() {
     return sourceCode;
   }
 
   public boolean isUnknown() {
-    Preconditions.checkState(begin.isUnknown() == end.isUnknown());
-    return begin.isUnknown();
+    Preconditions.checkState(
+        (beginCharacterIndex == -1) == (endCharacterIndex == -1));
+    return beginCharacterIndex == -1;
   }
 
   public int getBeginCharacterIndex() {
-    return begin.getCharacterIndex();
+    return beginCharacterIndex;
   }
 
   /**
@@ -337,7 +439,10 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
    * means the location is not known.
    */
   public int getBeginLineNumber() {
-    return begin.getLineNumber();
+    if (explicitCoordinates != null) {
+      return explicitCoordinates[BEGIN_LINE];
+    }
+    return getLineNumber(beginCharacterIndex);
   }
 
   /**
@@ -345,11 +450,14 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
    * means the location is not known.
    */
   public int getBeginIndexInLine() {
-    return begin.getIndexInLine();
+    if (explicitCoordinates != null) {
+      return explicitCoordinates[BEGIN_INDEX_IN_LINE];
+    }
+    return getIndexInLine(beginCharacterIndex, getLineNumber(beginCharacterIndex));
   }
 
   public int getEndCharacterIndex() {
-    return end.getCharacterIndex();
+    return endCharacterIndex;
   }
 
   /**
@@ -357,7 +465,10 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
    * the location is not known.
    */
   public int getEndLineNumber() {
-    return end.getLineNumber();
+    if (explicitCoordinates != null) {
+      return explicitCoordinates[END_LINE];
+    }
+    return getLineNumber(lastCharacterIndex());
   }
 
   /**
@@ -365,7 +476,22 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
    * means the location is not known.
    */
   public int getEndIndexInLine() {
-    return end.getIndexInLine();
+    if (explicitCoordinates != null) {
+      return explicitCoordinates[END_INDEX_IN_LINE];
+    }
+    if (endCharacterIndex == beginCharacterIndex) {
+      return getBeginIndexInLine();
+    }
+    return getIndexInLine(endCharacterIndex, getLineNumber(lastCharacterIndex()));
+  }
+
+  /**
+   * Returns the index of the character whose line the end point is on: the
+   * last character of the sequence, or the begin character if it is empty.
+   */
+  private int lastCharacterIndex() {
+    return endCharacterIndex == beginCharacterIndex
+        ? beginCharacterIndex : endCharacterIndex - 1;
   }
 
   public int getCharacterIndex() {
@@ -380,12 +506,22 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
     return getBeginIndexInLine();
   }
 
+  /**
+   * Returns the begin point of this location. Points are created on demand,
+   * so prefer the individual getters where possible.
+   */
   public SourceCodePoint getBegin() {
-    return begin;
+    return new SourceCodePoint(
+        beginCharacterIndex, getBeginLineNumber(), getBeginIndexInLine());
   }
 
+  /**
+   * Returns the end point of this location. Points are created on demand,
+   * so prefer the individual getters where possible.
+   */
   public SourceCodePoint getEnd() {
-    return end;
+    return new SourceCodePoint(
+        endCharacterIndex, getEndLineNumber(), getEndIndexInLine());
   }
 
   @Override
@@ -397,13 +533,21 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
       return false;
     }
     SourceCodeLocation other = (SourceCodeLocation) o;
-    return sourceCode == other.sourceCode && begin.equals(other.begin)
-        && end.equals(other.end);
+    if (sourceCode != other.sourceCode) {
+      return false;
+    }
+    if (explicitCoordinates == null && other.explicitCoordinates == null) {
+      // Both are computed from the same contents, so equal character indexes
+      // imply equal line numbers and indexes in lines.
+      return beginCharacterIndex == other.beginCharacterIndex
+          && endCharacterIndex == other.endCharacterIndex;
+    }
+    return getBegin().equals(other.getBegin()) && getEnd().equals(other.getEnd());
   }
 
   @Override
   public int hashCode() {
-    return sourceCode.hashCode() ^ begin.hashCode() ^ (end.hashCode() << 16);
+    return sourceCode.hashCode() ^ beginCharacterIndex ^ (endCharacterIndex << 16);
   }
 
   /**
@@ -426,11 +570,11 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
         return sourceCode.hashCode() - o.sourceCode.hashCode();
       }
     }
-    int startPointsComparison = begin.compareTo(o.begin);
+    int startPointsComparison = Ints.compare(beginCharacterIndex, o.beginCharacterIndex);
     if (startPointsComparison != 0) {
       return startPointsComparison;
     }
-    return end.compareTo(o.end);
+    return Ints.compare(endCharacterIndex, o.endCharacterIndex);
   }
 
   @Override
@@ -438,9 +582,9 @@ public class SourceCodeLocation implements Comparable<SourceCodeLocation> {
     return String.format(
         "%s: [line %d, col %d -> line %d, col %d)", // half-open interval notation
         sourceCode.getFileName(),
-        begin.getLineNumber(),
-        begin.getIndexInLine(),
-        end.getLineNumber(),
-        end.getIndexInLine());
+        getBeginLineNumber(),
+        getBeginIndexInLine(),
+        getEndLineNumber(),
+        getEndIndexInLine());
   }
 }
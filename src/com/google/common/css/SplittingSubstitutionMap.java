@@ -17,9 +17,9 @@
 package com.google.common.css;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Multiset;
 import java.util.Map;
 
 /**
@@ -28,9 +28,8 @@ import java.util.Map;
  *
  * @author dgajda@google.com (Damian Gajda)
  */
-public class SplittingSubstitutionMap implements
-    MultipleMappingSubstitutionMap, SubstitutionMap.Initializable {
-  private static final Splitter DASH = Splitter.on('-');
+public class SplittingSubstitutionMap implements MultipleMappingSubstitutionMap,
+    SubstitutionMap.Initializable, SubstitutionMap.FrequencyAware {
   private final SubstitutionMap delegate;
 
   public SplittingSubstitutionMap(SubstitutionMap substitutionMap) {
@@ -44,6 +43,28 @@ public class SplittingSubstitutionMap implements
     }
   }
 
+  /**
+   * Passes the counts of the parts of the keys to the delegate, since it is
+   * the parts that the delegate renames. A part that occurs more than once in
+   * a key is counted once per occurrence.
+   */
+  @Override
+  public void assignByFrequency(Multiset<String> keyCounts) {
+    if (!(delegate instanceof SubstitutionMap.FrequencyAware)) {
+      return;
+    }
+    Multiset<String> partCounts = LinkedHashMultiset.create();
+    for (Multiset.Entry<String> entry : keyCounts.entrySet()) {
+      String key = entry.getElement();
+      int start = 0;
+      for (int end; (end = key.indexOf('-', start)) != -1; start = end + 1) {
+        partCounts.add(key.substring(start, end), entry.getCount());
+      }
+      partCounts.add(key.substring(start), entry.getCount());
+    }
+    ((SubstitutionMap.FrequencyAware) delegate).assignByFrequency(partCounts);
+  }
+
   @Override
   public String get(String key) {
     return getValueWithMappings(key).value;
@@ -55,29 +76,48 @@ public class SplittingSubstitutionMap implements
     Preconditions.checkArgument(!key.isEmpty(), "CSS key cannot be empty");
 
     // Efficiently handle the common case with no dashes.
-    if (key.indexOf('-') == -1) {
+    int dash = key.indexOf('-');
+    if (dash == -1) {
       String value = delegate.get(key);
       return ValueWithMappings.createForSingleMapping(key, value);
     }
 
-    StringBuilder buffer = new StringBuilder();
-    // Cannot use an ImmutableMap.Builder because the same key/value pair may be
-    // inserted more than once in this loop.
-    Map<String, String> mappings = Maps.newLinkedHashMap();
-    for (String part : DASH.split(key)) {
-      if (buffer.length() != 0) {
+    int partCount = 2;
+    for (int i = key.indexOf('-', dash + 1); i != -1; i = key.indexOf('-', i + 1)) {
+      partCount++;
+    }
+    String[] parts = new String[partCount];
+    ImmutableMap.Builder<String, String> mappings = ImmutableMap.builder();
+    StringBuilder buffer = new StringBuilder(key.length());
+    int start = 0;
+    for (int n = 0; n < partCount; n++) {
+      int end = n == partCount - 1 ? key.length() : key.indexOf('-', start);
+      String part = key.substring(start, end);
+      start = end + 1;
+
+      if (n != 0) {
         buffer.append('-');
       }
-
       String value = delegate.get(part);
-      mappings.put(part, value);
       buffer.append(value);
+
+      // The same part may occur more than once, but may only be put once.
+      parts[n] = part;
+      if (!containsPart(parts, n, part)) {
+        mappings.put(part, value);
+      }
     }
 
-    String renamedClassComposedFromParts = buffer.toString();
+    return ValueWithMappings.createWithValueAndMappings(buffer.toString(), mappings.build());
+  }
 
-    return ValueWithMappings.createWithValueAndMappings(
-        renamedClassComposedFromParts,
-        ImmutableMap.copyOf(mappings));
+  /** Returns whether part is among the first count parts. */
+  private static boolean containsPart(String[] parts, int count, String part) {
+    for (int i = 0; i < count; i++) {
+      if (parts[i].equals(part)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
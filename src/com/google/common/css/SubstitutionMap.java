@@ -16,6 +16,7 @@
 
 package com.google.common.css;
 
+import com.google.common.collect.Multiset;
 import java.util.Map;
 
 /**
@@ -62,4 +63,17 @@ public interface SubstitutionMap {
   interface Initializable extends SubstitutionMap {
     void initializeWithMappings(Map<? extends String, ? extends String> initialMappings);
   }
+
+  /**
+   * A substitution map that can choose better values when it knows in advance
+   * how often each key will be used, for example by giving the shortest values
+   * to the most frequently used keys.
+   *
+   * <p>{@link #assignByFrequency} should be called after any call to
+   * {@link Initializable#initializeWithMappings} and before the first call to
+   * {@link #get}. Keys that already have a value keep it.
+   */
+  interface FrequencyAware extends SubstitutionMap {
+    void assignByFrequency(Multiset<String> keyCounts);
+  }
 }
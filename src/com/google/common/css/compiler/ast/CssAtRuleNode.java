@@ -216,7 +216,7 @@ public abstract class CssAtRuleNode extends CssNodesListNode<CssValueNode> {
   }
 
   public List<CssValueNode> getParameters() {
-    return this.children;
+    return mutableChildren();
   }
 
   public int getParametersCount() {
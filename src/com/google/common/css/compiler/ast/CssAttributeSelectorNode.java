@@ -61,10 +61,12 @@ public class CssAttributeSelectorNode extends CssRefinerNode {
     this.matchType = matchType;
     this.attributeName = attributeName;
     this.value = value;
+    becomeParentForNode(value);
   }
 
   protected CssAttributeSelectorNode(CssAttributeSelectorNode node) {
-    this(node.matchType, node.attributeName, node.value,
+    this(node.matchType, node.attributeName,
+        node.value == null ? null : node.value.deepCopy(),
         node.getSourceCodeLocation());
   }
 
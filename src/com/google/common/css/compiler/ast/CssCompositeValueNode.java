@@ -33,7 +33,6 @@ import javax.annotation.Nullable;
 public class CssCompositeValueNode extends CssValueNode {
   private final List<CssValueNode> values;
   private final Operator operator;
-  private final boolean hasParenthesis;
 
   /** Recognized operators. */
   public enum Operator {
@@ -105,7 +104,7 @@ public class CssCompositeValueNode extends CssValueNode {
     this.operator = operator;
     this.values = new ArrayList<>(compositeValues);
     becomeParentForNodes(values);
-    this.hasParenthesis = hasParenthesis;
+    setFlag(FLAG_PARENTHESIS, hasParenthesis);
   }
 
   /**
@@ -164,12 +163,12 @@ public class CssCompositeValueNode extends CssValueNode {
   }
 
   public boolean hasParenthesis() {
-    return hasParenthesis;
+    return hasFlag(FLAG_PARENTHESIS);
   }
 
   @Override
   public String toString() {
     String value = Joiner.on(operator.getOperatorName()).join(values);
-    return hasParenthesis ? "(" + value + ")" : value;
+    return hasParenthesis() ? "(" + value + ")" : value;
   }
 }
@@ -34,11 +34,6 @@ public class CssDeclarationNode extends CssNode {
   private CssPropertyNode propertyName;
   /** The value given to the property. */
   private CssPropertyValueNode propertyValue;
-  /**
-   * This will be set to true if this declaration node has a "star-hack"
-   * (has a star before the property name).
-   */
-  private boolean hasStarHack;
 
   /** Constructor of a node representing a CSS declaration. */
   public CssDeclarationNode(CssPropertyNode propertyName) {
@@ -139,12 +134,14 @@ public class CssDeclarationNode extends CssNode {
   }
 
   /**
-   * Sets the hasStarHack attribute to the given value.
+   * Sets the hasStarHack attribute to the given value. This will be set to
+   * true if this declaration node has a "star-hack" (has a star before the
+   * property name).
    *
    * @param hasStarHack
    */
   public void setStarHack(boolean hasStarHack) {
-    this.hasStarHack = hasStarHack;
+    setFlag(FLAG_STAR_HACK, hasStarHack);
   }
 
   /**
@@ -153,7 +150,7 @@ public class CssDeclarationNode extends CssNode {
    * @return {@code true} if this node's {@code hasStarHack} is set to true.
    */
   public boolean hasStarHack() {
-    return hasStarHack;
+    return hasFlag(FLAG_STAR_HACK);
   }
 
   /**
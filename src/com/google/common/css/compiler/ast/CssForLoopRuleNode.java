@@ -48,6 +48,9 @@ public class CssForLoopRuleNode extends CssAtRuleNode {
     this.from = from;
     this.to = to;
     this.step = step;
+    becomeParentForNode(from);
+    becomeParentForNode(to);
+    becomeParentForNode(step);
     this.variableName = variableName;
     this.loopId = loopId;
     setSourceCodeLocation(sourceCodeLocation);
@@ -58,6 +61,9 @@ public class CssForLoopRuleNode extends CssAtRuleNode {
     this.from = node.from.deepCopy();
     this.to = node.to.deepCopy();
     this.step = node.step.deepCopy();
+    becomeParentForNode(from);
+    becomeParentForNode(to);
+    becomeParentForNode(step);
     this.variableName = node.variableName;
     this.loopId = node.loopId;
   }
@@ -76,14 +82,17 @@ public class CssForLoopRuleNode extends CssAtRuleNode {
 
   public void setFrom(CssValueNode value) {
     from = value;
+    becomeParentForNode(from);
   }
 
   public void setTo(CssValueNode value) {
     to = value;
+    becomeParentForNode(to);
   }
 
   public void setStep(CssValueNode value) {
     step = value;
+    becomeParentForNode(step);
   }
 
   public String getVariableName() {
@@ -85,6 +85,7 @@ public class CssKeyframeRulesetNode extends CssNode {
     this(node.getDeclarations().deepCopy());
     this.setComments(node.getComments());
     this.keys = node.getKeys().deepCopy();
+    becomeParentForNode(this.keys);
   }
   
   @Override
@@ -22,6 +22,7 @@ import com.google.common.collect.UnmodifiableIterator;
 import com.google.common.css.Locatable;
 import com.google.common.css.SourceCodeLocation;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -35,14 +36,39 @@ import javax.annotation.Nullable;
  *
  */
 public abstract class CssNode implements Locatable {
+  /**
+   * The comments of all nodes without comments. Most nodes have none, so they
+   * share this list until the first comment is appended.
+   */
+  private static final List<CssCommentNode> NO_COMMENTS = Collections.emptyList();
+
+  /** Flag set when the node should not be flipped. */
+  private static final int FLAG_SHOULD_NOT_BE_FLIPPED = 1;
+  /** Flag used by {@link CssNodesListNode#isEnclosedWithBraces}. */
+  static final int FLAG_ENCLOSED_WITH_BRACES = 1 << 1;
+  /** Flag used by {@link CssDeclarationNode#hasStarHack}. */
+  static final int FLAG_STAR_HACK = 1 << 2;
+  /** Flag used by {@link CssValueNode#getIsDefault}. */
+  static final int FLAG_DEFAULT = 1 << 3;
+  /** Flag used by {@link CssCompositeValueNode#hasParenthesis}. */
+  static final int FLAG_PARENTHESIS = 1 << 4;
+
   /** The parent of this node. */
   private CssNode parent;
   /** The source code corresponding to this node. */
   private SourceCodeLocation sourceCodeLocation;
-  /** List of comments/annotations. */
+  /** List of comments/annotations, {@link #NO_COMMENTS} if there are none. */
   private List<CssCommentNode> comments;
-  /** Annotation of a node to show whether it should be flipped. */
-  private boolean shouldBeFlipped = true;
+  /**
+   * The boolean attributes of this node and its subclasses, packed into one
+   * field to keep nodes small.
+   */
+  private byte flags;
+  /**
+   * The bits of the {@link NodeKind kinds} of the nodes that the subtree of
+   * this node may contain. See {@link #mayContain}.
+   */
+  private byte subtreeKinds;
 
   /**
    * Constructor of a node.
@@ -91,15 +117,23 @@ public abstract class CssNode implements Locatable {
           @Nullable List<CssCommentNode> comments,
           @Nullable SourceCodeLocation sourceCodeLocation) {
     this.parent = parent;
-    this.sourceCodeLocation = sourceCodeLocation;
-    if (comments == null) {
-      this.comments = Lists.newArrayListWithExpectedSize(0);
-    } else {
-      this.comments = Lists.newArrayList(comments);
+    this.subtreeKinds = (byte) NodeKind.bitsOf(this);
+    if (parent != null) {
+      parent.addSubtreeKinds(subtreeKinds);
     }
+    this.sourceCodeLocation = sourceCodeLocation;
+    this.comments = copyComments(comments);
     becomeParentForNodes(this.comments);
   }
 
+  private static List<CssCommentNode> copyComments(
+      @Nullable List<CssCommentNode> comments) {
+    if (comments == null || comments.isEmpty()) {
+      return NO_COMMENTS;
+    }
+    return Lists.newArrayList(comments);
+  }
+
   // TODO(oana): Declare this method as public abstract T deepCopy() to ensure
   // that the return type is always correct.
   public abstract CssNode deepCopy();
@@ -110,6 +144,40 @@ public abstract class CssNode implements Locatable {
 
   void setParent(CssNode parent) {
     this.parent = parent;
+    if (parent != null) {
+      parent.addSubtreeKinds(subtreeKinds);
+      CssNode top = parent;
+      while (top.parent != null) {
+        top = top.parent;
+      }
+      if (top instanceof CssRootNode) {
+        ((CssRootNode) top).attachmentCount++;
+      }
+    }
+  }
+
+  /**
+   * Returns whether the subtree rooted at this node may contain a node of the
+   * given kind, including this node itself. A {@code false} result is exact,
+   * and can be used to skip the subtree; a {@code true} result is
+   * conservative, since the summary is extended whenever a node is attached
+   * to the subtree but is not reduced when a node is removed from it.
+   */
+  public boolean mayContain(NodeKind kind) {
+    return (subtreeKinds & kind.bit()) != 0;
+  }
+
+  /**
+   * Adds the given kinds to the summaries of this node and its ancestors. The
+   * summary of a node includes those of its children, so the propagation stops
+   * at the first node that already has all of them.
+   */
+  private void addSubtreeKinds(int kinds) {
+    for (CssNode node = this;
+        node != null && (node.subtreeKinds & kinds) != kinds;
+        node = node.parent) {
+      node.subtreeKinds |= kinds;
+    }
   }
 
   @Override
@@ -188,17 +256,25 @@ public abstract class CssNode implements Locatable {
   }
 
   public void appendComment(CssCommentNode comment) {
+    if (comments == NO_COMMENTS) {
+      comments = Lists.newArrayListWithCapacity(1);
+    }
     comments.add(comment);
     becomeParentForNode(comment);
   }
 
   public void setComments(List<CssCommentNode> comments) {
-    Preconditions.checkNotNull(this.comments);
+    Preconditions.checkNotNull(comments);
     removeAsParentOfNodes(this.comments);
-    this.comments = Lists.newArrayList(comments);
+    this.comments = copyComments(comments);
     becomeParentForNodes(this.comments);
   }
 
+  /**
+   * Returns the comments of this node. The list is unmodifiable when the node
+   * has no comments; use {@link #appendComment} and {@link #setComments} to
+   * change them.
+   */
   public List<CssCommentNode> getComments() {
     return comments;
   }
@@ -217,7 +293,7 @@ public abstract class CssNode implements Locatable {
   }
 
   public boolean getShouldBeFlipped() {
-    return shouldBeFlipped;
+    return !hasFlag(FLAG_SHOULD_NOT_BE_FLIPPED);
   }
 
   /**
@@ -226,7 +302,15 @@ public abstract class CssNode implements Locatable {
    * @param shouldBeFlipped Whether the node should be flipped or not.
    */
   public void setShouldBeFlipped(boolean shouldBeFlipped) {
-    this.shouldBeFlipped = shouldBeFlipped;
+    setFlag(FLAG_SHOULD_NOT_BE_FLIPPED, !shouldBeFlipped);
+  }
+
+  final boolean hasFlag(int flag) {
+    return (flags & flag) != 0;
+  }
+
+  final void setFlag(int flag, boolean value) {
+    flags = (byte) (value ? flags | flag : flags & ~flag);
   }
 
   <T extends CssNode> List<T> copyToList(List<T> list) {
@@ -321,7 +405,7 @@ public abstract class CssNode implements Locatable {
   }
 
   public VisitController getVisitController() {
-    return new DefaultVisitController(this, false /* allowMutating */);
+    return new ReadOnlyVisitController(this);
   }
 
   public static <N extends CssNode> List<N> deepCopyNodes(List<N> nodes) {
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.compiler.ast.VisitorInterests.Callback;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the nodes of a {@link CssTree} by kind, so that a pass that only
+ * needs the nodes of one kind, such as the definitions, can iterate over them
+ * rather than visit the whole tree. The index of a tree is obtained with
+ * {@link CssTree#getNodeIndex}, and the nodes of each kind are only
+ * collected the first time they are requested. The nodes of the kinds that
+ * are found outside of rulesets, like definitions and mixin definitions, are
+ * collected together, and can also be obtained together in the order of the
+ * visit with {@link #getBlockLevelNodes}.
+ *
+ * <p>The nodes of a kind are returned in the order in which a visit of the tree
+ * reaches them. The index is kept consistent with the changes to the tree: the
+ * nodes that are no longer in the tree are dropped when the nodes of their kind
+ * are requested, and the nodes of the kinds that a replacement made through a
+ * mutating visit controller of the tree may contain are collected again, in
+ * order, on the next request. Since the root node counts the nodes attached to
+ * the tree, a node that is added in any other way is noticed too, but then the
+ * nodes of every kind are collected again.
+ */
+public class CssNodeIndex {
+
+  /** The kinds of indexed nodes. */
+  private enum Kind {
+    RULESET(Callback.RULESET),
+    DECLARATION(Callback.DECLARATION),
+    DEFINITION(Callback.DEFINITION),
+    MIXIN_DEFINITION(Callback.MIXIN_DEFINITION),
+    CUSTOM_FUNCTION(Callback.FUNCTION_NODE),
+    CLASS_SELECTOR(Callback.CLASS_SELECTOR),
+    PROVIDE(Callback.PROVIDE_NODE),
+    REQUIRE(Callback.REQUIRE_NODE);
+
+    /** The callback through which a visit reaches the nodes of this kind. */
+    private final Callback callback;
+
+    private Kind(Callback callback) {
+      this.callback = callback;
+    }
+  }
+
+  /**
+   * The kinds of the nodes that are found outside of rulesets, which can be
+   * collected together without visiting more nodes than for one of them.
+   */
+  private static final Set<Kind> BLOCK_LEVEL_KINDS = EnumSet.of(
+      Kind.DEFINITION, Kind.MIXIN_DEFINITION, Kind.PROVIDE, Kind.REQUIRE);
+
+  /** The kinds of the nodes that rulesets summarize the presence of. */
+  private static final Set<Kind> SUMMARIZED_KINDS =
+      EnumSet.of(Kind.CUSTOM_FUNCTION, Kind.CLASS_SELECTOR);
+
+  private final CssRootNode root;
+
+  private final Map<Kind, List<CssNode>> nodesByKind =
+      new EnumMap<>(Kind.class);
+
+  /** The nodes of all the block-level kinds, in the order of the visit. */
+  private List<CssNode> blockLevelNodes;
+
+  /** The kinds whose nodes must be collected on the next request. */
+  private final Set<Kind> staleKinds = EnumSet.allOf(Kind.class);
+
+  /** The attachment count of the root when the index was last updated. */
+  private int attachmentCount;
+
+  CssNodeIndex(CssRootNode root) {
+    this.root = root;
+    this.attachmentCount = root.attachmentCount;
+  }
+
+  public List<CssRulesetNode> getRulesets() {
+    return get(Kind.RULESET);
+  }
+
+  public List<CssDeclarationNode> getDeclarations() {
+    return get(Kind.DECLARATION);
+  }
+
+  public List<CssDefinitionNode> getDefinitions() {
+    return get(Kind.DEFINITION);
+  }
+
+  public List<CssMixinDefinitionNode> getMixinDefinitions() {
+    return get(Kind.MIXIN_DEFINITION);
+  }
+
+  public List<CssCustomFunctionNode> getCustomFunctions() {
+    return get(Kind.CUSTOM_FUNCTION);
+  }
+
+  public List<CssClassSelectorNode> getClassSelectors() {
+    return get(Kind.CLASS_SELECTOR);
+  }
+
+  public List<CssProvideNode> getProvides() {
+    return get(Kind.PROVIDE);
+  }
+
+  public List<CssRequireNode> getRequires() {
+    return get(Kind.REQUIRE);
+  }
+
+  /**
+   * Returns the provide, require, definition and mixin definition nodes
+   * together, in the order in which a visit of the tree reaches them.
+   */
+  public List<CssNode> getBlockLevelNodes() {
+    update();
+    if (!Collections.disjoint(staleKinds, BLOCK_LEVEL_KINDS)) {
+      collect(BLOCK_LEVEL_KINDS);
+    } else {
+      blockLevelNodes = removeDetachedNodes(blockLevelNodes);
+    }
+    return ImmutableList.copyOf(blockLevelNodes);
+  }
+
+  /**
+   * Makes the index collect the nodes of every kind again on the next request
+   * if nodes were attached to the tree since the last update.
+   */
+  void update() {
+    if (root.attachmentCount != attachmentCount) {
+      staleKinds.addAll(EnumSet.allOf(Kind.class));
+      attachmentCount = root.attachmentCount;
+    }
+  }
+
+  /**
+   * Notifies the index that the given nodes were added to the tree by a visit
+   * controller, in place of the current node of the visit. The index must have
+   * been updated right before the replacement.
+   */
+  void nodesAdded(List<? extends CssNode> nodes) {
+    for (CssNode node : nodes) {
+      addKindsMaybeIn(node, staleKinds);
+    }
+    attachmentCount = root.attachmentCount;
+  }
+
+  /**
+   * Adds the kinds of the nodes that the subtree of the given node may
+   * contain. Rather than visit the subtree, this relies on its summary and on
+   * which nodes can contain which.
+   */
+  private static void addKindsMaybeIn(CssNode node, Set<Kind> kinds) {
+    if (node instanceof CssDeclarationNode) {
+      kinds.add(Kind.DECLARATION);
+    } else if (node instanceof CssRulesetNode) {
+      kinds.add(Kind.RULESET);
+      kinds.add(Kind.DECLARATION);
+    } else if (node instanceof CssDefinitionNode) {
+      kinds.add(Kind.DEFINITION);
+    } else if (!(node instanceof CssValueNode)
+        && !(node instanceof CssSelectorNode)) {
+      // Values and selectors can only contain custom functions and class
+      // selectors, respectively, but any other node may contain anything.
+      kinds.addAll(EnumSet.allOf(Kind.class));
+      return;
+    }
+    if (node.mayContain(NodeKind.CUSTOM_FUNCTION)) {
+      kinds.add(Kind.CUSTOM_FUNCTION);
+    }
+    if (node.mayContain(NodeKind.CLASS_SELECTOR)) {
+      kinds.add(Kind.CLASS_SELECTOR);
+    }
+  }
+
+  @SuppressWarnings("unchecked") // The list of a kind only holds its nodes.
+  private <N extends CssNode> List<N> get(Kind kind) {
+    update();
+    if (staleKinds.contains(kind)) {
+      // The block-level kinds are always collected together, which visits no
+      // more nodes than collecting one of them and keeps their combined list.
+      collect(BLOCK_LEVEL_KINDS.contains(kind)
+          ? BLOCK_LEVEL_KINDS : EnumSet.of(kind));
+    } else {
+      nodesByKind.put(kind, removeDetachedNodes(nodesByKind.get(kind)));
+    }
+    return (List<N>) ImmutableList.copyOf(nodesByKind.get(kind));
+  }
+
+  /** Collects the nodes of the given kinds with one visit of the tree. */
+  private void collect(Set<Kind> kinds) {
+    Collector collector = new Collector(kinds);
+    new DefaultVisitController(root, false /* allowMutating */)
+        .startVisit(collector);
+    for (Kind kind : kinds) {
+      nodesByKind.put(kind, collector.nodesByKind.get(kind));
+    }
+    if (kinds.containsAll(BLOCK_LEVEL_KINDS)) {
+      blockLevelNodes = collector.blockLevelNodes;
+    }
+    staleKinds.removeAll(kinds);
+  }
+
+  /** Returns the given nodes without those that are no longer in the tree. */
+  private List<CssNode> removeDetachedNodes(List<CssNode> nodes) {
+    List<CssNode> attached = null;
+    for (int i = 0; i < nodes.size(); i++) {
+      CssNode node = nodes.get(i);
+      if (isInTree(node)) {
+        if (attached != null) {
+          attached.add(node);
+        }
+      } else if (attached == null) {
+        attached = new ArrayList<>(nodes.subList(0, i));
+      }
+    }
+    return attached == null ? nodes : attached;
+  }
+
+  private boolean isInTree(CssNode node) {
+    while (node.getParent() != null) {
+      node = node.getParent();
+    }
+    return node == root;
+  }
+
+  /** Collects the nodes of some kinds, in the order of the visit. */
+  private static class Collector extends DefaultTreeVisitor
+      implements VisitorInterests.Declaring {
+    private final Set<Kind> kinds;
+    private final Map<Kind, List<CssNode>> nodesByKind =
+        new EnumMap<>(Kind.class);
+    private final List<CssNode> blockLevelNodes = new ArrayList<>();
+
+    Collector(Set<Kind> kinds) {
+      this.kinds = kinds;
+      for (Kind kind : kinds) {
+        nodesByKind.put(kind, new ArrayList<CssNode>());
+      }
+    }
+
+    @Override
+    public Set<Callback> getVisitorInterests() {
+      Set<Callback> interests = EnumSet.of(Callback.RULESET);
+      for (Kind kind : kinds) {
+        interests.add(kind.callback);
+      }
+      return interests;
+    }
+
+    @Override
+    public boolean enterRuleset(CssRulesetNode node) {
+      add(Kind.RULESET, node);
+      if (!SUMMARIZED_KINDS.containsAll(kinds)) {
+        return true;
+      }
+      // Skip the rulesets that contain none of the nodes to collect.
+      return (kinds.contains(Kind.CUSTOM_FUNCTION)
+              && node.mayContain(NodeKind.CUSTOM_FUNCTION))
+          || (kinds.contains(Kind.CLASS_SELECTOR)
+              && node.mayContain(NodeKind.CLASS_SELECTOR));
+    }
+
+    @Override
+    public boolean enterDeclaration(CssDeclarationNode node) {
+      add(Kind.DECLARATION, node);
+      return true;
+    }
+
+    @Override
+    public boolean enterDefinition(CssDefinitionNode node) {
+      add(Kind.DEFINITION, node);
+      return true;
+    }
+
+    @Override
+    public boolean enterMixinDefinition(CssMixinDefinitionNode node) {
+      add(Kind.MIXIN_DEFINITION, node);
+      return true;
+    }
+
+    @Override
+    public boolean enterFunctionNode(CssFunctionNode node) {
+      if (node instanceof CssCustomFunctionNode) {
+        add(Kind.CUSTOM_FUNCTION, node);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean enterClassSelector(CssClassSelectorNode node) {
+      add(Kind.CLASS_SELECTOR, node);
+      return true;
+    }
+
+    @Override
+    public boolean enterProvideNode(CssProvideNode node) {
+      add(Kind.PROVIDE, node);
+      return true;
+    }
+
+    @Override
+    public boolean enterRequireNode(CssRequireNode node) {
+      add(Kind.REQUIRE, node);
+      return true;
+    }
+
+    private void add(Kind kind, CssNode node) {
+      List<CssNode> nodes = nodesByKind.get(kind);
+      if (nodes != null) {
+        nodes.add(node);
+        if (BLOCK_LEVEL_KINDS.contains(kind)) {
+          blockLevelNodes.add(node);
+        }
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 import com.google.common.css.SourceCodeLocation;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -42,8 +43,11 @@ import javax.annotation.Nullable;
  * @param <T> the list is restricted to nodes of this type
  */
 public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
-  protected List<T> children = Lists.newArrayList();
-  private final boolean isEnclosedWithBraces;
+  /**
+   * The children of this node. Empty lists are shared and immutable; the list
+   * is only allocated when the first child is added.
+   */
+  protected List<T> children = Collections.emptyList();
 
   /**
    * Constructor of a list of nodes alike.
@@ -63,7 +67,7 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
   public CssNodesListNode(boolean isEnclosedWithBraces,
                    @Nullable List<CssCommentNode> comments) {
     super(null, comments, null);
-    this.isEnclosedWithBraces = isEnclosedWithBraces;
+    setFlag(FLAG_ENCLOSED_WITH_BRACES, isEnclosedWithBraces);
   }
 
   /**
@@ -83,7 +87,7 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
       addChildToBack(childCopy);
     }
 
-    this.isEnclosedWithBraces = isEnclosedWithBraces;
+    setFlag(FLAG_ENCLOSED_WITH_BRACES, isEnclosedWithBraces);
   }
 
   /**
@@ -96,7 +100,7 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
         node.getParent(),
         node.getComments(),
         node.getSourceCodeLocation());
-    this.isEnclosedWithBraces = node.isEnclosedWithBraces;
+    setFlag(FLAG_ENCLOSED_WITH_BRACES, node.isEnclosedWithBraces());
 
     for (CssNode child : node.childIterable()) {
       @SuppressWarnings("unchecked")
@@ -105,6 +109,17 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
     }
   }
 
+  /**
+   * Returns the modifiable list of children, allocating it if this node still
+   * shares the empty list.
+   */
+  List<T> mutableChildren() {
+    if (!(children instanceof ArrayList)) {
+      children = Lists.newArrayList(children);
+    }
+    return children;
+  }
+
   public List<T> getChildren() {
     return Collections.unmodifiableList(children);
   }
@@ -120,7 +135,8 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
   void setChildren(List<T> children) {
     Preconditions.checkArgument(!children.contains(null));
     removeAsParentOfNodes(this.children);
-    this.children = copyToList(children);
+    this.children = children.isEmpty()
+        ? Collections.<T>emptyList() : copyToList(children);
     becomeParentForNodes(this.children);
   }
 
@@ -138,7 +154,9 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
     Preconditions.checkState(index >= 0 && index < children.size());
     Preconditions.checkArgument(!newChildren.contains(null));
     removeChildAt(index);
-    children.addAll(index, newChildren);
+    if (!newChildren.isEmpty()) {
+      children.addAll(index, newChildren);
+    }
     becomeParentForNodes(newChildren);
   }
 
@@ -161,7 +179,7 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
 
   public void addChildToBack(T child) {
     Preconditions.checkNotNull(child);
-    this.children.add(child);
+    mutableChildren().add(child);
     becomeParentForNode(child);
   }
 
@@ -170,7 +188,7 @@ public abstract class CssNodesListNode<T extends CssNode> extends CssNode {
   }
 
   public boolean isEnclosedWithBraces() {
-    return isEnclosedWithBraces;
+    return hasFlag(FLAG_ENCLOSED_WITH_BRACES);
   }
 
   /**
@@ -83,7 +83,8 @@ public class CssPseudoClassNode extends CssRefinerNode {
   }
 
   public CssPseudoClassNode(CssPseudoClassNode node) {
-    this(node.functionType, node.refinerName, node.argument, node.notSelector,
+    this(node.functionType, node.refinerName, node.argument,
+        node.notSelector == null ? null : node.notSelector.deepCopy(),
         node.getSourceCodeLocation());
   }
 
@@ -94,6 +95,7 @@ public class CssPseudoClassNode extends CssRefinerNode {
     this.functionType = functionType;
     this.argument = argument;
     this.notSelector = notSelector;
+    becomeParentForNode(notSelector);
   }
 
   @Override
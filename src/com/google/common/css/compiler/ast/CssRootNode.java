@@ -40,6 +40,10 @@ public class CssRootNode extends CssNode {
   // Contains style rules, media rules, conditional rules, etc.
   private final CssBlockNode body;
 
+  // The number of times a node was attached to this tree, which tells the
+  // node index of the tree whether the tree changed since it last looked.
+  int attachmentCount = 0;
+
   public CssRootNode(CssBlockNode body) {
     Preconditions.checkNotNull(body);
     Preconditions.checkArgument(!body.isEnclosedWithBraces());
@@ -59,6 +63,7 @@ public class CssRootNode extends CssNode {
     // TODO(oana): When charset rules are added to the tree, a deep copy of it
     // must be created here.
     this.importRules = node.getImportRules().deepCopy();
+    becomeParentForNode(this.importRules);
   }
 
   @Override
@@ -84,6 +84,7 @@ public class CssRulesetNode extends CssNode {
     this.setSourceCodeLocation(node.getSourceCodeLocation());
     this.setComments(node.getComments());
     this.selectors = node.getSelectors().deepCopy();
+    becomeParentForNode(this.selectors);
   }
 
   @Override
@@ -36,6 +36,8 @@ public class CssTree {
   private final SourceCode sourceCode;
   /** A reference to the collection of ruleset nodes to remove. */
   private RulesetNodesToRemove rulesetNodesToRemove;
+  /** The index of the nodes of the tree, {@code null} until requested. */
+  private CssNodeIndex nodeIndex;
 
   // TODO(oana): Maybe make this part of some generic information we want to
   // store for the tree.
@@ -106,12 +108,29 @@ public class CssTree {
     this.rulesetNodesToRemove = new RulesetNodesToRemove();
   }
 
+  /**
+   * Returns the index of the nodes of this tree by kind, which is created on
+   * the first call and then kept consistent with the changes to the tree.
+   */
+  public CssNodeIndex getNodeIndex() {
+    if (nodeIndex == null) {
+      nodeIndex = new CssNodeIndex(root);
+    }
+    return nodeIndex;
+  }
+
+  /** Returns the index of the nodes of this tree, if it was requested. */
+  @Nullable
+  CssNodeIndex getNodeIndexIfCreated() {
+    return nodeIndex;
+  }
+
   public MutatingVisitController getMutatingVisitController() {
     return new DefaultVisitController(this, true /* allowMutating */);
   }
 
   public VisitController getVisitController() {
-    return new DefaultVisitController(this, false /* allowMutating */);
+    return new ReadOnlyVisitController(root);
   }
 
   // TODO(user): Add a method that merges two trees and produces a new one as
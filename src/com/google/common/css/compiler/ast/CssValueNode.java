@@ -42,9 +42,6 @@ public abstract class CssValueNode extends CssNode {
   /** The value contained by the node. */
   private String value;
 
-  /** Annotation to show whether this is a default value or not. */
-  private boolean isDefault;
-
   /**
    * Constructor of a node that contains a value.
    *
@@ -55,7 +52,6 @@ public abstract class CssValueNode extends CssNode {
                       @Nullable SourceCodeLocation sourceCodeLocation) {
     super(sourceCodeLocation);
     this.value = value;
-    this.isDefault = false;
   }
 
   /**
@@ -74,7 +70,7 @@ public abstract class CssValueNode extends CssNode {
    */
   public CssValueNode(CssValueNode node) {
     this(node.getValue(), node.getSourceCodeLocation());
-    this.isDefault = node.getIsDefault();
+    setIsDefault(node.getIsDefault());
   }
 
   @Override
@@ -94,12 +90,15 @@ public abstract class CssValueNode extends CssNode {
     this.value = value;
   }
 
+  /**
+   * Marks whether this is a default value or not.
+   */
   public void setIsDefault(boolean isDefault) {
-    this.isDefault = isDefault;
+    setFlag(FLAG_DEFAULT, isDefault);
   }
 
   public boolean getIsDefault() {
-    return isDefault;
+    return hasFlag(FLAG_DEFAULT);
   }
 
   /**
@@ -20,9 +20,15 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Queues;
 import com.google.common.css.compiler.ast.CssCompositeValueNode.Operator;
+import com.google.common.css.compiler.ast.VisitorInterests.Callback;
 
+import java.util.Collections;
 import java.util.Deque;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 /**
  * Default implementation of the MutatingVisitController. The controller is
@@ -35,6 +41,10 @@ class DefaultVisitController implements MutatingVisitController {
   /** The (sub)tree to be visited. */
   private final CssNode subtree;
 
+  /** The tree that contains the subtree, if known. */
+  @Nullable
+  private final CssTree tree;
+
   /** Whether mutations of the tree are allowed or not. */
   private final boolean allowMutating;
 
@@ -42,6 +52,24 @@ class DefaultVisitController implements MutatingVisitController {
   @VisibleForTesting
   CssTreeVisitor visitor;
 
+  /**
+   * The callbacks of the visitor that do something. The other callbacks are
+   * not called.
+   */
+  private Set<Callback> interests = EnumSet.allOf(Callback.class);
+
+  /**
+   * Whether the visitor is interested in any of the nodes of values, which are
+   * not visited as part of declarations and mixins otherwise.
+   */
+  private boolean visitsValues = true;
+
+  /**
+   * Whether the visitor is interested in any of the nodes of selectors, which
+   * are not visited as part of rulesets otherwise.
+   */
+  private boolean visitsSelectors = true;
+
   /** The stack of states for the controller. */
   private final StateStack stateStack = new StateStack();
 
@@ -868,8 +896,9 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void doVisit() {
       if (!visitedChildren) {
-        shouldVisitChildren = visitor.enterRuleset(node);
-      } else {
+        shouldVisitChildren = !interests.contains(Callback.RULESET)
+            || visitor.enterRuleset(node);
+      } else if (interests.contains(Callback.RULESET)) {
         visitor.leaveRuleset(node);
       }
     }
@@ -935,6 +964,9 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
+      if (!interests.contains(Callback.SELECTOR_BLOCK)) {
+        return;
+      }
       if (!visitedChildren) {
         visitor.enterSelectorBlock(block);
       } else {
@@ -945,8 +977,10 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void transitionToNextState() {
       if (!visitedChildren) {
-        stateStack.push(
-            new VisitSelectorBlockChildrenState(block));
+        if (visitsSelectors) {
+          stateStack.push(
+              new VisitSelectorBlockChildrenState(block));
+        }
         visitedChildren = true;
       } else {
         stateStack.transitionTo(
@@ -1033,6 +1067,9 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
+      if (!interests.contains(Callback.SELECTOR)) {
+        return;
+      }
       if (!visitedChildren) {
         visitor.enterSelector(node);
       } else {
@@ -1045,10 +1082,12 @@ class DefaultVisitController implements MutatingVisitController {
       if (!visitedChildren) {
         // We need to prepare the stack such that the refiners are visited first
         // and then the combinator if there is one.
-        if (node.getCombinator() != null) {
-          stateStack.push(new VisitCombinatorState(node.getCombinator()));
+        if (visitsSelectors) {
+          if (node.getCombinator() != null) {
+            stateStack.push(new VisitCombinatorState(node.getCombinator()));
+          }
+          stateStack.push(new VisitRefinerListState(node.getRefiners()));
         }
-        stateStack.push(new VisitRefinerListState(node.getRefiners()));
         visitedChildren = true;
       } else {
         stateStack.pop();
@@ -1114,27 +1153,47 @@ class DefaultVisitController implements MutatingVisitController {
       // states.
       if (!visitedChildren) {
         if (node instanceof CssClassSelectorNode) {
-          visitor.enterClassSelector((CssClassSelectorNode) node);
+          if (interests.contains(Callback.CLASS_SELECTOR)) {
+            visitor.enterClassSelector((CssClassSelectorNode) node);
+          }
         } else if (node instanceof CssIdSelectorNode) {
-          visitor.enterIdSelector((CssIdSelectorNode) node);
+          if (interests.contains(Callback.ID_SELECTOR)) {
+            visitor.enterIdSelector((CssIdSelectorNode) node);
+          }
         } else if (node instanceof CssPseudoClassNode) {
-          visitor.enterPseudoClass((CssPseudoClassNode) node);
+          if (interests.contains(Callback.PSEUDO_CLASS)) {
+            visitor.enterPseudoClass((CssPseudoClassNode) node);
+          }
         } else if (node instanceof CssPseudoElementNode) {
-          visitor.enterPseudoElement((CssPseudoElementNode) node);
+          if (interests.contains(Callback.PSEUDO_ELEMENT)) {
+            visitor.enterPseudoElement((CssPseudoElementNode) node);
+          }
         } else if (node instanceof CssAttributeSelectorNode) {
-          visitor.enterAttributeSelector((CssAttributeSelectorNode) node);
+          if (interests.contains(Callback.ATTRIBUTE_SELECTOR)) {
+            visitor.enterAttributeSelector((CssAttributeSelectorNode) node);
+          }
         }
       } else {
         if (node instanceof CssClassSelectorNode) {
-          visitor.leaveClassSelector((CssClassSelectorNode) node);
+          if (interests.contains(Callback.CLASS_SELECTOR)) {
+            visitor.leaveClassSelector((CssClassSelectorNode) node);
+          }
         } else if (node instanceof CssIdSelectorNode) {
-          visitor.leaveIdSelector((CssIdSelectorNode) node);
+          if (interests.contains(Callback.ID_SELECTOR)) {
+            visitor.leaveIdSelector((CssIdSelectorNode) node);
+          }
         } else if (node instanceof CssPseudoClassNode) {
-          visitor.leavePseudoClass((CssPseudoClassNode) node);
+          if (interests.contains(Callback.PSEUDO_CLASS)) {
+            visitor.leavePseudoClass((CssPseudoClassNode) node);
+          }
         } else if (node instanceof CssPseudoElementNode) {
-          visitor.leavePseudoElement((CssPseudoElementNode) node);
+          if (interests.contains(Callback.PSEUDO_ELEMENT)) {
+            visitor.leavePseudoElement((CssPseudoElementNode) node);
+          }
         } else if (node instanceof CssAttributeSelectorNode) {
-          visitor.leaveAttributeSelector((CssAttributeSelectorNode) node);
+          if (interests.contains(Callback.ATTRIBUTE_SELECTOR)) {
+            visitor.leaveAttributeSelector((CssAttributeSelectorNode) node);
+          }
         }
       }
     }
@@ -1169,6 +1228,9 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
+      if (!interests.contains(Callback.COMBINATOR)) {
+        return;
+      }
       if (!visitedChildren) {
         visitor.enterCombinator(node);
       } else {
@@ -1206,9 +1268,12 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void doVisit() {
       if (!startedVisitingChildren) {
-        visitor.enterDeclarationBlock(node);
+        if (interests.contains(Callback.DECLARATION_BLOCK)) {
+          visitor.enterDeclarationBlock(node);
+        }
         startedVisitingChildren = true;
-      } else if (finishedVisitingChildren) {
+      } else if (finishedVisitingChildren
+          && interests.contains(Callback.DECLARATION_BLOCK)) {
         visitor.leaveDeclarationBlock(node);
       }
     }
@@ -1272,6 +1337,9 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
+      if (!interests.contains(Callback.DECLARATION)) {
+        return;
+      }
       if (!visitedChildren) {
         visitor.enterDeclaration(node);
       } else {
@@ -1282,7 +1350,9 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void transitionToNextState() {
       if (!visitedChildren) {
-        stateStack.push(new VisitPropertyValueState(node.getPropertyValue()));
+        if (visitsValues) {
+          stateStack.push(new VisitPropertyValueState(node.getPropertyValue()));
+        }
         visitedChildren = true;
       } else {
         stateStack.pop();
@@ -1319,8 +1389,10 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void transitionToNextState() {
       if (!visitedChildren) {
-        stateStack.push(
-            new VisitFunctionArgumentsNodeState(node.getArguments()));
+        if (visitsValues) {
+          stateStack.push(
+              new VisitFunctionArgumentsNodeState(node.getArguments()));
+        }
         visitedChildren = true;
       } else {
         stateStack.pop();
@@ -1345,7 +1417,7 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
-      if (!visitingChildren) {
+      if (!visitingChildren && interests.contains(Callback.PROPERTY_VALUE)) {
         if (!visitedChildren) {
           visitor.enterPropertyValue(node);
         } else {
@@ -1428,8 +1500,10 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
-      visitor.enterValueNode(node);
-      visitor.leaveValueNode(node);
+      if (interests.contains(Callback.VALUE_NODE)) {
+        visitor.enterValueNode(node);
+        visitor.leaveValueNode(node);
+      }
     }
 
     @Override
@@ -1483,7 +1557,7 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void removeCurrentChild() {
-      children.remove(currentIndex);
+      node.removeAsParentOfNode(children.remove(currentIndex));
       intervalueStateIsNext = false;
       doNotIncreaseIndex = true;
       if (currentIndex == children.size()) {
@@ -1499,6 +1573,9 @@ class DefaultVisitController implements MutatingVisitController {
     /** {@inheritDoc} */
     @Override
     public void doVisit() {
+      if (!interests.contains(Callback.COMPOSITE_VALUE_NODE)) {
+        return;
+      }
       if (currentIndex < 0) {
         visitChildren = visitor.enterCompositeValueNode(node);
       } else if (currentIndex == children.size() - 1) {
@@ -1510,7 +1587,7 @@ class DefaultVisitController implements MutatingVisitController {
     public void replaceCurrentBlockChildWith(
         List<CssValueNode> replacementNodes,
         boolean visitTheReplacementNodes) {
-      children.remove(currentIndex);
+      node.removeAsParentOfNode(children.remove(currentIndex));
 
       // If we're replacing the current property with a composite value
       // separated by the same operator, we really just want to graft those
@@ -1543,8 +1620,10 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
-      visitor.enterCompositeValueNodeOperator(parent);
-      visitor.leaveCompositeValueNodeOperator(parent);
+      if (interests.contains(Callback.COMPOSITE_VALUE_NODE_OPERATOR)) {
+        visitor.enterCompositeValueNodeOperator(parent);
+        visitor.leaveCompositeValueNodeOperator(parent);
+      }
     }
 
     @Override
@@ -1568,8 +1647,9 @@ class DefaultVisitController implements MutatingVisitController {
     @Override
     public void doVisit() {
       if (!visitedChildren) {
-        shouldVisitChildren = visitor.enterFunctionNode(node);
-      } else {
+        shouldVisitChildren = !interests.contains(Callback.FUNCTION_NODE)
+            || visitor.enterFunctionNode(node);
+      } else if (interests.contains(Callback.FUNCTION_NODE)) {
         visitor.leaveFunctionNode(node);
       }
     }
@@ -1702,8 +1782,10 @@ class DefaultVisitController implements MutatingVisitController {
 
     @Override
     public void doVisit() {
-      visitor.enterArgumentNode(node);
-      visitor.leaveArgumentNode(node);
+      if (interests.contains(Callback.ARGUMENT_NODE)) {
+        visitor.enterArgumentNode(node);
+        visitor.leaveArgumentNode(node);
+      }
     }
 
     @Override
@@ -1985,13 +2067,19 @@ class DefaultVisitController implements MutatingVisitController {
   }
 
   public DefaultVisitController(CssNode subtree, boolean allowMutating) {
-    Preconditions.checkNotNull(subtree);
-    this.subtree = subtree;
-    this.allowMutating = allowMutating;
+    this(subtree, null /* tree */, allowMutating);
   }
 
   public DefaultVisitController(CssTree tree, boolean allowMutating) {
-    this(tree.getRoot(), allowMutating);
+    this(tree.getRoot(), tree, allowMutating);
+  }
+
+  private DefaultVisitController(CssNode subtree, @Nullable CssTree tree,
+      boolean allowMutating) {
+    Preconditions.checkNotNull(subtree);
+    this.subtree = subtree;
+    this.tree = tree;
+    this.allowMutating = allowMutating;
   }
 
   public StateStack getStateStack() {
@@ -2009,16 +2097,30 @@ class DefaultVisitController implements MutatingVisitController {
       List<T> replacementNodes,
       boolean visitTheReplacementNodes) {
     Preconditions.checkState(allowMutating);
+    CssNodeIndex nodeIndex = tree == null ? null : tree.getNodeIndexIfCreated();
+    if (nodeIndex != null) {
+      nodeIndex.update();
+    }
     @SuppressWarnings("unchecked")
     VisitState<T> stackTop = (VisitState<T>) stateStack.getTop();
     stackTop.replaceCurrentBlockChildWithCalled(
         replacementNodes, visitTheReplacementNodes);
+    // The removed nodes are dropped from the index lazily.
+    if (nodeIndex != null) {
+      nodeIndex.nodesAdded(replacementNodes);
+    }
   }
 
   @Override
   public void startVisit(CssTreeVisitor treeVisitor) {
     Preconditions.checkNotNull(treeVisitor);
     this.visitor = treeVisitor;
+    this.interests = EnumSet.noneOf(Callback.class);
+    this.interests.addAll(VisitorInterests.of(treeVisitor));
+    this.visitsValues =
+        !Collections.disjoint(interests, VisitorInterests.VALUE_CALLBACKS);
+    this.visitsSelectors =
+        !Collections.disjoint(interests, VisitorInterests.SELECTOR_CALLBACKS);
 
     stateStack.push(createVisitStateInternal(subtree));
 
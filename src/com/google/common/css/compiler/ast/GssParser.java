@@ -29,6 +29,7 @@ public class GssParser extends AbstractGssParser {
 
   private final List<SourceCode> sources;
   private ImmutableList<GssParserException> handledErrors = ImmutableList.of();
+  private boolean discardPlainComments = false;
 
   public GssParser(List<SourceCode> sources) {
     this.sources = sources;
@@ -38,6 +39,16 @@ public class GssParser extends AbstractGssParser {
     this(ImmutableList.of(source));
   }
 
+  /**
+   * Sets whether comments other than annotations and important comments are
+   * dropped while parsing, which saves time and memory when comments are not
+   * printed. See {@link GssParserCC#setDiscardPlainComments}.
+   */
+  public GssParser setDiscardPlainComments(boolean discardPlainComments) {
+    this.discardPlainComments = discardPlainComments;
+    return this;
+  }
+
   public CssTree parse() throws GssParserException {
     return parse(false);
   }
@@ -57,6 +68,8 @@ public class GssParser extends AbstractGssParser {
 
   @Override
   protected GssParserCC getParser() {
-    return new GssParserCC(EMPTY_CHAR_STREAM);
+    GssParserCC parser = new GssParserCC(EMPTY_CHAR_STREAM);
+    parser.setDiscardPlainComments(discardPlainComments);
+    return parser;
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+/**
+ * The kinds of nodes that a node summarizes the presence of in its subtree,
+ * so that a visitor interested in nodes of a kind can skip the subtrees that
+ * don't contain any. See {@link CssNode#mayContain}.
+ *
+ * <p>The summary of a node is kept in a byte, so there can be at most eight
+ * kinds.
+ */
+public enum NodeKind {
+  /** A {@link CssClassSelectorNode}. */
+  CLASS_SELECTOR,
+  /** A {@link CssIdSelectorNode}. */
+  ID_SELECTOR,
+  /** A {@link CssConstantReferenceNode}, including loop variables. */
+  CONSTANT_REFERENCE,
+  /** A {@link CssCustomFunctionNode}. */
+  CUSTOM_FUNCTION;
+
+  /** Returns the bit of this kind in a summary. */
+  int bit() {
+    return 1 << ordinal();
+  }
+
+  /** Returns the summary of the given node alone, without its subtree. */
+  static int bitsOf(CssNode node) {
+    if (node instanceof CssClassSelectorNode) {
+      return CLASS_SELECTOR.bit();
+    }
+    if (node instanceof CssIdSelectorNode) {
+      return ID_SELECTOR.bit();
+    }
+    if (node instanceof CssConstantReferenceNode) {
+      return CONSTANT_REFERENCE.bit();
+    }
+    if (node instanceof CssCustomFunctionNode) {
+      return CUSTOM_FUNCTION.bit();
+    }
+    return 0;
+  }
+}
@@ -17,7 +17,11 @@
 package com.google.common.css.compiler.ast;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
@@ -25,6 +29,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.css.Vendor;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -53,6 +58,39 @@ public final class Property {
    */
   private static final BiMap<String, Property> NAME_TO_PROPERTY_MAP;
 
+  /**
+   * The recognized properties in an open-addressing hash table whose size is a
+   * power of two. Keys are hashed with ASCII case folding (see
+   * {@link #hashIgnoreCase}), so {@link #byName} finds recognized properties
+   * without lower-casing the name.
+   */
+  private static final Property[] RECOGNIZED_PROPERTY_TABLE;
+
+  /** The recognized properties, indexed by {@link #getOrdinal()}. */
+  private static final ImmutableList<Property> RECOGNIZED_PROPERTIES_BY_ORDINAL;
+
+  /** Shorthand and longhand bits of the properties that have none. */
+  private static final BitSet NO_PROPERTIES = new BitSet();
+
+  /** The maximum number of user-defined properties kept by {@link #byName}. */
+  private static final int MAX_CACHED_USER_DEFINED_PROPERTIES = 4096;
+
+  /**
+   * User-defined and custom properties, interned so that repeated lookups of
+   * the same name return the same instance. Keys are normalized names.
+   */
+  private static final LoadingCache<String, Property> USER_DEFINED_PROPERTIES =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_USER_DEFINED_PROPERTIES)
+          .build(new CacheLoader<String, Property>() {
+            @Override
+            public Property load(String name) {
+              // Names with non-ASCII characters may still lower-case to the
+              // name of a recognized property.
+              Property property = NAME_TO_PROPERTY_MAP.get(name);
+              return property != null ? property : createUserDefinedProperty(name);
+            }
+          });
 
   static {
     List<Builder> recognizedProperties = ImmutableList.of(
@@ -794,6 +832,37 @@ public final class Property {
       allProperies.put(property.getName(), property);
     }
     NAME_TO_PROPERTY_MAP = allProperies.build();
+
+    Property[] table =
+        new Property[Integer.highestOneBit(NAME_TO_PROPERTY_MAP.size() * 4)];
+    for (Property property : NAME_TO_PROPERTY_MAP.values()) {
+      int i = hashIgnoreCase(property.getName()) & (table.length - 1);
+      while (table[i] != null) {
+        i = (i + 1) & (table.length - 1);
+      }
+      table[i] = property;
+    }
+    RECOGNIZED_PROPERTY_TABLE = table;
+
+    RECOGNIZED_PROPERTIES_BY_ORDINAL = ImmutableList.copyOf(NAME_TO_PROPERTY_MAP.values());
+    for (int i = 0; i < RECOGNIZED_PROPERTIES_BY_ORDINAL.size(); i++) {
+      RECOGNIZED_PROPERTIES_BY_ORDINAL.get(i).ordinal = i;
+    }
+    for (Property property : RECOGNIZED_PROPERTIES_BY_ORDINAL) {
+      for (String shorthandName : property.shorthands) {
+        Property shorthand = NAME_TO_PROPERTY_MAP.get(shorthandName);
+        Preconditions.checkState(shorthand != null,
+            "shorthand %s of %s is not recognized", shorthandName, property.name);
+        if (property.shorthandOrdinals == NO_PROPERTIES) {
+          property.shorthandOrdinals = new BitSet();
+        }
+        property.shorthandOrdinals.set(shorthand.ordinal);
+        if (shorthand.longhandOrdinals == NO_PROPERTIES) {
+          shorthand.longhandOrdinals = new BitSet();
+        }
+        shorthand.longhandOrdinals.set(property.ordinal);
+      }
+    }
   }
 
   private final String name;
@@ -813,6 +882,26 @@ public final class Property {
 
   private final String warning;
 
+  /**
+   * The index of this property among the recognized properties, or -1 if it
+   * is not recognized. Only assigned while the recognized properties are
+   * initialized.
+   */
+  private int ordinal = -1;
+
+  /**
+   * The ordinals of the shorthands of this property. Only assigned while the
+   * recognized properties are initialized, and never modified afterwards.
+   */
+  private BitSet shorthandOrdinals = NO_PROPERTIES;
+
+  /**
+   * The ordinals of the properties that have this property as a shorthand.
+   * Only assigned while the recognized properties are initialized, and never
+   * modified afterwards.
+   */
+  private BitSet longhandOrdinals = NO_PROPERTIES;
+
   private Property(
       String name,
       Set<String> shorthands,
@@ -849,23 +938,62 @@ public final class Property {
   /**
    * @return a {@code Property} with the specified {@code name}. If {@code name}
    *     corresponds to a recognized property, then the corresponding
-   *     {@code Property} will be returned; otherwise, a new {@code Property}
-   *     with the specified {@code name} will be created.
+   *     {@code Property} will be returned; otherwise, a {@code Property} with
+   *     the specified {@code name} will be created, or reused if it was
+   *     recently asked for.
    */
   public static Property byName(String name) {
     // All CSS property names are case-insensitive, except for custom properties.
-    if (!name.startsWith(CUSTOM_PROPERTY_PREFIX)) {
-      name = name.toLowerCase();
+    if (name.startsWith(CUSTOM_PROPERTY_PREFIX)) {
+      return USER_DEFINED_PROPERTIES.getUnchecked(name);
     }
 
-    Property property = NAME_TO_PROPERTY_MAP.get(name);
+    Property property = findRecognizedProperty(name);
     if (property != null) {
       return property;
     } else {
-      return Property.createUserDefinedProperty(name);
+      // toLowerCase() returns the string itself if it is already lower case.
+      return USER_DEFINED_PROPERTIES.getUnchecked(name.toLowerCase());
     }
   }
 
+  /**
+   * Returns the recognized property whose name equals {@code name} ignoring
+   * ASCII case, or {@code null}. Recognized names are lower case ASCII, so
+   * names with other characters never match.
+   */
+  @Nullable
+  private static Property findRecognizedProperty(String name) {
+    int mask = RECOGNIZED_PROPERTY_TABLE.length - 1;
+    for (int i = hashIgnoreCase(name) & mask; ; i = (i + 1) & mask) {
+      Property property = RECOGNIZED_PROPERTY_TABLE[i];
+      if (property == null || equalsIgnoreAsciiCase(property.name, name)) {
+        return property;
+      }
+    }
+  }
+
+  private static int hashIgnoreCase(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + Ascii.toLowerCase(name.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean equalsIgnoreAsciiCase(
+      String lowerCaseName, String name) {
+    if (lowerCaseName.length() != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (lowerCaseName.charAt(i) != Ascii.toLowerCase(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * @return the name of this CSS property as it appears in a stylesheet, such
    *     as "z-index"
@@ -895,6 +1023,59 @@ public final class Property {
     return shorthands;
   }
 
+  /**
+   * Returns the index of this property among the recognized properties, from
+   * 0 to the number of recognized properties, or -1 if this property is not
+   * recognized. Ordinals are dense, so they can be used to index bit sets and
+   * arrays.
+   */
+  public int getOrdinal() {
+    return ordinal;
+  }
+
+  /**
+   * Returns the recognized property with the given ordinal.
+   *
+   * @throws IndexOutOfBoundsException if there is no such property
+   */
+  public static Property byOrdinal(int ordinal) {
+    return RECOGNIZED_PROPERTIES_BY_ORDINAL.get(ordinal);
+  }
+
+  /**
+   * Returns whether the recognized property with the given ordinal is one of
+   * the shorthands of this property (see {@link #getShorthands()}).
+   */
+  public boolean hasShorthand(int ordinal) {
+    return ordinal >= 0 && shorthandOrdinals.get(ordinal);
+  }
+
+  /**
+   * Returns whether any of the ordinals in the given set belongs to a
+   * shorthand of this property.
+   */
+  public boolean hasAnyShorthand(BitSet ordinals) {
+    return shorthandOrdinals.intersects(ordinals);
+  }
+
+  /**
+   * Returns the ordinals of the shorthands of this property. The returned set
+   * is a copy.
+   */
+  public BitSet getShorthandOrdinals() {
+    return (BitSet) shorthandOrdinals.clone();
+  }
+
+  /**
+   * Returns the ordinals of the properties that have this property as a
+   * shorthand. For example, the longhands of {@code padding} are
+   * {@code padding-bottom}, {@code padding-left}, {@code padding-right} and
+   * {@code padding-top}. The returned set is a copy.
+   */
+  public BitSet getLonghandOrdinals() {
+    return (BitSet) longhandOrdinals.clone();
+  }
+
   /**
    * Gets the partition of this property. All properties with the same partition
    * share a common shorthand. A non-standard property is its own single
@@ -0,0 +1,541 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import com.google.common.base.Preconditions;
+import com.google.common.css.compiler.ast.VisitorInterests.Callback;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A visit controller for visits that don't change the tree, which traverses
+ * the tree recursively rather than through the visit states of a
+ * {@link DefaultVisitController}.
+ *
+ * <p>The callbacks of the visitor are called in the same order, and their
+ * results are taken into account in the same way, as by a non-mutating
+ * {@link DefaultVisitController}. Since there is no state to replace or remove
+ * the current node, a visit only costs the recursive calls and the callbacks
+ * themselves.
+ */
+final class ReadOnlyVisitController implements VisitController {
+
+  /** The (sub)tree to be visited. */
+  private final CssNode subtree;
+
+  /** The visitor of the tree. */
+  private CssTreeVisitor visitor;
+
+  /**
+   * The callbacks of the visitor that do something. The other callbacks are
+   * not called.
+   */
+  private Set<Callback> interests;
+
+  /** Whether the visitor is interested in any of the nodes of values. */
+  private boolean visitsValues;
+
+  /** Whether the visitor is interested in any of the nodes of selectors. */
+  private boolean visitsSelectors;
+
+  @SuppressWarnings("serial")
+  private static class StopVisitRequestedException extends RuntimeException {}
+
+  ReadOnlyVisitController(CssNode subtree) {
+    this.subtree = Preconditions.checkNotNull(subtree);
+  }
+
+  @Override
+  public void startVisit(CssTreeVisitor treeVisitor) {
+    Preconditions.checkNotNull(treeVisitor);
+    this.visitor = treeVisitor;
+    this.interests = EnumSet.noneOf(Callback.class);
+    this.interests.addAll(VisitorInterests.of(treeVisitor));
+    this.visitsValues =
+        !Collections.disjoint(interests, VisitorInterests.VALUE_CALLBACKS);
+    this.visitsSelectors =
+        !Collections.disjoint(interests, VisitorInterests.SELECTOR_CALLBACKS);
+
+    boolean visited;
+    try {
+      visited = visitNode(subtree);
+    } catch (StopVisitRequestedException e) {
+      // We stop visiting.
+      return;
+    }
+    Preconditions.checkArgument(visited, "Cannot visit a %s",
+        subtree.getClass().getName());
+  }
+
+  @Override
+  public void stopVisit() {
+    throw new StopVisitRequestedException();
+  }
+
+  /**
+   * Visits a node of one of the kinds that a visit can start from or that
+   * blocks can contain, and returns {@code false} for any other node, which
+   * the caller may then visit as a value or an argument.
+   */
+  private boolean visitNode(CssNode node) {
+    if (node instanceof CssProvideNode) {
+      visitor.enterProvideNode((CssProvideNode) node);
+      visitor.leaveProvideNode((CssProvideNode) node);
+    } else if (node instanceof CssRequireNode) {
+      visitor.enterRequireNode((CssRequireNode) node);
+      visitor.leaveRequireNode((CssRequireNode) node);
+    } else if (node instanceof CssMediaRuleNode) {
+      visitMediaRule((CssMediaRuleNode) node);
+    } else if (node instanceof CssPageRuleNode) {
+      visitPageRule((CssPageRuleNode) node);
+    } else if (node instanceof CssPageSelectorNode) {
+      visitPageSelector((CssPageSelectorNode) node);
+    } else if (node instanceof CssFontFaceNode) {
+      visitFontFace((CssFontFaceNode) node);
+    } else if (node instanceof CssImportRuleNode) {
+      visitImportRule((CssImportRuleNode) node);
+    } else if (node instanceof CssComponentNode) {
+      visitComponent((CssComponentNode) node);
+    } else if (node instanceof CssRefinerNode) {
+      visitRefiner((CssRefinerNode) node);
+    } else if (node instanceof CssDeclarationNode) {
+      visitDeclaration((CssDeclarationNode) node);
+    } else if (node instanceof CssMixinNode) {
+      visitMixin((CssMixinNode) node);
+    } else if (node instanceof CssForLoopRuleNode) {
+      visitForLoop((CssForLoopRuleNode) node);
+    } else if (node instanceof CssUnknownAtRuleNode) {
+      visitUnknownAtRule((CssUnknownAtRuleNode) node);
+    } else if (node instanceof CssKeyframesNode) {
+      visitKeyframes((CssKeyframesNode) node);
+    } else if (node instanceof CssKeyframeRulesetNode) {
+      visitKeyframeRuleset((CssKeyframeRulesetNode) node);
+    } else if (node instanceof CssConditionalBlockNode) {
+      visitConditionalBlock((CssConditionalBlockNode) node);
+    } else if (node instanceof CssRulesetNode) {
+      visitRuleset((CssRulesetNode) node);
+    } else if (node instanceof CssDefinitionNode) {
+      visitDefinition((CssDefinitionNode) node);
+    } else if (node instanceof CssFunctionNode) {
+      visitFunction((CssFunctionNode) node);
+    } else if (node instanceof CssMixinDefinitionNode) {
+      visitMixinDefinition((CssMixinDefinitionNode) node);
+    } else if (node instanceof CssCompositeValueNode) {
+      visitCompositeValue((CssCompositeValueNode) node);
+    } else if (node instanceof CssPropertyValueNode) {
+      visitPropertyValue((CssPropertyValueNode) node);
+    } else if (node instanceof CssRootNode) {
+      visitRoot((CssRootNode) node);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /** Visits the children of a block, skipping those it cannot visit. */
+  private void visitChildren(CssNodesListNode<? extends CssNode> block) {
+    for (int i = 0; i < block.numChildren(); i++) {
+      visitNode(block.getChildAt(i));
+    }
+  }
+
+  private void visitRoot(CssRootNode root) {
+    visitor.enterTree(root);
+    CssImportBlockNode importBlock = root.getImportRules();
+    if (visitor.enterImportBlock(importBlock)) {
+      for (int i = 0; i < importBlock.numChildren(); i++) {
+        visitImportRule(importBlock.getChildAt(i));
+      }
+      visitor.leaveImportBlock(importBlock);
+    }
+    CssBlockNode body = root.getBody();
+    if (visitor.enterBlock(body)) {
+      visitChildren(body);
+      visitor.leaveBlock(body);
+    }
+    visitor.leaveTree(root);
+  }
+
+  private void visitImportRule(CssImportRuleNode node) {
+    if (visitor.enterImportRule(node)) {
+      visitor.leaveImportRule(node);
+    }
+  }
+
+  private void visitMediaRule(CssMediaRuleNode node) {
+    if (!visitor.enterMediaRule(node)) {
+      return;
+    }
+    visitAtRuleParameters(node);
+    if (node.getType().hasBlock()) {
+      visitAtRuleBlock(node.getBlock());
+    }
+    visitor.leaveMediaRule(node);
+  }
+
+  private void visitUnknownAtRule(CssUnknownAtRuleNode node) {
+    if (!visitor.enterUnknownAtRule(node)) {
+      return;
+    }
+    visitAtRuleParameters(node);
+    if (node.getType().hasBlock()) {
+      visitAtRuleBlock(node.getBlock());
+    }
+    visitor.leaveUnknownAtRule(node);
+  }
+
+  /** Visits the parameters of an at-rule, with a delimiter between two. */
+  private void visitAtRuleParameters(CssAtRuleNode node) {
+    List<CssValueNode> parameters = node.getParameters();
+    for (int i = 0; i < parameters.size(); i++) {
+      CssValueNode parameter = parameters.get(i);
+      if (parameter instanceof CssCompositeValueNode) {
+        visitCompositeValue((CssCompositeValueNode) parameter);
+      } else {
+        visitValueNode(parameter);
+      }
+      if (i < parameters.size() - 1) {
+        visitor.enterMediaTypeListDelimiter(node);
+        visitor.leaveMediaTypeListDelimiter(node);
+      }
+    }
+  }
+
+  /** Visits the block of an at-rule, which may hold rules or declarations. */
+  private void visitAtRuleBlock(CssAbstractBlockNode body) {
+    if (body instanceof CssBlockNode) {
+      CssBlockNode block = (CssBlockNode) body;
+      if (visitor.enterBlock(block)) {
+        visitChildren(block);
+        visitor.leaveBlock(block);
+      }
+    } else if (body instanceof CssDeclarationBlockNode) {
+      visitDeclarationBlock((CssDeclarationBlockNode) body);
+    }
+  }
+
+  private void visitPageRule(CssPageRuleNode node) {
+    if (visitor.enterPageRule(node)) {
+      visitAtRuleBlock(node.getBlock());
+      visitor.leavePageRule(node);
+    }
+  }
+
+  private void visitPageSelector(CssPageSelectorNode node) {
+    if (visitor.enterPageSelector(node)) {
+      visitAtRuleBlock(node.getBlock());
+      visitor.leavePageSelector(node);
+    }
+  }
+
+  private void visitFontFace(CssFontFaceNode node) {
+    if (visitor.enterFontFace(node)) {
+      visitAtRuleBlock(node.getBlock());
+      visitor.leaveFontFace(node);
+    }
+  }
+
+  private void visitKeyframes(CssKeyframesNode node) {
+    if (!visitor.enterKeyframesRule(node)) {
+      return;
+    }
+    if (node.getType().hasBlock()) {
+      visitAtRuleBlock(node.getBlock());
+    }
+    visitor.leaveKeyframesRule(node);
+  }
+
+  private void visitComponent(CssComponentNode node) {
+    if (visitor.enterComponent(node)) {
+      visitChildren(node.getBlock());
+      visitor.leaveComponent(node);
+    }
+  }
+
+  private void visitForLoop(CssForLoopRuleNode node) {
+    if (visitor.enterForLoop(node)) {
+      visitChildren(node.getBlock());
+      visitor.leaveForLoop(node);
+    }
+  }
+
+  private void visitConditionalBlock(CssConditionalBlockNode block) {
+    visitor.enterConditionalBlock(block);
+    for (int i = 0; i < block.numChildren(); i++) {
+      CssConditionalRuleNode rule = block.getChildAt(i);
+      if (visitor.enterConditionalRule(rule)) {
+        visitChildren(rule.getBlock());
+        visitor.leaveConditionalRule(rule);
+      }
+    }
+    visitor.leaveConditionalBlock(block);
+  }
+
+  private void visitDefinition(CssDefinitionNode node) {
+    if (!visitor.enterDefinition(node)) {
+      return;
+    }
+    if (visitsValues) {
+      for (int i = 0; i < node.numChildren(); i++) {
+        visitValue(node.getChildAt(i));
+      }
+    }
+    visitor.leaveDefinition(node);
+  }
+
+  private void visitMixinDefinition(CssMixinDefinitionNode node) {
+    visitor.enterMixinDefinition(node);
+    visitDeclarationBlock(node.getBlock());
+    visitor.leaveMixinDefinition(node);
+  }
+
+  private void visitRuleset(CssRulesetNode node) {
+    boolean interested = interests.contains(Callback.RULESET);
+    if (interested && !visitor.enterRuleset(node)) {
+      return;
+    }
+    CssSelectorListNode selectors = node.getSelectors();
+    boolean visitsSelectorBlock = interests.contains(Callback.SELECTOR_BLOCK);
+    if (visitsSelectorBlock) {
+      visitor.enterSelectorBlock(selectors);
+    }
+    if (visitsSelectors) {
+      for (int i = 0; i < selectors.numChildren(); i++) {
+        visitSelector(selectors.getChildAt(i));
+      }
+    }
+    if (visitsSelectorBlock) {
+      visitor.leaveSelectorBlock(selectors);
+    }
+    visitDeclarationBlock(node.getDeclarations());
+    if (interested) {
+      visitor.leaveRuleset(node);
+    }
+  }
+
+  private void visitKeyframeRuleset(CssKeyframeRulesetNode node) {
+    if (!visitor.enterKeyframeRuleset(node)) {
+      return;
+    }
+    CssKeyListNode keys = node.getKeys();
+    visitor.enterKeyBlock(keys);
+    for (int i = 0; i < keys.numChildren(); i++) {
+      CssKeyNode key = keys.getChildAt(i);
+      visitor.enterKey(key);
+      visitor.leaveKey(key);
+    }
+    visitor.leaveKeyBlock(keys);
+    visitDeclarationBlock(node.getDeclarations());
+    visitor.leaveKeyframeRuleset(node);
+  }
+
+  private void visitSelector(CssSelectorNode node) {
+    boolean interested = interests.contains(Callback.SELECTOR);
+    if (interested) {
+      visitor.enterSelector(node);
+    }
+    if (visitsSelectors) {
+      // The refiners are visited before the combinator.
+      CssCombinatorNode combinator = node.getCombinator();
+      visitChildren(node.getRefiners());
+      if (combinator != null) {
+        visitCombinator(combinator);
+      }
+    }
+    if (interested) {
+      visitor.leaveSelector(node);
+    }
+  }
+
+  private void visitRefiner(CssRefinerNode node) {
+    enterRefiner(node);
+    if (node instanceof CssPseudoClassNode) {
+      CssSelectorNode notSelector =
+          ((CssPseudoClassNode) node).getNotSelector();
+      if (notSelector != null) {
+        visitSelector(notSelector);
+      }
+    }
+    leaveRefiner(node);
+  }
+
+  private void enterRefiner(CssRefinerNode node) {
+    if (node instanceof CssClassSelectorNode) {
+      if (interests.contains(Callback.CLASS_SELECTOR)) {
+        visitor.enterClassSelector((CssClassSelectorNode) node);
+      }
+    } else if (node instanceof CssIdSelectorNode) {
+      if (interests.contains(Callback.ID_SELECTOR)) {
+        visitor.enterIdSelector((CssIdSelectorNode) node);
+      }
+    } else if (node instanceof CssPseudoClassNode) {
+      if (interests.contains(Callback.PSEUDO_CLASS)) {
+        visitor.enterPseudoClass((CssPseudoClassNode) node);
+      }
+    } else if (node instanceof CssPseudoElementNode) {
+      if (interests.contains(Callback.PSEUDO_ELEMENT)) {
+        visitor.enterPseudoElement((CssPseudoElementNode) node);
+      }
+    } else if (node instanceof CssAttributeSelectorNode) {
+      if (interests.contains(Callback.ATTRIBUTE_SELECTOR)) {
+        visitor.enterAttributeSelector((CssAttributeSelectorNode) node);
+      }
+    }
+  }
+
+  private void leaveRefiner(CssRefinerNode node) {
+    if (node instanceof CssClassSelectorNode) {
+      if (interests.contains(Callback.CLASS_SELECTOR)) {
+        visitor.leaveClassSelector((CssClassSelectorNode) node);
+      }
+    } else if (node instanceof CssIdSelectorNode) {
+      if (interests.contains(Callback.ID_SELECTOR)) {
+        visitor.leaveIdSelector((CssIdSelectorNode) node);
+      }
+    } else if (node instanceof CssPseudoClassNode) {
+      if (interests.contains(Callback.PSEUDO_CLASS)) {
+        visitor.leavePseudoClass((CssPseudoClassNode) node);
+      }
+    } else if (node instanceof CssPseudoElementNode) {
+      if (interests.contains(Callback.PSEUDO_ELEMENT)) {
+        visitor.leavePseudoElement((CssPseudoElementNode) node);
+      }
+    } else if (node instanceof CssAttributeSelectorNode) {
+      if (interests.contains(Callback.ATTRIBUTE_SELECTOR)) {
+        visitor.leaveAttributeSelector((CssAttributeSelectorNode) node);
+      }
+    }
+  }
+
+  private void visitCombinator(CssCombinatorNode node) {
+    boolean interested = interests.contains(Callback.COMBINATOR);
+    if (interested) {
+      visitor.enterCombinator(node);
+    }
+    visitSelector(node.getSelector());
+    if (interested) {
+      visitor.leaveCombinator(node);
+    }
+  }
+
+  private void visitDeclarationBlock(CssDeclarationBlockNode block) {
+    boolean interested = interests.contains(Callback.DECLARATION_BLOCK);
+    if (interested) {
+      visitor.enterDeclarationBlock(block);
+    }
+    visitChildren(block);
+    if (interested) {
+      visitor.leaveDeclarationBlock(block);
+    }
+  }
+
+  private void visitDeclaration(CssDeclarationNode node) {
+    boolean interested = interests.contains(Callback.DECLARATION);
+    if (interested) {
+      visitor.enterDeclaration(node);
+    }
+    if (visitsValues) {
+      visitPropertyValue(node.getPropertyValue());
+    }
+    if (interested) {
+      visitor.leaveDeclaration(node);
+    }
+  }
+
+  private void visitMixin(CssMixinNode node) {
+    visitor.enterMixin(node);
+    if (visitsValues) {
+      visitFunctionArguments(node.getArguments());
+    }
+    visitor.leaveMixin(node);
+  }
+
+  private void visitPropertyValue(CssPropertyValueNode node) {
+    boolean interested = interests.contains(Callback.PROPERTY_VALUE);
+    if (interested) {
+      visitor.enterPropertyValue(node);
+    }
+    for (int i = 0; i < node.numChildren(); i++) {
+      visitValue(node.getChildAt(i));
+    }
+    if (interested) {
+      visitor.leavePropertyValue(node);
+    }
+  }
+
+  /** Visits a value, as a plain value node if it has no structure. */
+  private void visitValue(CssValueNode node) {
+    if (!visitNode(node)) {
+      visitValueNode(node);
+    }
+  }
+
+  private void visitValueNode(CssValueNode node) {
+    if (interests.contains(Callback.VALUE_NODE)) {
+      visitor.enterValueNode(node);
+      visitor.leaveValueNode(node);
+    }
+  }
+
+  private void visitCompositeValue(CssCompositeValueNode node) {
+    boolean interested = interests.contains(Callback.COMPOSITE_VALUE_NODE);
+    boolean visitChildren =
+        !interested || visitor.enterCompositeValueNode(node);
+    List<CssValueNode> values = node.getValues();
+    if (values.isEmpty()) {
+      return;
+    }
+    if (visitChildren) {
+      boolean visitsOperators =
+          interests.contains(Callback.COMPOSITE_VALUE_NODE_OPERATOR);
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0 && visitsOperators) {
+          visitor.enterCompositeValueNodeOperator(node);
+          visitor.leaveCompositeValueNodeOperator(node);
+        }
+        visitValue(values.get(i));
+      }
+    }
+    if (interested) {
+      visitor.leaveCompositeValueNode(node);
+    }
+  }
+
+  private void visitFunction(CssFunctionNode node) {
+    boolean interested = interests.contains(Callback.FUNCTION_NODE);
+    if (!interested || visitor.enterFunctionNode(node)) {
+      visitFunctionArguments(node.getArguments());
+    }
+    if (interested) {
+      visitor.leaveFunctionNode(node);
+    }
+  }
+
+  private void visitFunctionArguments(CssFunctionArgumentsNode node) {
+    boolean visitsArguments = interests.contains(Callback.ARGUMENT_NODE);
+    for (int i = 0; i < node.numChildren(); i++) {
+      CssValueNode argument = node.getChildAt(i);
+      if (!visitNode(argument) && visitsArguments) {
+        visitor.enterArgumentNode(argument);
+        visitor.leaveArgumentNode(argument);
+      }
+    }
+  }
+}
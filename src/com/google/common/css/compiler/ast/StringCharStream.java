@@ -17,11 +17,9 @@
 package com.google.common.css.compiler.ast;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
-import com.google.common.primitives.Ints;
+import com.google.common.css.SourceCode;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * Efficient {@code String} based {@link CharStream} implementation.
@@ -32,6 +30,12 @@ public class StringCharStream implements CharStream {
 
   private static final IOException END_OF_STREAM = new IOException();
 
+  /** The number of slots of the token image cache, a power of two. */
+  private static final int IMAGE_CACHE_SIZE = 512;
+
+  /** Longer token images are rarely repeated, so they are not cached. */
+  private static final int MAX_CACHED_IMAGE_LENGTH = 32;
+
   /** The input string. */
   private final String input;
   private final int length;
@@ -46,13 +50,23 @@ public class StringCharStream implements CharStream {
 
   private int tabSize = 1;
   private boolean trackLineColumn;
+  private boolean skipPlainComments;
+
+  /**
+   * Recently created token images, indexed by hash. Most tokens of a
+   * stylesheet are repetitions of a few property names, keywords, numbers and
+   * units, so a token whose image is in the cache shares that string instead
+   * of copying the characters again. The cache is direct-mapped, so a
+   * collision simply replaces the older image.
+   */
+  private String[] imageCache;
 
   /**
-   * This array (working as a map: lineNumber -> characterIndex) helps to
-   * compute token locations efficiently. First element is not used as line
-   * numbers are 1 based.
+   * The source code of the input. Its line table (working as a map:
+   * lineNumber -> characterIndex) helps to compute token locations
+   * efficiently and is shared with the locations created by the parser.
    */
-  private int[] lineToCharIndex;
+  private final SourceCode sourceCode;
 
   /**
    * Creates a character stream for a given string.
@@ -60,7 +74,17 @@ public class StringCharStream implements CharStream {
    * @param inputString input string for this stream
    */
   public StringCharStream(String inputString) {
-    input = inputString;
+    this(new SourceCode(null, inputString));
+  }
+
+  /**
+   * Creates a character stream for the contents of the given source code.
+   *
+   * @param sourceCode source code whose contents are known
+   */
+  public StringCharStream(SourceCode sourceCode) {
+    this.sourceCode = sourceCode;
+    input = sourceCode.getFileContents();
     length = input.length();
 
     lastChar = '\u0000';
@@ -71,20 +95,6 @@ public class StringCharStream implements CharStream {
     tokenStart = charPos;
     beginLine = line;
     beginColumn = column;
-
-    initCharIndex(input);
-  }
-
-  private void initCharIndex(String source) {
-    List<Integer> lineToCharIndexList = Lists.newArrayList();
-    int charIndex = -1;
-    lineToCharIndexList.add(charIndex);
-    do {
-      charIndex++;
-      lineToCharIndexList.add(charIndex);
-      charIndex = source.indexOf('\n', charIndex);
-    } while (charIndex >= 0);
-    lineToCharIndex = Ints.toArray(lineToCharIndexList);
   }
 
   /**
@@ -95,7 +105,18 @@ public class StringCharStream implements CharStream {
    * @return 0 based absolute character index in the input string
    */
   public int convertToCharacterIndex(int lineNumber, int indexInLine) {
-    return lineToCharIndex[lineNumber] + indexInLine - 1;
+    return sourceCode.getLineStart(lineNumber) + indexInLine - 1;
+  }
+
+  /**
+   * Sets whether plain comments are skipped at the start of each token, so
+   * the lexer never sees them. Comments that start with {@code /*!} or contain
+   * an {@code @} annotation are not plain, and neither are unterminated
+   * comments, which the lexer has to report. Like the lexer rule for
+   * comments, skipping a comment also skips the whitespace after it.
+   */
+  void setSkipPlainComments(boolean skipPlainComments) {
+    this.skipPlainComments = skipPlainComments;
   }
 
   /**
@@ -175,16 +196,19 @@ public class StringCharStream implements CharStream {
   @Override
   public void backup(int amount) {
     charPos -= amount;
-    while (line > 1 && lineToCharIndex[line] > charPos) {
+    while (line > 1 && sourceCode.getLineStart(line) > charPos) {
       line--;
     }
-    column = charPos - lineToCharIndex[line] + 1;
+    column = charPos - sourceCode.getLineStart(line) + 1;
     lastChar = charPos < 0 ? '\u0000' : input.charAt(charPos);
   }
 
   /** {@inheritDoc} */
   @Override
   public char BeginToken() throws IOException {
+    if (skipPlainComments) {
+      skipPlainComments();
+    }
     readChar();
     tokenStart = charPos;
     beginLine = line;
@@ -192,10 +216,63 @@ public class StringCharStream implements CharStream {
     return lastChar;
   }
 
+  private void skipPlainComments() {
+    int pos = charPos + 1;
+    while (input.startsWith("/*", pos)) {
+      int end = input.indexOf("*/", pos + 2);
+      if (end == -1 || input.charAt(pos + 2) == '!' || hasAt(pos + 2, end)) {
+        break;
+      }
+      pos = end + 2;
+      while (pos < length && isCommentTrailingWhitespace(input.charAt(pos))) {
+        pos++;
+      }
+    }
+    if (pos > charPos + 1) {
+      charPos = pos - 1;
+      line = sourceCode.getLineNumber(charPos);
+      column = charPos - sourceCode.getLineStart(line) + 1;
+      lastChar = input.charAt(charPos);
+    }
+  }
+
+  private boolean hasAt(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (input.charAt(i) == '@') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isCommentTrailingWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
   /** {@inheritDoc} */
   @Override
   public String GetImage() {
-    return input.substring(tokenStart, charPos + 1);
+    int end = charPos + 1;
+    int imageLength = end - tokenStart;
+    if (imageLength > MAX_CACHED_IMAGE_LENGTH) {
+      return input.substring(tokenStart, end);
+    }
+    // The same hash as String.hashCode(), computed without a copy.
+    int hash = 0;
+    for (int i = tokenStart; i < end; i++) {
+      hash = 31 * hash + input.charAt(i);
+    }
+    if (imageCache == null) {
+      imageCache = new String[IMAGE_CACHE_SIZE];
+    }
+    int slot = (hash ^ (hash >>> 16)) & (IMAGE_CACHE_SIZE - 1);
+    String image = imageCache[slot];
+    if (image == null || image.length() != imageLength
+        || !input.regionMatches(tokenStart, image, 0, imageLength)) {
+      image = input.substring(tokenStart, end);
+      imageCache[slot] = image;
+    }
+    return image;
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The callbacks of a {@link CssTreeVisitor} that actually do something.
+ *
+ * <p>A visit controller only needs to call the {@code enter*} and
+ * {@code leave*} methods of a visitor that the visitor is interested in: a
+ * callback that the visitor is not interested in is assumed to do nothing
+ * and, for an {@code enter*} method, to return {@code true}. When a visitor is
+ * not interested in any of the callbacks for the nodes of a subtree, such as
+ * the values of a declaration, the controller can skip the subtree altogether.
+ *
+ * <p>A visitor can declare its interests by implementing {@link Declaring}.
+ * Otherwise the interests of a visitor that extends {@link DefaultTreeVisitor}
+ * are the callbacks that its class overrides, which are computed once per
+ * class, and any other visitor is interested in all the callbacks.
+ */
+public final class VisitorInterests {
+
+  /** A pair of {@code enter*} and {@code leave*} methods of the visitor. */
+  public enum Callback {
+    TREE("Tree"),
+    IMPORT_BLOCK("ImportBlock"),
+    BLOCK("Block"),
+    CONDITIONAL_BLOCK("ConditionalBlock"),
+    DECLARATION_BLOCK("DeclarationBlock"),
+    RULESET("Ruleset"),
+    SELECTOR_BLOCK("SelectorBlock"),
+    DECLARATION("Declaration"),
+    SELECTOR("Selector"),
+    CLASS_SELECTOR("ClassSelector"),
+    ID_SELECTOR("IdSelector"),
+    PSEUDO_CLASS("PseudoClass"),
+    PSEUDO_ELEMENT("PseudoElement"),
+    ATTRIBUTE_SELECTOR("AttributeSelector"),
+    PROPERTY_VALUE("PropertyValue"),
+    COMPOSITE_VALUE_NODE("CompositeValueNode"),
+    VALUE_NODE("ValueNode"),
+    COMPOSITE_VALUE_NODE_OPERATOR("CompositeValueNodeOperator"),
+    FUNCTION_NODE("FunctionNode"),
+    ARGUMENT_NODE("ArgumentNode"),
+    COMBINATOR("Combinator"),
+    KEY("Key"),
+    KEY_BLOCK("KeyBlock"),
+    KEYFRAME_RULESET("KeyframeRuleset"),
+    FOR_LOOP("ForLoop"),
+    CONDITIONAL_RULE("ConditionalRule"),
+    IMPORT_RULE("ImportRule"),
+    MEDIA_RULE("MediaRule"),
+    PAGE_RULE("PageRule"),
+    PAGE_SELECTOR("PageSelector"),
+    FONT_FACE("FontFace"),
+    DEFINITION("Definition"),
+    UNKNOWN_AT_RULE("UnknownAtRule"),
+    MEDIA_TYPE_LIST_DELIMITER("MediaTypeListDelimiter"),
+    COMPONENT("Component"),
+    KEYFRAMES_RULE("KeyframesRule"),
+    MIXIN_DEFINITION("MixinDefinition"),
+    MIXIN("Mixin"),
+    PROVIDE_NODE("ProvideNode"),
+    REQUIRE_NODE("RequireNode");
+
+    private final String methodSuffix;
+
+    private Callback(String methodSuffix) {
+      this.methodSuffix = methodSuffix;
+    }
+  }
+
+  /** A visitor that declares which of its callbacks do something. */
+  public interface Declaring extends CssTreeVisitor {
+    /**
+     * Returns the callbacks that do something. The other callbacks may not be
+     * called.
+     */
+    Set<Callback> getVisitorInterests();
+  }
+
+  /** The callbacks for the nodes of property values and function arguments. */
+  static final ImmutableSet<Callback> VALUE_CALLBACKS = Sets.immutableEnumSet(
+      Callback.PROPERTY_VALUE,
+      Callback.COMPOSITE_VALUE_NODE,
+      Callback.VALUE_NODE,
+      Callback.COMPOSITE_VALUE_NODE_OPERATOR,
+      Callback.FUNCTION_NODE,
+      Callback.ARGUMENT_NODE);
+
+  /** The callbacks for the nodes of selectors. */
+  static final ImmutableSet<Callback> SELECTOR_CALLBACKS = Sets.immutableEnumSet(
+      Callback.SELECTOR,
+      Callback.CLASS_SELECTOR,
+      Callback.ID_SELECTOR,
+      Callback.PSEUDO_CLASS,
+      Callback.PSEUDO_ELEMENT,
+      Callback.ATTRIBUTE_SELECTOR,
+      Callback.COMBINATOR);
+
+  private static final ImmutableSet<Callback> ALL =
+      Sets.immutableEnumSet(EnumSet.allOf(Callback.class));
+
+  private static final ImmutableMap<String, Callback> CALLBACKS_BY_SUFFIX;
+
+  static {
+    ImmutableMap.Builder<String, Callback> builder = ImmutableMap.builder();
+    for (Callback callback : Callback.values()) {
+      builder.put(callback.methodSuffix, callback);
+    }
+    CALLBACKS_BY_SUFFIX = builder.build();
+  }
+
+  private static final ConcurrentMap<Class<?>, ImmutableSet<Callback>>
+      interestsByClass = Maps.newConcurrentMap();
+
+  private VisitorInterests() {}
+
+  /** Returns the callbacks of the given visitor that do something. */
+  public static Set<Callback> of(CssTreeVisitor visitor) {
+    if (visitor instanceof Declaring) {
+      return ((Declaring) visitor).getVisitorInterests();
+    }
+    if (!(visitor instanceof DefaultTreeVisitor)) {
+      return ALL;
+    }
+    Class<?> visitorClass = visitor.getClass();
+    ImmutableSet<Callback> interests = interestsByClass.get(visitorClass);
+    if (interests == null) {
+      interests = computeOverriddenCallbacks(visitorClass);
+      interestsByClass.put(visitorClass, interests);
+    }
+    return interests;
+  }
+
+  /**
+   * Returns the callbacks for which the given subclass of
+   * {@link DefaultTreeVisitor} overrides the {@code enter*} or {@code leave*}
+   * method.
+   */
+  private static ImmutableSet<Callback> computeOverriddenCallbacks(
+      Class<?> visitorClass) {
+    EnumSet<Callback> interests = EnumSet.noneOf(Callback.class);
+    for (Method method : CssTreeVisitor.class.getMethods()) {
+      String name = method.getName();
+      // Strip the "enter" or "leave" prefix, which have the same length.
+      Callback callback = CALLBACKS_BY_SUFFIX.get(name.substring(5));
+      if (callback == null) {
+        // A callback this class doesn't know about.
+        return ALL;
+      }
+      try {
+        Method implementation =
+            visitorClass.getMethod(name, method.getParameterTypes());
+        if (implementation.getDeclaringClass() != DefaultTreeVisitor.class) {
+          interests.add(callback);
+        }
+      } catch (NoSuchMethodException e) {
+        throw new AssertionError(e);
+      }
+    }
+    return Sets.immutableEnumSet(interests);
+  }
+}
@@ -21,7 +21,6 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.css.AbstractCommandLineCompiler;
 import com.google.common.css.DefaultExitCodeHandler;
@@ -33,6 +32,8 @@ import com.google.common.css.JobDescription.OutputOrientation;
 import com.google.common.css.JobDescription.SourceMapDetailLevel;
 import com.google.common.css.JobDescriptionBuilder;
 import com.google.common.css.OutputRenamingMapFormat;
+import com.google.common.css.RecordingSubstitutionMap;
+import com.google.common.css.RenamingStore;
 import com.google.common.css.SourceCode;
 import com.google.common.css.Vendor;
 import com.google.common.css.compiler.ast.ErrorManager;
@@ -43,6 +44,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -134,6 +136,20 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
         + " --output-renaming-map-format.")
     private OutputRenamingMapFormat inputRenamingMapFormat = null;
 
+    @Option(name = "--renaming-store", usage = "A file that keeps the"
+        + " renamed names of CSS classes stable across builds. It is read"
+        + " before renaming, if it exists, and updated afterwards. Cannot be"
+        + " used with --input-renaming-map.")
+    private String renamingStoreFileName = null;
+
+    @Option(name = "--renaming-store-max-unused-builds", usage = "The number"
+        + " of consecutive builds that may not use a CSS class before it is"
+        + " removed from the renaming store, which allows its name to be"
+        + " reused. Defaults to 10.")
+    private int renamingStoreMaxUnusedBuilds = 10;
+
+    @Nullable private RenamingStore renamingStore = null;
+
     @Option(name = "--output-source-map", usage = "The source map output."
         + " Provides a mapping from the generated output to their original"
         + " source code location.")
@@ -181,7 +197,8 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
     private Vendor vendor = null;
 
     @Option(name = "--excluded-classes-from-renaming", usage =
-        "Pass the compiler a list of CSS class names that shoudn't be renamed.")
+        "Pass the compiler a list of CSS class names that shoudn't be renamed."
+        + " Names may contain the wildcards * and ?, as in goog-*.")
     private List<String> excludedClassesFromRenaming = Lists.newArrayList();
 
     // For enum values, args4j automatically lists all possible values when it
@@ -216,6 +233,10 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
         + "/*! */, @license, or @preserve.")
     private boolean preserveImportantComments = false;
 
+    @Option(name = "--rename-by-frequency", usage = "Give the shortest renamed "
+        + "names to the most frequently used CSS classes.")
+    private boolean renameByFrequency = false;
+
     /**
      * All remaining arguments are considered input CSS files.
      */
@@ -254,6 +275,7 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
       builder.setOutputRenamingMapFormat(outputRenamingMapFormat);
       builder.setCompileConstants(parseCompileConstants(compileConstants));
       builder.setPreserveImportantComments(preserveImportantComments);
+      builder.setRenameByFrequency(renameByFrequency);
 
       GssFunctionMapProvider gssFunctionMapProvider =
           getGssFunctionMapProviderForName(gssFunctionMapProviderClassName);
@@ -261,6 +283,15 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
       builder.setSourceMapLevel(sourceMapLevel);
       builder.setCreateSourceMap(!Strings.isNullOrEmpty(sourceMapFile));
 
+      if (renamingStoreFileName != null) {
+        if (inputRenamingMapFileName != null) {
+          throw new RuntimeException(
+              "--renaming-store cannot be used with --input-renaming-map");
+        }
+        renamingStore = readRenamingStore();
+        builder.setInputRenamingMap(renamingStore.getMappings());
+      }
+
       if (inputRenamingMapFileName != null) {
         if (inputRenamingMapFormat == null) {
           inputRenamingMapFormat = outputRenamingMapFormat;
@@ -269,9 +300,7 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
         try {
           File inputRenamingMapFile = new File(inputRenamingMapFileName);
           Reader inputRenamingMapReader = Files.newReader(inputRenamingMapFile, UTF_8);
-          ImmutableMap<String, String> inputRenamingMap =
-              inputRenamingMapFormat.readRenamingMap(inputRenamingMapReader);
-          builder.setInputRenamingMap(inputRenamingMap);
+          builder.readInputRenamingMap(inputRenamingMapFormat, inputRenamingMapReader);
         } catch (IOException e) {
           throw new RuntimeException(String.format(
               "Input renaming map file %s can not be read", inputRenamingMapFileName), e);
@@ -296,11 +325,26 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
       return builder.getJobDescription();
     }
 
+    private RenamingStore readRenamingStore() {
+      File renamingStoreFile = new File(renamingStoreFileName);
+      if (!renamingStoreFile.exists()) {
+        return new RenamingStore(renamingStoreMaxUnusedBuilds);
+      }
+      try (Reader reader = Files.newReader(renamingStoreFile, UTF_8)) {
+        return RenamingStore.read(reader, renamingStoreMaxUnusedBuilds);
+      } catch (IOException e) {
+        throw new RuntimeException(String.format(
+            "Renaming store file %s can not be read", renamingStoreFileName), e);
+      }
+    }
+
     private OutputInfo createOutputInfo() {
       return new OutputInfo(
           (outputFile == null) ? null : new File(outputFile),
           (renameFile == null) ? null : new File(renameFile),
-          (sourceMapFile == null) ? null : new File(sourceMapFile));
+          (sourceMapFile == null) ? null : new File(sourceMapFile),
+          renamingStore,
+          (renamingStoreFileName == null) ? null : new File(renamingStoreFileName));
     }
 
     /**
@@ -356,11 +400,16 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
     @Nullable public final File outputFile;
     @Nullable public final File renameFile;
     @Nullable public final File sourceMapFile;
+    @Nullable public final RenamingStore renamingStore;
+    @Nullable public final File renamingStoreFile;
 
-    private OutputInfo(File outputFile, File renameFile, File sourceMapFile) {
+    private OutputInfo(File outputFile, File renameFile, File sourceMapFile,
+        RenamingStore renamingStore, File renamingStoreFile) {
       this.outputFile = outputFile;
       this.renameFile = renameFile;
       this.sourceMapFile = sourceMapFile;
+      this.renamingStore = renamingStore;
+      this.renamingStoreFile = renamingStoreFile;
     }
   }
 
@@ -373,6 +422,16 @@ public class ClosureCommandLineCompiler extends DefaultCommandLineCompiler {
 
     String compilerOutput = compiler.execute(outputInfo.renameFile, outputInfo.sourceMapFile);
 
+    RecordingSubstitutionMap recordingSubstitutionMap = compiler.getRecordingSubstitutionMap();
+    if (outputInfo.renamingStore != null && recordingSubstitutionMap != null) {
+      outputInfo.renamingStore.recordBuild(recordingSubstitutionMap.getUsedMappings());
+      try (Writer writer = Files.newWriter(outputInfo.renamingStoreFile, UTF_8)) {
+        outputInfo.renamingStore.write(writer);
+      } catch (IOException e) {
+        AbstractCommandLineCompiler.exitOnUnhandledException(e, exitCodeHandler);
+      }
+    }
+
     if (outputInfo.outputFile == null) {
       System.out.print(compilerOutput);
     } else {
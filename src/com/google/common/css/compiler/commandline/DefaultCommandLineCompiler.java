@@ -107,10 +107,12 @@ public class DefaultCommandLineCompiler extends AbstractCommandLineCompiler<JobD
 
     if (job.allowDefPropagation) {
       GssParser parser = new GssParser(job.inputs);
+      parser.setDiscardPlainComments(!job.preserveComments);
       parseAndPrint(result, parser);
     } else {
       for (SourceCode source : job.inputs) {
         GssParser parser = new GssParser(source);
+        parser.setDiscardPlainComments(!job.preserveComments);
         parseAndPrint(result, parser);
       }
     }
@@ -205,6 +207,15 @@ public class DefaultCommandLineCompiler extends AbstractCommandLineCompiler<JobD
     return null;
   }
 
+  /**
+   * Returns the map that renamed the CSS classes, or null if classes are not
+   * renamed.
+   */
+  @Nullable
+  protected RecordingSubstitutionMap getRecordingSubstitutionMap() {
+    return passRunner.getRecordingSubstitutionMap();
+  }
+
   /**
    * Writes the mappings to the specified writer. By default, mappings are
    * written (one per line) as:
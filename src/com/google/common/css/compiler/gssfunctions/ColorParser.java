@@ -16,15 +16,12 @@
 
 package com.google.common.css.compiler.gssfunctions;
 
-import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import java.awt.Color;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A parser that recognizes all color formats allowed by the CSS Level 2
@@ -46,6 +43,11 @@ import java.util.regex.Pattern;
  * <li>A predefined color keyword, such as "red".</li>
  * </ul>
  *
+ * <p>Colors are returned as packed {@code int} values in ARGB order (the same
+ * layout as {@code java.awt.Color#getRGB()}), see {@link ColorUtil} for
+ * accessors. The values are recognized by a hand-written scanner that makes a
+ * single pass over the input and does not allocate for the common formats.
+ *
  * <p>An example of a parser that will handle all valid CSS 2.1 colors:
  * <pre>
  * // Construct a ColorParser instance (thread-safe, and can be reused):
@@ -55,7 +57,7 @@ import java.util.regex.Pattern;
  *     ColorParser.Format.CSS_RGB,
  *     ColorParser.Format.CSS_KEYWORDS);
  * // Parse a color:
- * Color red = parser.parse("rgb(255, 0, 0)");
+ * int red = parser.parse("rgb(255, 0, 0)");
  * </pre>
  *
  * <p>Also see the {@link #parseAny} static convenience method.
@@ -64,331 +66,259 @@ import java.util.regex.Pattern;
  */
 final class ColorParser {
 
-  /** Pattern for matching #RRGGBB */
-  private static final Pattern HEX6_PATTERN = formatHexadecimalPattern(6);
-
-  /** Pattern for matching #RRGGBBAA */
-  private static final Pattern HEX8_PATTERN = formatHexadecimalPattern(8);
-
-  /** Pattern for matching #RGBA */
-  private static final Pattern HEX4_PATTERN = formatHexadecimalPattern(4);
-
-  /** Pattern for matching rgb(r, g, b) [0-255] */
-  private static final Pattern CSS_RGB_PATTERN;
-
-  /** Pattern for matching rgb(r, g, b) [0-100%] */
-  private static final Pattern CSS_PERCENT_PATTERN;
-
-  /** Pattern for matching rgba(r, g, b, a) [0-255, a = 0-1] */
-  private static final Pattern CSS_RGBA_PATTERN;
-
-  /** Pattern for matching rgba(r, g, b, a) [0-100%, a = 0-1] */
-  private static final Pattern CSS_RGBA_PERCENT_PATTERN;
-
-  // Initialize the patterns to recognize "rgb(...)" colors.
-  static {
-    /*
-      From CSS2 spec:
-
-      An <integer> consists of one or more digits "0" to "9".
-      A <number> can either be an <integer>, or it can be zero
-      or more digits followed by a dot (.) followed by one or more
-      digits. Both integers and real numbers may be preceded by a "-"
-      or "+" to indicate the sign.
-
-      The format of a percentage value is an optional sign character
-      ('+' or '-', with '+' being the default) immediately followed by a
-      <number> immediately followed by '%'.
-    */
-    String integerPattern = "([+-]?[0-9]+)";
-    String numberPattern = "([+-]?[0-9]+|[+-]?[0-9]*\\.[0-9]+)";
-    String rgbTemplate = "^rgb\\(\\s*%1$s\\s*,\\s*%1$s\\s*,\\s*%1$s\\s*\\)$";
-    CSS_RGB_PATTERN = Pattern.compile(
-        String.format(rgbTemplate, integerPattern));
-    CSS_PERCENT_PATTERN = Pattern.compile(
-        String.format(rgbTemplate, numberPattern + "%"));
-
-    String rgbaTemplate =
-        "^rgba\\(\\s*%1$s\\s*,\\s*%1$s\\s*,\\s*%1$s\\s*\\,\\s*%2$s\\s*\\)$";
-    CSS_RGBA_PATTERN = Pattern.compile(
-        String.format(rgbaTemplate, integerPattern, numberPattern));
-    CSS_RGBA_PERCENT_PATTERN = Pattern.compile(
-        String.format(rgbaTemplate, numberPattern + "%", numberPattern));
-  }
+  /**
+   * Value returned by {@link Format#parse} when the format does not match.
+   * Every successfully parsed color is a non-negative {@code long} holding the
+   * unsigned ARGB value, so this can never clash with a real color.
+   */
+  static final long NO_MATCH = -1L;
+
+  /** Alpha component of a fully opaque color. */
+  private static final int OPAQUE = 0xFF000000;
+
+  /**
+   * Maximum number of digits in a number that are converted without falling
+   * back to {@link Float#parseFloat}. Up to this length the digits fit into
+   * a {@code double} exactly.
+   */
+  private static final int MAX_FAST_DIGITS = 9;
+
+  /** Powers of ten used to scale the fractional part of a number. */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
 
   /** Map of the 16 allowed colors defined in HTML 4.01. */
-  private static final ImmutableMap<String, Color> HTML_COLOR_MAP =
-      new ImmutableMap.Builder<String, Color>()
-          .put("aqua", new Color(0x00FFFF))
-          .put("black", new Color(0x000000))
-          .put("blue", new Color(0x0000FF))
-          .put("fuchsia", new Color(0xFF00FF))
-          .put("gray", new Color(0x808080))
-          .put("green", new Color(0x008000))
-          .put("lime", new Color(0x00FF00))
-          .put("maroon", new Color(0x800000))
-          .put("navy", new Color(0x000080))
-          .put("olive", new Color(0x808000))
-          .put("purple", new Color(0x800080))
-          .put("red", new Color(0xFF0000))
-          .put("silver", new Color(0xC0C0C0))
-          .put("teal", new Color(0x008080))
-          .put("white", new Color(0xFFFFFF))
-          .put("yellow", new Color(0xFFFF00))
+  private static final ImmutableMap<String, Integer> HTML_COLOR_MAP =
+      new ImmutableMap.Builder<String, Integer>()
+          .put("aqua", 0x00FFFF)
+          .put("black", 0x000000)
+          .put("blue", 0x0000FF)
+          .put("fuchsia", 0xFF00FF)
+          .put("gray", 0x808080)
+          .put("green", 0x008000)
+          .put("lime", 0x00FF00)
+          .put("maroon", 0x800000)
+          .put("navy", 0x000080)
+          .put("olive", 0x808000)
+          .put("purple", 0x800080)
+          .put("red", 0xFF0000)
+          .put("silver", 0xC0C0C0)
+          .put("teal", 0x008080)
+          .put("white", 0xFFFFFF)
+          .put("yellow", 0xFFFF00)
           .build();
 
   /** All the named colors defined in CSS 2.1 */
-  private static final ImmutableMap<String, Color> CSS_COLOR_MAP =
-      new ImmutableMap.Builder<String, Color>()
+  private static final ImmutableMap<String, Integer> CSS_COLOR_MAP =
+      new ImmutableMap.Builder<String, Integer>()
           .putAll(HTML_COLOR_MAP)
-          .put("orange", new Color(0xFFA500))
+          .put("orange", 0xFFA500)
           .build();
 
   /** All the named colors defined in SVG 1.0 */
-  private static final ImmutableMap<String, Color> SVG_COLOR_MAP =
-      new ImmutableMap.Builder<String, Color>()
+  private static final ImmutableMap<String, Integer> SVG_COLOR_MAP =
+      new ImmutableMap.Builder<String, Integer>()
           .putAll(CSS_COLOR_MAP)
-          .put("aliceblue", new Color(0xF0F8FF))
-          .put("antiquewhite", new Color(0xFAEBD7))
-          .put("aquamarine", new Color(0x7FFFD4))
-          .put("azure", new Color(0xF0FFFF))
-          .put("beige", new Color(0xF5F5DC))
-          .put("bisque", new Color(0xFFE4C4))
-          .put("blanchedalmond", new Color(0xFFEBCD))
-          .put("blueviolet", new Color(0x8A2BE2))
-          .put("brown", new Color(0xA52A2A))
-          .put("burlywood", new Color(0xDEB887))
-          .put("cadetblue", new Color(0x5F9EA0))
-          .put("chartreuse", new Color(0x7FFF00))
-          .put("chocolate", new Color(0xD2691E))
-          .put("coral", new Color(0xFF7F50))
-          .put("cornflowerblue", new Color(0x6495ED))
-          .put("cornsilk", new Color(0xFFF8DC))
-          .put("crimson", new Color(0xDC143C))
-          .put("cyan", new Color(0x00FFFF))
-          .put("darkblue", new Color(0x00008B))
-          .put("darkcyan", new Color(0x008B8B))
-          .put("darkgoldenrod", new Color(0xB8860B))
-          .put("darkgray", new Color(0xA9A9A9))
-          .put("darkgreen", new Color(0x006400))
-          .put("darkgrey", new Color(0xA9A9A9))
-          .put("darkkhaki", new Color(0xBDB76B))
-          .put("darkmagenta", new Color(0x8B008B))
-          .put("darkolivegreen", new Color(0x556B2F))
-          .put("darkorange", new Color(0xFF8C00))
-          .put("darkorchid", new Color(0x9932CC))
-          .put("darkred", new Color(0x8B0000))
-          .put("darksalmon", new Color(0xE9967A))
-          .put("darkseagreen", new Color(0x8FBC8F))
-          .put("darkslateblue", new Color(0x483D8B))
-          .put("darkslategray", new Color(0x2F4F4F))
-          .put("darkslategrey", new Color(0x2F4F4F))
-          .put("darkturquoise", new Color(0x00CED1))
-          .put("darkviolet", new Color(0x9400D3))
-          .put("deeppink", new Color(0xFF1493))
-          .put("deepskyblue", new Color(0x00BFFF))
-          .put("dimgray", new Color(0x696969))
-          .put("dimgrey", new Color(0x696969))
-          .put("dodgerblue", new Color(0x1E90FF))
-          .put("firebrick", new Color(0xB22222))
-          .put("floralwhite", new Color(0xFFFAF0))
-          .put("forestgreen", new Color(0x228B22))
-          .put("gainsboro", new Color(0xDCDCDC))
-          .put("ghostwhite", new Color(0xF8F8FF))
-          .put("gold", new Color(0xFFD700))
-          .put("goldenrod", new Color(0xDAA520))
-          .put("greenyellow", new Color(0xADFF2F))
-          .put("grey", new Color(0x808080))
-          .put("honeydew", new Color(0xF0FFF0))
-          .put("hotpink", new Color(0xFF69B4))
-          .put("indianred", new Color(0xCD5C5C))
-          .put("indigo", new Color(0x4B0082))
-          .put("ivory", new Color(0xFFFFF0))
-          .put("khaki", new Color(0xF0E68C))
-          .put("lavender", new Color(0xE6E6FA))
-          .put("lavenderblush", new Color(0xFFF0F5))
-          .put("lawngreen", new Color(0x7CFC00))
-          .put("lemonchiffon", new Color(0xFFFACD))
-          .put("lightblue", new Color(0xADD8E6))
-          .put("lightcoral", new Color(0xF08080))
-          .put("lightcyan", new Color(0xE0FFFF))
-          .put("lightgoldenrodyellow", new Color(0xFAFAD2))
-          .put("lightgray", new Color(0xD3D3D3))
-          .put("lightgreen", new Color(0x90EE90))
-          .put("lightgrey", new Color(0xD3D3D3))
-          .put("lightpink", new Color(0xFFB6C1))
-          .put("lightsalmon", new Color(0xFFA07A))
-          .put("lightseagreen", new Color(0x20B2AA))
-          .put("lightskyblue", new Color(0x87CEFA))
-          .put("lightslategray", new Color(0x778899))
-          .put("lightslategrey", new Color(0x778899))
-          .put("lightsteelblue", new Color(0xB0C4DE))
-          .put("lightyellow", new Color(0xFFFFE0))
-          .put("limegreen", new Color(0x32CD32))
-          .put("linen", new Color(0xFAF0E6))
-          .put("magenta", new Color(0xFF00FF))
-          .put("mediumaquamarine", new Color(0x66CDAA))
-          .put("mediumblue", new Color(0x0000CD))
-          .put("mediumorchid", new Color(0xBA55D3))
-          .put("mediumpurple", new Color(0x9370DB))
-          .put("mediumseagreen", new Color(0x3CB371))
-          .put("mediumslateblue", new Color(0x7B68EE))
-          .put("mediumspringgreen", new Color(0x00FA9A))
-          .put("mediumturquoise", new Color(0x48D1CC))
-          .put("mediumvioletred", new Color(0xC71585))
-          .put("midnightblue", new Color(0x191970))
-          .put("mintcream", new Color(0xF5FFFA))
-          .put("mistyrose", new Color(0xFFE4E1))
-          .put("moccasin", new Color(0xFFE4B5))
-          .put("navajowhite", new Color(0xFFDEAD))
-          .put("oldlace", new Color(0xFDF5E6))
-          .put("olivedrab", new Color(0x6B8E23))
-          .put("orangered", new Color(0xFF4500))
-          .put("orchid", new Color(0xDA70D6))
-          .put("palegoldenrod", new Color(0xEEE8AA))
-          .put("palegreen", new Color(0x98FB98))
-          .put("paleturquoise", new Color(0xAFEEEE))
-          .put("palevioletred", new Color(0xDB7093))
-          .put("papayawhip", new Color(0xFFEFD5))
-          .put("peachpuff", new Color(0xFFDAB9))
-          .put("peru", new Color(0xCD853F))
-          .put("pink", new Color(0xFFC0CB))
-          .put("plum", new Color(0xDDA0DD))
-          .put("powderblue", new Color(0xB0E0E6))
-          .put("rosybrown", new Color(0xBC8F8F))
-          .put("royalblue", new Color(0x4169E1))
-          .put("saddlebrown", new Color(0x8B4513))
-          .put("salmon", new Color(0xFA8072))
-          .put("sandybrown", new Color(0xF4A460))
-          .put("seagreen", new Color(0x2E8B57))
-          .put("seashell", new Color(0xFFF5EE))
-          .put("sienna", new Color(0xA0522D))
-          .put("skyblue", new Color(0x87CEEB))
-          .put("slateblue", new Color(0x6A5ACD))
-          .put("slategray", new Color(0x708090))
-          .put("slategrey", new Color(0x708090))
-          .put("snow", new Color(0xFFFAFA))
-          .put("springgreen", new Color(0x00FF7F))
-          .put("steelblue", new Color(0x4682B4))
-          .put("tan", new Color(0xD2B48C))
-          .put("thistle", new Color(0xD8BFD8))
-          .put("tomato", new Color(0xFF6347))
-          .put("turquoise", new Color(0x40E0D0))
-          .put("violet", new Color(0xEE82EE))
-          .put("wheat", new Color(0xF5DEB3))
-          .put("whitesmoke", new Color(0xF5F5F5))
-          .put("yellowgreen", new Color(0x9ACD32))
+          .put("aliceblue", 0xF0F8FF)
+          .put("antiquewhite", 0xFAEBD7)
+          .put("aquamarine", 0x7FFFD4)
+          .put("azure", 0xF0FFFF)
+          .put("beige", 0xF5F5DC)
+          .put("bisque", 0xFFE4C4)
+          .put("blanchedalmond", 0xFFEBCD)
+          .put("blueviolet", 0x8A2BE2)
+          .put("brown", 0xA52A2A)
+          .put("burlywood", 0xDEB887)
+          .put("cadetblue", 0x5F9EA0)
+          .put("chartreuse", 0x7FFF00)
+          .put("chocolate", 0xD2691E)
+          .put("coral", 0xFF7F50)
+          .put("cornflowerblue", 0x6495ED)
+          .put("cornsilk", 0xFFF8DC)
+          .put("crimson", 0xDC143C)
+          .put("cyan", 0x00FFFF)
+          .put("darkblue", 0x00008B)
+          .put("darkcyan", 0x008B8B)
+          .put("darkgoldenrod", 0xB8860B)
+          .put("darkgray", 0xA9A9A9)
+          .put("darkgreen", 0x006400)
+          .put("darkgrey", 0xA9A9A9)
+          .put("darkkhaki", 0xBDB76B)
+          .put("darkmagenta", 0x8B008B)
+          .put("darkolivegreen", 0x556B2F)
+          .put("darkorange", 0xFF8C00)
+          .put("darkorchid", 0x9932CC)
+          .put("darkred", 0x8B0000)
+          .put("darksalmon", 0xE9967A)
+          .put("darkseagreen", 0x8FBC8F)
+          .put("darkslateblue", 0x483D8B)
+          .put("darkslategray", 0x2F4F4F)
+          .put("darkslategrey", 0x2F4F4F)
+          .put("darkturquoise", 0x00CED1)
+          .put("darkviolet", 0x9400D3)
+          .put("deeppink", 0xFF1493)
+          .put("deepskyblue", 0x00BFFF)
+          .put("dimgray", 0x696969)
+          .put("dimgrey", 0x696969)
+          .put("dodgerblue", 0x1E90FF)
+          .put("firebrick", 0xB22222)
+          .put("floralwhite", 0xFFFAF0)
+          .put("forestgreen", 0x228B22)
+          .put("gainsboro", 0xDCDCDC)
+          .put("ghostwhite", 0xF8F8FF)
+          .put("gold", 0xFFD700)
+          .put("goldenrod", 0xDAA520)
+          .put("greenyellow", 0xADFF2F)
+          .put("grey", 0x808080)
+          .put("honeydew", 0xF0FFF0)
+          .put("hotpink", 0xFF69B4)
+          .put("indianred", 0xCD5C5C)
+          .put("indigo", 0x4B0082)
+          .put("ivory", 0xFFFFF0)
+          .put("khaki", 0xF0E68C)
+          .put("lavender", 0xE6E6FA)
+          .put("lavenderblush", 0xFFF0F5)
+          .put("lawngreen", 0x7CFC00)
+          .put("lemonchiffon", 0xFFFACD)
+          .put("lightblue", 0xADD8E6)
+          .put("lightcoral", 0xF08080)
+          .put("lightcyan", 0xE0FFFF)
+          .put("lightgoldenrodyellow", 0xFAFAD2)
+          .put("lightgray", 0xD3D3D3)
+          .put("lightgreen", 0x90EE90)
+          .put("lightgrey", 0xD3D3D3)
+          .put("lightpink", 0xFFB6C1)
+          .put("lightsalmon", 0xFFA07A)
+          .put("lightseagreen", 0x20B2AA)
+          .put("lightskyblue", 0x87CEFA)
+          .put("lightslategray", 0x778899)
+          .put("lightslategrey", 0x778899)
+          .put("lightsteelblue", 0xB0C4DE)
+          .put("lightyellow", 0xFFFFE0)
+          .put("limegreen", 0x32CD32)
+          .put("linen", 0xFAF0E6)
+          .put("magenta", 0xFF00FF)
+          .put("mediumaquamarine", 0x66CDAA)
+          .put("mediumblue", 0x0000CD)
+          .put("mediumorchid", 0xBA55D3)
+          .put("mediumpurple", 0x9370DB)
+          .put("mediumseagreen", 0x3CB371)
+          .put("mediumslateblue", 0x7B68EE)
+          .put("mediumspringgreen", 0x00FA9A)
+          .put("mediumturquoise", 0x48D1CC)
+          .put("mediumvioletred", 0xC71585)
+          .put("midnightblue", 0x191970)
+          .put("mintcream", 0xF5FFFA)
+          .put("mistyrose", 0xFFE4E1)
+          .put("moccasin", 0xFFE4B5)
+          .put("navajowhite", 0xFFDEAD)
+          .put("oldlace", 0xFDF5E6)
+          .put("olivedrab", 0x6B8E23)
+          .put("orangered", 0xFF4500)
+          .put("orchid", 0xDA70D6)
+          .put("palegoldenrod", 0xEEE8AA)
+          .put("palegreen", 0x98FB98)
+          .put("paleturquoise", 0xAFEEEE)
+          .put("palevioletred", 0xDB7093)
+          .put("papayawhip", 0xFFEFD5)
+          .put("peachpuff", 0xFFDAB9)
+          .put("peru", 0xCD853F)
+          .put("pink", 0xFFC0CB)
+          .put("plum", 0xDDA0DD)
+          .put("powderblue", 0xB0E0E6)
+          .put("rosybrown", 0xBC8F8F)
+          .put("royalblue", 0x4169E1)
+          .put("saddlebrown", 0x8B4513)
+          .put("salmon", 0xFA8072)
+          .put("sandybrown", 0xF4A460)
+          .put("seagreen", 0x2E8B57)
+          .put("seashell", 0xFFF5EE)
+          .put("sienna", 0xA0522D)
+          .put("skyblue", 0x87CEEB)
+          .put("slateblue", 0x6A5ACD)
+          .put("slategray", 0x708090)
+          .put("slategrey", 0x708090)
+          .put("snow", 0xFFFAFA)
+          .put("springgreen", 0x00FF7F)
+          .put("steelblue", 0x4682B4)
+          .put("tan", 0xD2B48C)
+          .put("thistle", 0xD8BFD8)
+          .put("tomato", 0xFF6347)
+          .put("turquoise", 0x40E0D0)
+          .put("violet", 0xEE82EE)
+          .put("wheat", 0xF5DEB3)
+          .put("whitesmoke", 0xF5F5F5)
+          .put("yellowgreen", 0x9ACD32)
           .build();
 
   /** Optional formats that each parser instance can accept. */
   public static enum Format {
     /** #RRGGBB format */
     HEX6 {
-      @Override Color parse(String value) {
-        return (HEX6_PATTERN.matcher(value).matches())
-            ? new Color(Integer.parseInt(value.substring(1), 16)) : null;
+      @Override long parse(String value) {
+        long rgb = parseHexDigits(value, 6);
+        return rgb == NO_MATCH ? NO_MATCH : argb(OPAQUE | (int) rgb);
       }
     },
 
     /** #RGB format */
     HEX3 {
-      @Override Color parse(String value) {
-        return HEX4.parse(value + "F");
+      @Override long parse(String value) {
+        long rgb = parseHexDigits(value, 3);
+        return rgb == NO_MATCH
+            ? NO_MATCH : argb(expandShortHex((int) (rgb << 4 | 0xF)));
       }
     },
 
     /** #RGBA format */
     HEX4 {
-      @Override Color parse(String value) {
-        if (HEX4_PATTERN.matcher(value).matches()) {
-          int r = Integer.parseInt(value.substring(1, 2), 16);
-          int g = Integer.parseInt(value.substring(2, 3), 16);
-          int b = Integer.parseInt(value.substring(3, 4), 16);
-          int a = Integer.parseInt(value.substring(4, 5), 16);
-          return
-              new Color((r << 4) | r, (g << 4) | g, (b << 4) | b, (a << 4) | a);
-        }
-        return null;
+      @Override long parse(String value) {
+        long rgba = parseHexDigits(value, 4);
+        return rgba == NO_MATCH ? NO_MATCH : argb(expandShortHex((int) rgba));
       }
     },
 
     /** #RRGGBBAA format */
     HEX8 {
-      @Override Color parse(String value) {
-        if (HEX8_PATTERN.matcher(value).matches()) {
-          int rgb = Integer.parseInt(value.substring(1, 7), 16);
-          int a = Integer.parseInt(value.substring(7, 9), 16);
-          return new Color(a << 24 | rgb, true);
-        }
-        return null;
+      @Override long parse(String value) {
+        long rgba = parseHexDigits(value, 8);
+        return rgba == NO_MATCH
+            ? NO_MATCH : argb((int) (rgba << 24 | rgba >>> 8));
       }
     },
 
     /** rgb(R, G, B) format (R/G/B = 0-255 or 0-100%) */
     CSS_RGB {
-      @Override Color parse(String value) {
-        // Try to parse with 255-based values...
-        Matcher matcher = CSS_RGB_PATTERN.matcher(value);
-        if (matcher.matches()) {
-          return newColor(matcher, 255);
-        } else {
-          // ... or with percent-based values.
-          matcher = CSS_PERCENT_PATTERN.matcher(value);
-          return matcher.matches() ? newColor(matcher, 100) : null;
-        }
-      }
-
-      /** Creates a new color from a regexp match. */
-      private Color newColor(Matcher matcher, float max) {
-        return new Color(
-            clipRangeAndNormalize(matcher.group(1), max),
-            clipRangeAndNormalize(matcher.group(2), max),
-            clipRangeAndNormalize(matcher.group(3), max));
+      @Override long parse(String value) {
+        return parseRgbFunction(value, false /* hasAlpha */);
       }
     },
 
     /** rgba(R, G, B, A) format (R/G/B = 0-255 or 0-100%, A = 0.0-1.0) */
     CSS_RGBA {
-      @Override Color parse(String value) {
-        // Try to parse with 255-based values...
-        Matcher matcher = CSS_RGBA_PATTERN.matcher(value);
-        if (matcher.matches()) {
-          return newColor(matcher, 255);
-        } else {
-          // ... or with percent-based values.
-          matcher = CSS_RGBA_PERCENT_PATTERN.matcher(value);
-          return matcher.matches() ? newColor(matcher, 100) : null;
-        }
-      }
-
-      /** Creates a new color from a regexp match. */
-      private Color newColor(Matcher matcher, float max) {
-        return new Color(
-            clipRangeAndNormalize(matcher.group(1), max),
-            clipRangeAndNormalize(matcher.group(2), max),
-            clipRangeAndNormalize(matcher.group(3), max),
-            clipRangeAndNormalize(matcher.group(4), 1));
+      @Override long parse(String value) {
+        return parseRgbFunction(value, true /* hasAlpha */);
       }
     },
 
     /** HTML 4.0 color keywords (16 colors) */
     HTML_KEYWORDS {
-      @Override Color parse(String value) {
-        return HTML_COLOR_MAP.get(value.toLowerCase());
+      @Override long parse(String value) {
+        return lookupKeyword(HTML_COLOR_MAP, value);
       }
     },
 
     /** CSS 2.1 color keywords (HTML + "orange") */
     CSS_KEYWORDS {
-      @Override Color parse(String value) {
-        return CSS_COLOR_MAP.get(value.toLowerCase());
+      @Override long parse(String value) {
+        return lookupKeyword(CSS_COLOR_MAP, value);
       }
     },
 
     /** SVG 1.0 color keywords */
     SVG_KEYWORDS {
-      @Override Color parse(String value) {
-        return SVG_COLOR_MAP.get(value.toLowerCase());
+      @Override long parse(String value) {
+        return lookupKeyword(SVG_COLOR_MAP, value);
       }
     };
 
@@ -396,17 +326,10 @@ final class ColorParser {
      * Parses the given color description.
      *
      * @param value the value to parse
-     * @return the parsed color, or null if this format cannot parse the value
+     * @return the parsed ARGB color as an unsigned value, or
+     *     {@link ColorParser#NO_MATCH} if this format cannot parse the value
      */
-    abstract Color parse(String value);
-
-    /**
-     * Parses value as float, clips to [0, max], and returns the
-     * clipped value divided by the maximum value.
-     */
-    private static float clipRangeAndNormalize(String value, float max) {
-      return Math.max(0, Math.min(max, Float.parseFloat(value))) / max;
-    }
+    abstract long parse(String value);
   }
 
   private final Set<Format> formats;
@@ -421,10 +344,10 @@ final class ColorParser {
    * {@linkplain Format#HEX4 hex-4} and {@linkplain Format#HEX8 hex-8}).
    *
    * @param value the value to parse
-   * @return the parsed color
+   * @return the parsed color as a packed ARGB value
    * @throws IllegalArgumentException if the value cannot be parsed
    */
-  public static Color parseAny(String value) {
+  public static int parseAny(String value) {
     return ANY_COLOR_PARSER.parse(value);
   }
 
@@ -444,15 +367,15 @@ final class ColorParser {
    * Parses the given color description.
    *
    * @param value the value to parse
-   * @return the parsed color
+   * @return the parsed color as a packed ARGB value
    * @throws IllegalArgumentException if the value cannot be parsed
    */
-  public Color parse(String value) {
+  public int parse(String value) {
     value = value.trim();
     for (Format format : formats) {
-      Color result = format.parse(value);
-      if (result != null) {
-        return result;
+      long result = format.parse(value);
+      if (result != NO_MATCH) {
+        return (int) result;
       }
     }
     // If we get to this point, we're unable to parse the color.
@@ -460,15 +383,215 @@ final class ColorParser {
         + "any of " + formats + ": " + value);
   }
 
+  /** Widens a packed ARGB color to the unsigned form used by {@link Format}. */
+  private static long argb(int color) {
+    return color & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Parses "#" followed by exactly {@code numberOfDigits} hexadecimal digits.
+   *
+   * @return the digits as a number, or {@link #NO_MATCH}
+   */
+  private static long parseHexDigits(String value, int numberOfDigits) {
+    if (value.length() != numberOfDigits + 1 || value.charAt(0) != '#') {
+      return NO_MATCH;
+    }
+    long result = 0;
+    for (int i = 1; i <= numberOfDigits; i++) {
+      int digit = hexDigit(value.charAt(i));
+      if (digit < 0) {
+        return NO_MATCH;
+      }
+      result = result << 4 | digit;
+    }
+    return result;
+  }
+
+  /** Returns the value of an ASCII hexadecimal digit, or -1. */
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /**
+   * Expands a 16-bit RGBA value, such as 0xC4DF, into the ARGB color it
+   * stands for, such as 0xFFCC44DD.
+   */
+  private static int expandShortHex(int rgba) {
+    int r = (rgba >> 12) & 0xF;
+    int g = (rgba >> 8) & 0xF;
+    int b = (rgba >> 4) & 0xF;
+    int a = rgba & 0xF;
+    return ColorUtil.argb(a << 4 | a, r << 4 | r, g << 4 | g, b << 4 | b);
+  }
+
+  private static long lookupKeyword(
+      ImmutableMap<String, Integer> colorMap, String value) {
+    Integer rgb = colorMap.get(Ascii.toLowerCase(value));
+    return rgb == null ? NO_MATCH : argb(OPAQUE | rgb);
+  }
+
   /**
-   * Formats a hexadecimal color pattern with the given number of digits. For
-   * example, a pattern made from 6 digits matches strings such as "#AB4D9F".
+   * Scans an {@code rgb(r, g, b)} or {@code rgba(r, g, b, a)} function in a
+   * single pass. The color components must either all be integers (0-255) or
+   * all be percentages (0-100%); the alpha component is a number (0-1).
+   * Out-of-range values are clipped.
    *
-   * @param numberOfDigits The number of digits that the pattern should match
-   * @return The requested pattern.
+   * @return the parsed color, or {@link #NO_MATCH}
    */
-  @VisibleForTesting
-  static Pattern formatHexadecimalPattern(int numberOfDigits) {
-    return Pattern.compile(String.format("^#[0-9a-fA-F]{%d}$", numberOfDigits));
+  private static long parseRgbFunction(String value, boolean hasAlpha) {
+    String prefix = hasAlpha ? "rgba(" : "rgb(";
+    int length = value.length();
+    if (!value.startsWith(prefix) || value.charAt(length - 1) != ')') {
+      return NO_MATCH;
+    }
+    // Index of the closing parenthesis; components are scanned up to it.
+    int end = length - 1;
+    int pos = prefix.length();
+    int color = 0;
+    boolean percent = false;
+    int numComponents = hasAlpha ? 4 : 3;
+    for (int i = 0; i < numComponents; i++) {
+      pos = skipWhitespace(value, pos, end);
+      int start = pos;
+      boolean isAlpha = i == 3;
+      pos = scanNumber(value, pos, end);
+      if (pos < 0) {
+        return NO_MATCH;
+      }
+      int numberEnd = pos;
+      if (!isAlpha) {
+        boolean componentPercent = pos < end && value.charAt(pos) == '%';
+        if (i == 0) {
+          percent = componentPercent;
+        } else if (componentPercent != percent) {
+          return NO_MATCH;
+        }
+        if (componentPercent) {
+          pos++;
+        } else if (!isInteger(value, start, numberEnd)) {
+          return NO_MATCH;
+        }
+      }
+      pos = skipWhitespace(value, pos, end);
+      if (i < numComponents - 1) {
+        if (pos == end || value.charAt(pos) != ',') {
+          return NO_MATCH;
+        }
+        pos++;
+      } else if (pos != end) {
+        return NO_MATCH;
+      }
+      float max = isAlpha ? 1 : (percent ? 100 : 255);
+      float normalized = clipRangeAndNormalize(
+          parseNumber(value, start, numberEnd), max);
+      // Same rounding as the float constructors of java.awt.Color.
+      int component = (int) (normalized * 255 + 0.5);
+      color = isAlpha
+          ? component << 24 | color
+          : color << 8 | component;
+    }
+    return argb(hasAlpha ? color : OPAQUE | color);
+  }
+
+  /**
+   * Clips value to [0, max], and returns the clipped value divided by the
+   * maximum value.
+   */
+  private static float clipRangeAndNormalize(float value, float max) {
+    return Math.max(0, Math.min(max, value)) / max;
+  }
+
+  /** Returns whether the character is matched by the regular expression \s. */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f'
+        || c == '\r';
+  }
+
+  private static int skipWhitespace(String value, int pos, int end) {
+    while (pos < end && isWhitespace(value.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Scans a CSS 2 number: an optional sign followed by either digits, or zero
+   * or more digits, a dot and one or more digits.
+   *
+   * @return the index just past the number, or -1 if there is no number at
+   *     {@code pos}
+   */
+  private static int scanNumber(String value, int pos, int end) {
+    if (pos < end && (value.charAt(pos) == '+' || value.charAt(pos) == '-')) {
+      pos++;
+    }
+    int integerStart = pos;
+    while (pos < end && isDigit(value.charAt(pos))) {
+      pos++;
+    }
+    boolean hasIntegerDigits = pos > integerStart;
+    if (pos < end && value.charAt(pos) == '.') {
+      int fractionStart = pos + 1;
+      int fractionEnd = fractionStart;
+      while (fractionEnd < end && isDigit(value.charAt(fractionEnd))) {
+        fractionEnd++;
+      }
+      if (fractionEnd > fractionStart) {
+        return fractionEnd;
+      }
+    }
+    return hasIntegerDigits ? pos : -1;
+  }
+
+  /** Returns whether a number returned by {@link #scanNumber} has no dot. */
+  private static boolean isInteger(String value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (value.charAt(i) == '.') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Converts a number that was recognized by {@link #scanNumber}. Short
+   * numbers are converted without creating any objects.
+   */
+  private static float parseNumber(String value, int start, int end) {
+    int pos = start;
+    boolean negative = false;
+    if (value.charAt(pos) == '+' || value.charAt(pos) == '-') {
+      negative = value.charAt(pos) == '-';
+      pos++;
+    }
+    long digits = 0;
+    int numDigits = 0;
+    int scale = 0;
+    for (; pos < end; pos++) {
+      char c = value.charAt(pos);
+      if (c == '.') {
+        scale = end - pos - 1;
+        continue;
+      }
+      digits = digits * 10 + (c - '0');
+      numDigits++;
+    }
+    if (numDigits > MAX_FAST_DIGITS) {
+      return Float.parseFloat(value.substring(start, end));
+    }
+    float result = (float) (digits / POWERS_OF_TEN[scale]);
+    return negative ? -result : result;
   }
 }
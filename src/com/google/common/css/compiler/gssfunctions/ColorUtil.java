@@ -16,12 +16,14 @@
 
 package com.google.common.css.compiler.gssfunctions;
 
-import java.awt.Color;
-import java.lang.Math;
-
 /**
  * Utility functions to deal with colors.
  *
+ * <p>Colors are represented as packed {@code int} values in ARGB order, as
+ * returned by {@link ColorParser}. The conversions in this class mirror the
+ * ones in {@code java.awt.Color}, so results are identical, but they work on
+ * primitives only and never create color objects.
+ *
  * @author dgajda@google.com (Damian Gajda)
  */
 class ColorUtil {
@@ -35,18 +37,152 @@ class ColorUtil {
   /** Index of Lightness in HSL array. */
   static final int L = 2;
 
-  static float[] toHsb(Color color) {
-    return Color.RGBtoHSB(
-        color.getRed(), color.getGreen(), color.getBlue(), null);
+  /** Opaque black. */
+  static final int BLACK = 0xFF000000;
+  /** Opaque white. */
+  static final int WHITE = 0xFFFFFFFF;
+
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  static int alpha(int color) {
+    return (color >>> 24) & 0xFF;
+  }
+
+  static int red(int color) {
+    return (color >> 16) & 0xFF;
+  }
+
+  static int green(int color) {
+    return (color >> 8) & 0xFF;
   }
 
-  static String formatColor(Color color) {
-    return String.format("#%02X%02X%02X",
-        color.getRed(), color.getGreen(), color.getBlue());
+  static int blue(int color) {
+    return color & 0xFF;
   }
 
-  static Color hsbToColor(float[] inputHsb) {
-    return Color.getHSBColor(inputHsb[H], inputHsb[S], inputHsb[B]);
+  /** Packs the given components, each in range 0-255, into an ARGB color. */
+  static int argb(int alpha, int red, int green, int blue) {
+    return ((alpha & 0xFF) << 24) | ((red & 0xFF) << 16)
+        | ((green & 0xFF) << 8) | (blue & 0xFF);
+  }
+
+  /** Packs the given components, each in range 0-255, into an opaque color. */
+  static int rgb(int red, int green, int blue) {
+    return argb(0xFF, red, green, blue);
+  }
+
+  /**
+   * Returns the HSB components of a color, in the same way as
+   * {@code java.awt.Color#RGBtoHSB}.
+   */
+  static float[] toHsb(int color) {
+    int r = red(color);
+    int g = green(color);
+    int b = blue(color);
+    int cmax = Math.max(Math.max(r, g), b);
+    int cmin = Math.min(Math.min(r, g), b);
+
+    float brightness = cmax / 255.0f;
+    float saturation = cmax != 0 ? ((float) (cmax - cmin)) / cmax : 0;
+    float hue;
+    if (saturation == 0) {
+      hue = 0;
+    } else {
+      float range = cmax - cmin;
+      float redc = (cmax - r) / range;
+      float greenc = (cmax - g) / range;
+      float bluec = (cmax - b) / range;
+      if (r == cmax) {
+        hue = bluec - greenc;
+      } else if (g == cmax) {
+        hue = 2.0f + redc - bluec;
+      } else {
+        hue = 4.0f + greenc - redc;
+      }
+      hue = hue / 6.0f;
+      if (hue < 0) {
+        hue = hue + 1.0f;
+      }
+    }
+    float[] hsb = {hue, saturation, brightness};
+    return hsb;
+  }
+
+  /**
+   * Formats the RGB components of a color as "#RRGGBB", with upper case
+   * digits. The alpha component is ignored.
+   */
+  static String formatColor(int color) {
+    char[] chars = new char[7];
+    chars[0] = '#';
+    for (int i = 6; i > 0; i--) {
+      chars[i] = HEX_DIGITS[color & 0xF];
+      color >>= 4;
+    }
+    return new String(chars);
+  }
+
+  static int hsbToColor(float[] inputHsb) {
+    return hsbToColor(inputHsb[H], inputHsb[S], inputHsb[B]);
+  }
+
+  /**
+   * Returns the opaque color with the given HSB components, in the same way as
+   * {@code java.awt.Color#HSBtoRGB}.
+   */
+  static int hsbToColor(float hue, float saturation, float brightness) {
+    int r = 0;
+    int g = 0;
+    int b = 0;
+    if (saturation == 0) {
+      r = g = b = toComponent(brightness);
+    } else {
+      float h = (hue - (float) Math.floor(hue)) * 6.0f;
+      float f = h - (float) Math.floor(h);
+      float p = brightness * (1.0f - saturation);
+      float q = brightness * (1.0f - saturation * f);
+      float t = brightness * (1.0f - (saturation * (1.0f - f)));
+      switch ((int) h) {
+        case 0:
+          r = toComponent(brightness);
+          g = toComponent(t);
+          b = toComponent(p);
+          break;
+        case 1:
+          r = toComponent(q);
+          g = toComponent(brightness);
+          b = toComponent(p);
+          break;
+        case 2:
+          r = toComponent(p);
+          g = toComponent(brightness);
+          b = toComponent(t);
+          break;
+        case 3:
+          r = toComponent(p);
+          g = toComponent(q);
+          b = toComponent(brightness);
+          break;
+        case 4:
+          r = toComponent(t);
+          g = toComponent(p);
+          b = toComponent(brightness);
+          break;
+        case 5:
+          r = toComponent(brightness);
+          g = toComponent(p);
+          b = toComponent(q);
+          break;
+        default:
+          break;
+      }
+    }
+    // Like java.awt.Color, out-of-range components are not masked.
+    return BLACK | (r << 16) | (g << 8) | b;
+  }
+
+  private static int toComponent(float value) {
+    return (int) (value * 255.0f + 0.5f);
   }
 
   /**
@@ -77,7 +213,7 @@ class ColorUtil {
    * @param color Color to get the HSL values
    * @return array of floats representing the color in HSL color space
    */
-  static float[] toHsl(Color color) {
+  static float[] toHsl(int color) {
     return hsbToHsl(toHsb(color));
   }
 
@@ -107,12 +243,10 @@ class ColorUtil {
    * Get the color from the HSL floats
    *
    * @param inputHsl HSL color
-   * @return Java color
+   * @return packed ARGB color
    */
-  static Color hslToColor(float[] inputHsl) {
-    float[] hsb = hslToHsb(inputHsl);
-
-    return Color.getHSBColor(hsb[H], hsb[S], hsb[B]);
+  static int hslToColor(float[] inputHsl) {
+    return hsbToColor(hslToHsb(inputHsl));
   }
 
   /**
@@ -133,7 +267,7 @@ class ColorUtil {
    * @return whether the given colors are considered contrasting, taking the
    *     leniency margin into account
    */
-  static boolean testContrast(Color color1, Color color2, float margin) {
+  static boolean testContrast(int color1, int color2, float margin) {
     float differenceFraction = 1f - margin;
     return luminanceDiff(color1, color2) > 125 * differenceFraction
         && colorDiff(color1, color2) > 500 * differenceFraction;
@@ -148,7 +282,7 @@ class ColorUtil {
    * @param color2 the second of the two checked colors
    * @return whether the given colors are considered contrasting
    */
-  static boolean testContrast(Color color1, Color color2) {
+  static boolean testContrast(int color1, int color2) {
     return luminanceDiff(color1, color2) > 125
         && colorDiff(color1, color2) > 500;
   }
@@ -158,7 +292,7 @@ class ColorUtil {
    * It is the luminance value equal to the Y component of the YIQ or the YUV
    * color space models.
    */
-  static int luminanceDiff(Color c1, Color c2) {
+  static int luminanceDiff(int c1, int c2) {
     return Math.abs(luminance(c1) - luminance(c2));
   }
 
@@ -167,8 +301,8 @@ class ColorUtil {
    * It is the luminance value equal to the Y component of the YIQ or the YUV
    * color space models.
    */
-  static int luminance(Color color) {
-    return luminance(color.getRed(), color.getGreen(), color.getBlue());
+  static int luminance(int color) {
+    return luminance(red(color), green(color), blue(color));
   }
 
   /**
@@ -184,10 +318,10 @@ class ColorUtil {
    * Calculates the Manhattan distance of two colors in the RGB color space
    * (a value in range 0-(255*3)).
    */
-  static int colorDiff(Color color1, Color color2) {
+  static int colorDiff(int color1, int color2) {
     return colorDiff(
-        color1.getRed(), color1.getGreen(), color1.getBlue(),
-        color2.getRed(), color2.getGreen(), color2.getBlue());
+        red(color1), green(color1), blue(color1),
+        red(color2), green(color2), blue(color2));
   }
 
   /**
@@ -16,9 +16,13 @@
 
 package com.google.common.css.compiler.gssfunctions;
 
+import static com.google.common.css.compiler.gssfunctions.ColorUtil.blue;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.formatColor;
+import static com.google.common.css.compiler.gssfunctions.ColorUtil.green;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.hsbToColor;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.hslToColor;
+import static com.google.common.css.compiler.gssfunctions.ColorUtil.red;
+import static com.google.common.css.compiler.gssfunctions.ColorUtil.rgb;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.testContrast;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.toHsb;
 import static com.google.common.css.compiler.gssfunctions.ColorUtil.toHsl;
@@ -223,14 +227,14 @@ public class GssFunctions {
     @Override
     // TODO(dgajda): Hide it, this function is only visible because
     public String blend(String startColorStr, String endColorStr) {
-      Color midColor = blendHsb(
+      int midColor = blendHsb(
           ColorParser.parseAny(startColorStr),
           ColorParser.parseAny(endColorStr));
       return formatColor(midColor);
     }
   }
 
-  private static Color blendHsb(Color startColor, Color endColor) {
+  private static int blendHsb(int startColor, int endColor) {
 
     float[] startColorHsb = toHsb(startColor);
     float[] endColorHsb = toHsb(endColor);
@@ -244,7 +248,7 @@ public class GssFunctions {
       midHue -= 1;
     }
 
-    return Color.getHSBColor(
+    return hsbToColor(
         midHue,
         (startColorHsb[1] + endColorHsb[1]) / 2,
         (startColorHsb[2] + endColorHsb[2]) / 2);
@@ -267,13 +271,13 @@ public class GssFunctions {
     @Override
     // TODO(dgajda): Hide it, this function is only visible because
     public String blend(String startColorStr, String endColorStr) {
-      Color startColor = ColorParser.parseAny(startColorStr);
-      Color endColor = ColorParser.parseAny(endColorStr);
+      int startColor = ColorParser.parseAny(startColorStr);
+      int endColor = ColorParser.parseAny(endColorStr);
 
-      Color midColor = new Color(
-          (startColor.getRed() + endColor.getRed()) / 2,
-          (startColor.getGreen() + endColor.getGreen()) / 2,
-          (startColor.getBlue() + endColor.getBlue()) / 2);
+      int midColor = rgb(
+          (red(startColor) + red(endColor)) / 2,
+          (green(startColor) + green(endColor)) / 2,
+          (blue(startColor) + blue(endColor)) / 2);
 
       return formatColor(midColor);
     }
@@ -408,8 +412,8 @@ public class GssFunctions {
         return baseColorString;
       }
 
-      Color baseColor = ColorParser.parseAny(baseColorString);
-      Color newColor = addValuesToHsbComponents(baseColor,
+      int baseColor = ColorParser.parseAny(baseColorString);
+      int newColor = addValuesToHsbComponents(baseColor,
                                                 hueToAdd,
                                                 saturationToAdd,
                                                 brightnessToAdd);
@@ -431,6 +435,20 @@ public class GssFunctions {
                                           int hueToAdd,
                                           int saturationToAdd,
                                           int brightnessToAdd) {
+      return new Color(
+          addValuesToHsbComponents(
+              baseColor.getRGB(), hueToAdd, saturationToAdd, brightnessToAdd),
+          true);
+    }
+
+    /**
+     * Like {@link #addValuesToHsbComponents(Color, int, int, int)}, but on a
+     * packed ARGB value, so no {@link Color} needs to be allocated.
+     */
+    int addValuesToHsbComponents(int baseColor,
+                                 int hueToAdd,
+                                 int saturationToAdd,
+                                 int brightnessToAdd) {
 
       float[] hsbValues = toHsb(baseColor);
 
@@ -448,7 +466,7 @@ public class GssFunctions {
       hsbValues[2] = (float) Math.min(1.0, Math.max(0,
           hsbValues[2] + brightnessToAdd / 100.0));
 
-      return Color.getHSBColor(hsbValues[0], hsbValues[1], hsbValues[2]);
+      return hsbToColor(hsbValues);
     }
   }
 
@@ -526,8 +544,8 @@ public class GssFunctions {
         return baseColorString;
       }
 
-      Color baseColor = ColorParser.parseAny(baseColorString);
-      Color newColor = addValuesToHslComponents(baseColor,
+      int baseColor = ColorParser.parseAny(baseColorString);
+      int newColor = addValuesToHslComponents(baseColor,
                                                 hueToAdd,
                                                 saturationToAdd,
                                                 lightnessToAdd);
@@ -545,7 +563,7 @@ public class GssFunctions {
      * @param lightnessToAdd The amount of lightness to add
      * @return The modified color
      */
-    private Color addValuesToHslComponents(Color baseColor,
+    private int addValuesToHslComponents(int baseColor,
                                           int hueToAdd,
                                           int saturationToAdd,
                                           int lightnessToAdd) {
@@ -955,8 +973,8 @@ public class GssFunctions {
           || "transparent".equalsIgnoreCase(foregroundColorStr)) {
         return foregroundColorStr;
       }
-      Color backgroundColor = ColorParser.parseAny(backgroundColorStr);
-      Color foregroundColor = ColorParser.parseAny(foregroundColorStr);
+      int backgroundColor = ColorParser.parseAny(backgroundColorStr);
+      int foregroundColor = ColorParser.parseAny(foregroundColorStr);
 
       float[] backgroundColorHsb = toHsb(backgroundColor);
       float[] foregroundColorHsb = toHsb(foregroundColor);
@@ -980,8 +998,7 @@ public class GssFunctions {
       float mutedBrightness = (foregroundColorHsb[2] + backgroundColorHsb[2]) /
           2;
 
-      Color mutedColor
-          = Color.getHSBColor(mutedHue, mutedSaturation, mutedBrightness);
+      int mutedColor = hsbToColor(mutedHue, mutedSaturation, mutedBrightness);
 
       return formatColor(mutedColor);
     }
@@ -1331,7 +1348,7 @@ public class GssFunctions {
 
     private String formatColorWithAdjustedBrightness (float[] originalHsb,
         float adjustedBrightness) {
-      return formatColor(Color.getHSBColor(originalHsb[0],
+      return formatColor(hsbToColor(originalHsb[0],
           originalHsb[1], adjustedBrightness));
     }
 
@@ -1343,7 +1360,7 @@ public class GssFunctions {
       if ("transparent".equalsIgnoreCase(originalColorStr)) {
         return originalColorStr;
       }
-      Color originalColor = ColorParser.parseAny(originalColorStr);
+      int originalColor = ColorParser.parseAny(originalColorStr);
       float brightnessFloat = Float.parseFloat(brightnessStr) / (float) 100.0;
 
       float[] originalColorHsb = toHsb(originalColor);
@@ -1461,11 +1478,11 @@ public class GssFunctions {
       if ("transparent".equalsIgnoreCase(inputColorStr)) {
         return inputColorStr;
       }
-      Color inputColor = ColorParser.parseAny(inputColorStr);
+      int inputColor = ColorParser.parseAny(inputColorStr);
       float similarity = Float.parseFloat(similarityStr);
 
       float[] distantColor = toHsb(
-          getDistantColor(inputColor, Color.BLACK, Color.WHITE));
+          getDistantColor(inputColor, ColorUtil.BLACK, ColorUtil.WHITE));
 
       float[] startColor = toHsb(inputColor);
       float[] endColor = distantColor;
@@ -1485,8 +1502,7 @@ public class GssFunctions {
       return formatColor(hsbToColor(resultColor));
     }
 
-    private Color getDistantColor(
-        Color color, Color first, Color second) {
+    private int getDistantColor(int color, int first, int second) {
       int firstLuminanceDiff = ColorUtil.luminanceDiff(color, first);
       int secondLuminanceDiff = ColorUtil.luminanceDiff(color, second);
       return firstLuminanceDiff >= secondLuminanceDiff ? first : second;
@@ -1540,21 +1556,20 @@ public class GssFunctions {
     protected CssValueNode makeTranslucent(
         String inputColorStr, String alphaStr,
         @Nullable SourceCodeLocation sourceCodeLocation) {
-      Color inputColor = ColorParser.parseAny(inputColorStr);
+      int inputColor = ColorParser.parseAny(inputColorStr);
       double alpha = Math.min(1.0, Math.max(0, Float.parseFloat(alphaStr)));
-
-      float[] rgb = inputColor.getRGBColorComponents(null);
-      Color outputColor = new Color(rgb[0], rgb[1], rgb[2], (float) alpha);
+      // Same rounding as the float constructors of java.awt.Color.
+      int outputAlpha = (int) ((float) alpha * 255 + 0.5);
 
       List<CssValueNode> argList = ImmutableList.<CssValueNode>of(
           new CssLiteralNode(
-              Integer.toString(outputColor.getRed()), sourceCodeLocation),
+              Integer.toString(red(inputColor)), sourceCodeLocation),
           new CssLiteralNode(
-              Integer.toString(outputColor.getGreen()), sourceCodeLocation),
+              Integer.toString(green(inputColor)), sourceCodeLocation),
           new CssLiteralNode(
-              Integer.toString(outputColor.getBlue()), sourceCodeLocation),
+              Integer.toString(blue(inputColor)), sourceCodeLocation),
           new CssLiteralNode(
-              new DecimalFormat("#.###", US_SYMBOLS).format(outputColor.getAlpha() / 255f),
+              new DecimalFormat("#.###", US_SYMBOLS).format(outputAlpha / 255f),
               sourceCodeLocation));
       CssValueNode argsValue = new CssCompositeValueNode(
           argList, CssCompositeValueNode.Operator.COMMA,
@@ -51,12 +51,12 @@ import java.util.List;
 public class AutoExpandBrowserPrefix extends DefaultTreeVisitor implements CssCompilerPass {
 
   private final MutatingVisitController visitController;
-  private final ImmutableList<BrowserPrefixRule> expansionRules;
+  private final BrowserPrefixRuleIndex expansionRules;
   private boolean inDefMixinBlock;
 
   public AutoExpandBrowserPrefix(MutatingVisitController visitController) {
     this.visitController = visitController;
-    this.expansionRules = BrowserPrefixGenerator.getExpansionRules();
+    this.expansionRules = BrowserPrefixGenerator.getExpansionRuleIndex();
   }
 
   @Override
@@ -79,7 +79,9 @@ public class AutoExpandBrowserPrefix extends DefaultTreeVisitor implements CssCo
       return true;
     }
     ImmutableList.Builder<CssDeclarationNode> expansionNodes = ImmutableList.builder();
-    for (BrowserPrefixRule rule : expansionRules) {
+    // Only the rules indexed under the declaration's property name or one of its values can
+    // match, so the others are not even looked at.
+    for (BrowserPrefixRule rule : expansionRules.getCandidateRules(declaration)) {
       // If the name is present in the rule then it must match the declaration.
       if (rule.getMatchPropertyName() != null
           && !rule.getMatchPropertyName().equals(declaration.getPropertyName().getPropertyName())) {
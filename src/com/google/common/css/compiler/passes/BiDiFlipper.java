@@ -41,7 +41,6 @@ import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 /**
  * Compiler pass that BiDi flips all the flippable nodes.
@@ -155,9 +154,11 @@ public class BiDiFlipper extends DefaultTreeVisitor implements CssCompilerPass {
       ImmutableSet.of("border-color", "border-style", "border-width", "margin", "padding");
 
   /**
-   * Map with the patterns to match URLs against if swap_ltr_rtl_in_url flag is true, and their
-   * replacement string. Only the first occurrence of the pattern is flipped. This would match "ltr"
-   * and "rtl" if they occur as a word inside the path specified by the url. For example, for
+   * Separators that must follow a word in a url for it to be flipped, when the
+   * swap_ltr_rtl_in_url or swap_left_right_in_url flags are true. The word must
+   * also not be preceded by an ASCII letter. Only the first occurrence of a word
+   * is flipped, and "ltr" (or "left") takes precedence over "rtl" (or "right"),
+   * so that for
    *
    * <p>background: url(/foo/rtl/bkg.gif)
    *
@@ -167,47 +168,13 @@ public class BiDiFlipper extends DefaultTreeVisitor implements CssCompilerPass {
    *
    * <p>whereas for
    *
-   * <p>background: url(/foo/bkg-ltr.gif)
-   *
-   * <p>the flipped value would be
-   *
-   * <p>background: url(/foo/bkg-rtl.gif)
-   *
-   * <p>
-   */
-  private static final ImmutableMap<Pattern, String> URL_LTRTL_PATTERN_FOR_FLIPPING =
-      new ImmutableMap.Builder<Pattern, String>()
-          .put(Pattern.compile("(?<![a-zA-Z])([-_\\./]*)ltr([-_\\./]+)"), "$1rtl$2")
-          .put(Pattern.compile("(?<![a-zA-Z])([-_\\./]*)rtl([-_\\./]+)"), "$1ltr$2")
-          .build();
-
-  /**
-   * Map with the patterns to match URLs against if swap_left_right_in_url flag is true, and their
-   * replacement string. Only the first occurrence of the pattern is flipped. This would match
-   * "left" and "right" if they occur as a word inside the path specified by the url. For example,
-   * for
-   *
-   * <p>background: url(/foo/right/bkg.gif)
-   *
-   * <p>the flipped value would be
-   *
-   * <p>background: url(/foo/left/bkg.gif)
-   *
-   * <p>whereas for
-   *
    * <p>background: url(/foo/bkg-left.gif)
    *
    * <p>the flipped value would be
    *
    * <p>background: url(/foo/bkg-right.gif)
-   *
-   * <p>
    */
-  private static final ImmutableMap<Pattern, String> URL_LEFTRIGHT_PATTERN_FOR_FLIPPING =
-      new ImmutableMap.Builder<Pattern, String>()
-          .put(Pattern.compile("(?<![a-zA-Z])([-_\\./]*)left([-_\\./]+)"), "$1right$2")
-          .put(Pattern.compile("(?<![a-zA-Z])([-_\\./]*)right([-_\\./]+)"), "$1left$2")
-          .build();
+  private static final String URL_WORD_SEPARATORS = "-_./";
 
   /** Return if the string is "left" or "center" or "right". */
   private static boolean isLeftOrCenterOrRight(String value) {
@@ -479,15 +446,29 @@ public class BiDiFlipper extends DefaultTreeVisitor implements CssCompilerPass {
 
   /** Performs appropriate replacements needed for BiDi flipping a literal value. */
   public static String flipLiteralValue(String value) {
-    if (EXACT_MATCHING_FOR_FLIPPING.containsKey(value)) {
-      value = EXACT_MATCHING_FOR_FLIPPING.get(value);
+    String exactMatch = EXACT_MATCHING_FOR_FLIPPING.get(value);
+    if (exactMatch != null) {
+      value = exactMatch;
     }
-    for (String s : ENDS_WITH_MATCHING_FOR_FLIPPING.keySet()) {
-      if (value.endsWith(s)) {
-        value = value.replace(s, ENDS_WITH_MATCHING_FOR_FLIPPING.get(s));
-        break;
+    // All the "ends-with" and "contains" keys start with a dash and have no
+    // other dash before their end, so most values are rejected right here and
+    // the candidate keys can be looked up directly instead of being scanned.
+    int lastDash = value.lastIndexOf('-');
+    if (lastDash < 0) {
+      return value;
+    }
+    // The "ends-with" keys all end with "left" or "right".
+    if (value.charAt(value.length() - 1) == 't') {
+      String endsWithKey = value.substring(lastDash);
+      String endsWithReplacement = ENDS_WITH_MATCHING_FOR_FLIPPING.get(endsWithKey);
+      if (endsWithReplacement != null) {
+        value = value.replace(endsWithKey, endsWithReplacement);
+        lastDash = value.lastIndexOf('-');
       }
     }
+    if (value.indexOf('-') == lastDash) {
+      return value;
+    }
     for (String s : CONTAINS_MATCHING_FOR_FLIPPING.keySet()) {
       if (value.contains(s)) {
         value = value.replace(s, CONTAINS_MATCHING_FOR_FLIPPING.get(s));
@@ -544,30 +525,85 @@ public class BiDiFlipper extends DefaultTreeVisitor implements CssCompilerPass {
 
   /**
    * Performs appropriate replacements required for flipping url.
+   *
+   * <p>The url is scanned once, looking for the first flippable occurrence of
+   * each of "ltr", "rtl", "left" and "right" at the same time. A flippable word
+   * is never preceded by a letter nor followed by one, so the "ltr"/"rtl" and
+   * "left"/"right" replacements cannot overlap and can both be applied to the
+   * original string.
    */
   private String flipUrlValue(String value) {
-    if (null == value) {
-      return null;
+    if (null == value || !(shouldSwapLtrRtlInUrl || shouldSwapLeftRightInUrl)) {
+      return value;
     }
-    if (shouldSwapLtrRtlInUrl) {
-      for (Pattern p : URL_LTRTL_PATTERN_FOR_FLIPPING.keySet()) {
-        if (p.matcher(value).find()) {
-          String s = URL_LTRTL_PATTERN_FOR_FLIPPING.get(p);
-          value =  p.matcher(value).replaceFirst(s);
-          break;
+    int ltr = -1;
+    int rtl = -1;
+    int left = -1;
+    int right = -1;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      if (i > 0 && isAsciiLetter(value.charAt(i - 1))) {
+        continue;
+      }
+      char c = value.charAt(i);
+      if (c == 'l') {
+        if (shouldSwapLtrRtlInUrl && ltr < 0 && isUrlWordAt(value, i, "ltr")) {
+          ltr = i;
+        } else if (shouldSwapLeftRightInUrl && left < 0
+            && isUrlWordAt(value, i, "left")) {
+          left = i;
         }
+      } else if (c == 'r') {
+        if (shouldSwapLtrRtlInUrl && rtl < 0 && isUrlWordAt(value, i, "rtl")) {
+          rtl = i;
+        } else if (shouldSwapLeftRightInUrl && right < 0
+            && isUrlWordAt(value, i, "right")) {
+          right = i;
+        }
+      } else {
+        continue;
+      }
+      // Nothing found later can change the outcome once both preferred words
+      // have been found.
+      if ((ltr >= 0 || !shouldSwapLtrRtlInUrl)
+          && (left >= 0 || !shouldSwapLeftRightInUrl)) {
+        break;
       }
     }
-    if (shouldSwapLeftRightInUrl) {
-      for (Pattern p : URL_LEFTRIGHT_PATTERN_FOR_FLIPPING.keySet()) {
-        if (p.matcher(value).find()) {
-          String s = URL_LEFTRIGHT_PATTERN_FOR_FLIPPING.get(p);
-          value = p.matcher(value).replaceFirst(s);
-          break;
-        }
+    int ltrRtl = ltr >= 0 ? ltr : rtl;
+    int leftRight = left >= 0 ? left : right;
+    if (ltrRtl < 0 && leftRight < 0) {
+      return value;
+    }
+    StringBuilder flipped = new StringBuilder(length + 1).append(value);
+    // "ltr" and "rtl" have the same length, so swapping them first keeps the
+    // index of the "left"/"right" occurrence valid.
+    if (ltrRtl >= 0) {
+      flipped.replace(ltrRtl, ltrRtl + 3, ltrRtl == ltr ? "rtl" : "ltr");
+    }
+    if (leftRight >= 0) {
+      if (leftRight == left) {
+        flipped.replace(left, left + 4, "right");
+      } else {
+        flipped.replace(right, right + 5, "left");
       }
     }
-    return value;
+    return flipped.toString();
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  /**
+   * Returns whether {@code word} occurs at {@code index} and is immediately
+   * followed by one of the {@link #URL_WORD_SEPARATORS}.
+   */
+  private static boolean isUrlWordAt(String value, int index, String word) {
+    int end = index + word.length();
+    return end < value.length()
+        && value.startsWith(word, index)
+        && URL_WORD_SEPARATORS.indexOf(value.charAt(end)) >= 0;
   }
 
   /**
@@ -33,11 +33,19 @@ public final class BrowserPrefixGenerator {
 
   private static final ImmutableList<BrowserPrefixRule> EXPANSION_RULES = buildExpansionRules();
 
+  private static final BrowserPrefixRuleIndex EXPANSION_RULE_INDEX =
+      new BrowserPrefixRuleIndex(EXPANSION_RULES);
+
   /** Returns the rules for automatic expansion of mixins. */
   public static ImmutableList<BrowserPrefixRule> getExpansionRules() {
     return EXPANSION_RULES;
   }
 
+  /** Returns the rules for automatic expansion of mixins, indexed for lookup. */
+  static BrowserPrefixRuleIndex getExpansionRuleIndex() {
+    return EXPANSION_RULE_INDEX;
+  }
+
   private static ImmutableList<BrowserPrefixRule> buildExpansionRules() {
     ImmutableList.Builder<BrowserPrefixRule> builder = ImmutableList.builder();
     builder.add(new BrowserPrefixRule.Builder()
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Ordering;
+import com.google.common.css.compiler.ast.CssDeclarationNode;
+import com.google.common.css.compiler.ast.CssFunctionNode;
+import com.google.common.css.compiler.ast.CssValueNode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index over a list of {@link BrowserPrefixRule}s, so that the
+ * AutoExpandBrowserPrefix pass only has to test the rules that can possibly
+ * match a declaration instead of all of them.
+ *
+ * <p>Rules that match on a property name are keyed by that name. Value-only
+ * rules (those without a property name) are kept in a separate bucket, keyed
+ * by the value or function name they match. The candidates for a declaration
+ * are always returned in the order of the original rule list, so the first
+ * matching rule is the same as with a linear scan.
+ */
+final class BrowserPrefixRuleIndex {
+
+  private final ImmutableListMultimap<String, BrowserPrefixRule> rulesByPropertyName;
+  private final ImmutableListMultimap<String, BrowserPrefixRule> valueOnlyRulesByValue;
+  private final Ordering<BrowserPrefixRule> ruleOrder;
+
+  BrowserPrefixRuleIndex(List<BrowserPrefixRule> rules) {
+    ImmutableListMultimap.Builder<String, BrowserPrefixRule> byPropertyName =
+        ImmutableListMultimap.builder();
+    ImmutableListMultimap.Builder<String, BrowserPrefixRule> byValue =
+        ImmutableListMultimap.builder();
+    for (BrowserPrefixRule rule : rules) {
+      if (rule.getMatchPropertyName() != null) {
+        byPropertyName.put(rule.getMatchPropertyName(), rule);
+      } else {
+        byValue.put(rule.getMatchPropertyValue(), rule);
+      }
+    }
+    this.rulesByPropertyName = byPropertyName.build();
+    this.valueOnlyRulesByValue = byValue.build();
+    this.ruleOrder = Ordering.explicit(rules);
+  }
+
+  /**
+   * Returns the rules that may match the given declaration, in their original
+   * order. Rules that are not returned are guaranteed not to match.
+   */
+  List<BrowserPrefixRule> getCandidateRules(CssDeclarationNode declaration) {
+    ImmutableList<BrowserPrefixRule> nameCandidates =
+        rulesByPropertyName.get(declaration.getPropertyName().getPropertyName());
+    if (valueOnlyRulesByValue.isEmpty()) {
+      return nameCandidates;
+    }
+    List<BrowserPrefixRule> candidates = null;
+    for (CssValueNode valueNode : declaration.getPropertyValue().getChildren()) {
+      String key = valueNode instanceof CssFunctionNode
+          ? ((CssFunctionNode) valueNode).getFunctionName()
+          : valueNode.getValue();
+      for (BrowserPrefixRule rule : valueOnlyRulesByValue.get(key)) {
+        if (candidates == null) {
+          candidates = new ArrayList<>(nameCandidates);
+        }
+        if (!candidates.contains(rule)) {
+          candidates.add(rule);
+        }
+      }
+    }
+    return candidates == null ? nameCandidates : ruleOrder.sortedCopy(candidates);
+  }
+}
@@ -0,0 +1,894 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.compiler.ast.CssAttributeSelectorNode;
+import com.google.common.css.compiler.ast.CssBlockNode;
+import com.google.common.css.compiler.ast.CssClassSelectorNode;
+import com.google.common.css.compiler.ast.CssCombinatorNode;
+import com.google.common.css.compiler.ast.CssComponentNode;
+import com.google.common.css.compiler.ast.CssCompositeValueNode;
+import com.google.common.css.compiler.ast.CssConditionalBlockNode;
+import com.google.common.css.compiler.ast.CssConditionalRuleNode;
+import com.google.common.css.compiler.ast.CssDeclarationBlockNode;
+import com.google.common.css.compiler.ast.CssDeclarationNode;
+import com.google.common.css.compiler.ast.CssDefinitionNode;
+import com.google.common.css.compiler.ast.CssFontFaceNode;
+import com.google.common.css.compiler.ast.CssForLoopRuleNode;
+import com.google.common.css.compiler.ast.CssFunctionNode;
+import com.google.common.css.compiler.ast.CssIdSelectorNode;
+import com.google.common.css.compiler.ast.CssImportBlockNode;
+import com.google.common.css.compiler.ast.CssImportRuleNode;
+import com.google.common.css.compiler.ast.CssKeyListNode;
+import com.google.common.css.compiler.ast.CssKeyNode;
+import com.google.common.css.compiler.ast.CssKeyframeRulesetNode;
+import com.google.common.css.compiler.ast.CssKeyframesNode;
+import com.google.common.css.compiler.ast.CssMediaRuleNode;
+import com.google.common.css.compiler.ast.CssMixinDefinitionNode;
+import com.google.common.css.compiler.ast.CssMixinNode;
+import com.google.common.css.compiler.ast.CssNode;
+import com.google.common.css.compiler.ast.CssNodesListNode;
+import com.google.common.css.compiler.ast.CssPageRuleNode;
+import com.google.common.css.compiler.ast.CssPageSelectorNode;
+import com.google.common.css.compiler.ast.CssPropertyValueNode;
+import com.google.common.css.compiler.ast.CssProvideNode;
+import com.google.common.css.compiler.ast.CssPseudoClassNode;
+import com.google.common.css.compiler.ast.CssPseudoElementNode;
+import com.google.common.css.compiler.ast.CssRequireNode;
+import com.google.common.css.compiler.ast.CssRootNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
+import com.google.common.css.compiler.ast.CssSelectorListNode;
+import com.google.common.css.compiler.ast.CssSelectorNode;
+import com.google.common.css.compiler.ast.CssTreeVisitor;
+import com.google.common.css.compiler.ast.CssUnknownAtRuleNode;
+import com.google.common.css.compiler.ast.CssValueNode;
+import com.google.common.css.compiler.ast.VisitorInterests;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A visitor for {@link MultiChunkTemplateCompactPrinter} that forwards each
+ * callback to those of several visitors that accepted all the enclosing nodes.
+ * When some of the visitors return {@code false} from an {@code enter*}
+ * method, only the others get the callbacks for the children of the node and
+ * the matching {@code leave*} call; when all of them do, this visitor returns
+ * {@code false} itself. Like {@link FusedVisitor}, each callback is dispatched
+ * with a direct call and the visitor declares the interests of the visitors it
+ * forwards to, so the visit controller can still skip the subtrees that none of
+ * them is interested in.
+ *
+ * <p>This relies on the visitors returning {@code false} only from
+ * {@code enter*} methods whose result the visit controller uses to skip the
+ * children and the matching {@code leave*} call, which is the case for the
+ * printing visitors. A {@code leave*} call for a node that this visitor did
+ * not accept throws an {@link IllegalStateException}.
+ *
+ * @param <T> type of chunk id objects
+ */
+final class ChunkRoutingVisitor<T> implements VisitorInterests.Declaring {
+
+  private final List<CssTreeVisitor> allVisitors;
+
+  /**
+   * The visitors by chunk, used to only offer a chunk-aware rule to the
+   * visitors of its chunks, or null if every rule has to be offered to all the
+   * visitors.
+   */
+  @Nullable private final Map<T, CssTreeVisitor> visitorsByChunk;
+
+  private final Set<VisitorInterests.Callback> interests;
+
+  /** The visitors that accepted all the nodes being visited. */
+  private List<CssTreeVisitor> active;
+
+  /** The nodes being visited, innermost first. */
+  private final Deque<CssNode> entered = new ArrayDeque<>();
+
+  /** The visitors that were active before each of the nodes being visited. */
+  private final Deque<List<CssTreeVisitor>> enclosing = new ArrayDeque<>();
+
+  /**
+   * The candidates that accepted the node being entered so far, or null if
+   * none of them has rejected it yet.
+   */
+  @Nullable private List<CssTreeVisitor> accepting;
+
+  ChunkRoutingVisitor(
+      List<CssTreeVisitor> allVisitors,
+      @Nullable Map<T, CssTreeVisitor> visitorsByChunk) {
+    this.allVisitors = ImmutableList.copyOf(allVisitors);
+    this.visitorsByChunk = visitorsByChunk;
+    this.active = this.allVisitors;
+    this.interests = EnumSet.noneOf(VisitorInterests.Callback.class);
+    for (CssTreeVisitor visitor : allVisitors) {
+      interests.addAll(VisitorInterests.of(visitor));
+    }
+  }
+
+  /** Returns the callbacks that any of the visitors is interested in. */
+  @Override
+  public Set<VisitorInterests.Callback> getVisitorInterests() {
+    return interests;
+  }
+
+  /**
+   * Returns the active visitors that may accept the ruleset. The template
+   * printing visitor of a chunk rejects the rulesets of other chunks without
+   * side effects, so when there are no other visitors, a ruleset only needs to
+   * be offered to the visitors of the chunks of its selectors.
+   */
+  private List<CssTreeVisitor> getRulesetCandidates(CssRulesetNode ruleset) {
+    if (visitorsByChunk == null || active != allVisitors) {
+      return active;
+    }
+    List<CssTreeVisitor> candidates = new ArrayList<>(1);
+    for (CssSelectorNode selector : ruleset.getSelectors().childIterable()) {
+      CssTreeVisitor visitor = visitorsByChunk.get(selector.getChunk());
+      if (visitor != null && !candidates.contains(visitor)) {
+        candidates.add(visitor);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Returns the active visitors that may accept a chunk-aware rule of the given
+   * chunk, like {@link #getRulesetCandidates}.
+   */
+  private List<CssTreeVisitor> getChunkCandidates(Object chunk) {
+    if (visitorsByChunk == null || active != allVisitors) {
+      return active;
+    }
+    CssTreeVisitor visitor = visitorsByChunk.get(chunk);
+    return visitor == null
+        ? ImmutableList.<CssTreeVisitor>of() : ImmutableList.of(visitor);
+  }
+
+  /** Records whether the candidate at the given index accepted the node. */
+  private void recordResult(
+      List<CssTreeVisitor> candidates, int index, boolean accepted) {
+    if (!accepted && accepting == null) {
+      accepting = new ArrayList<>(candidates.subList(0, index));
+    } else if (accepted && accepting != null) {
+      accepting.add(candidates.get(index));
+    }
+  }
+
+  /**
+   * Makes the candidates that accepted the node the active visitors for its
+   * children, and returns whether there are any.
+   */
+  private boolean enter(CssNode node, List<CssTreeVisitor> candidates) {
+    List<CssTreeVisitor> accepted = accepting == null ? candidates : accepting;
+    accepting = null;
+    if (accepted.isEmpty()) {
+      return false;
+    }
+    entered.push(node);
+    enclosing.push(active);
+    active = accepted;
+    return true;
+  }
+
+  /**
+   * Restores the visitors that were active before the node was entered, and
+   * returns the visitors that accepted it.
+   */
+  private List<CssTreeVisitor> leave(CssNode node) {
+    Preconditions.checkState(entered.peek() == node,
+        "Leaving a node that was not entered or whose children were skipped");
+    entered.pop();
+    List<CssTreeVisitor> accepted = active;
+    active = enclosing.pop();
+    return accepted;
+  }
+
+  @Override
+  public boolean enterTree(CssRootNode root) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterTree(root));
+    }
+    return enter(root, candidates);
+  }
+
+  @Override
+  public void leaveTree(CssRootNode root) {
+    for (CssTreeVisitor visitor : leave(root)) {
+      visitor.leaveTree(root);
+    }
+  }
+
+  @Override
+  public boolean enterImportBlock(CssImportBlockNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterImportBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveImportBlock(CssImportBlockNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveImportBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterBlock(CssBlockNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveBlock(CssBlockNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterConditionalBlock(CssConditionalBlockNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterConditionalBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveConditionalBlock(CssConditionalBlockNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveConditionalBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterDeclarationBlock(CssDeclarationBlockNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterDeclarationBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveDeclarationBlock(CssDeclarationBlockNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveDeclarationBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    List<CssTreeVisitor> candidates = getRulesetCandidates(ruleset);
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterRuleset(ruleset));
+    }
+    return enter(ruleset, candidates);
+  }
+
+  @Override
+  public void leaveRuleset(CssRulesetNode ruleset) {
+    for (CssTreeVisitor visitor : leave(ruleset)) {
+      visitor.leaveRuleset(ruleset);
+    }
+  }
+
+  @Override
+  public boolean enterSelectorBlock(CssSelectorListNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterSelectorBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveSelectorBlock(CssSelectorListNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveSelectorBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterDeclaration(CssDeclarationNode declaration) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterDeclaration(declaration));
+    }
+    return enter(declaration, candidates);
+  }
+
+  @Override
+  public void leaveDeclaration(CssDeclarationNode declaration) {
+    for (CssTreeVisitor visitor : leave(declaration)) {
+      visitor.leaveDeclaration(declaration);
+    }
+  }
+
+  @Override
+  public boolean enterSelector(CssSelectorNode selector) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterSelector(selector));
+    }
+    return enter(selector, candidates);
+  }
+
+  @Override
+  public void leaveSelector(CssSelectorNode selector) {
+    for (CssTreeVisitor visitor : leave(selector)) {
+      visitor.leaveSelector(selector);
+    }
+  }
+
+  @Override
+  public boolean enterPropertyValue(CssPropertyValueNode propertyValue) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterPropertyValue(propertyValue));
+    }
+    return enter(propertyValue, candidates);
+  }
+
+  @Override
+  public void leavePropertyValue(CssPropertyValueNode propertyValue) {
+    for (CssTreeVisitor visitor : leave(propertyValue)) {
+      visitor.leavePropertyValue(propertyValue);
+    }
+  }
+
+  @Override
+  public boolean enterCompositeValueNode(CssCompositeValueNode value) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterCompositeValueNode(value));
+    }
+    return enter(value, candidates);
+  }
+
+  @Override
+  public void leaveCompositeValueNode(CssCompositeValueNode value) {
+    for (CssTreeVisitor visitor : leave(value)) {
+      visitor.leaveCompositeValueNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterValueNode(CssValueNode value) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterValueNode(value));
+    }
+    return enter(value, candidates);
+  }
+
+  @Override
+  public void leaveValueNode(CssValueNode value) {
+    for (CssTreeVisitor visitor : leave(value)) {
+      visitor.leaveValueNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterCompositeValueNodeOperator(CssCompositeValueNode parent) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(
+          candidates, i, visitor.enterCompositeValueNodeOperator(parent));
+    }
+    return enter(parent, candidates);
+  }
+
+  @Override
+  public void leaveCompositeValueNodeOperator(CssCompositeValueNode parent) {
+    for (CssTreeVisitor visitor : leave(parent)) {
+      visitor.leaveCompositeValueNodeOperator(parent);
+    }
+  }
+
+  @Override
+  public boolean enterFunctionNode(CssFunctionNode value) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterFunctionNode(value));
+    }
+    return enter(value, candidates);
+  }
+
+  @Override
+  public void leaveFunctionNode(CssFunctionNode value) {
+    for (CssTreeVisitor visitor : leave(value)) {
+      visitor.leaveFunctionNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterArgumentNode(CssValueNode value) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterArgumentNode(value));
+    }
+    return enter(value, candidates);
+  }
+
+  @Override
+  public void leaveArgumentNode(CssValueNode value) {
+    for (CssTreeVisitor visitor : leave(value)) {
+      visitor.leaveArgumentNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterCombinator(CssCombinatorNode combinator) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterCombinator(combinator));
+    }
+    return enter(combinator, candidates);
+  }
+
+  @Override
+  public void leaveCombinator(CssCombinatorNode combinator) {
+    for (CssTreeVisitor visitor : leave(combinator)) {
+      visitor.leaveCombinator(combinator);
+    }
+  }
+
+  @Override
+  public boolean enterConditionalRule(CssConditionalRuleNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterConditionalRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveConditionalRule(CssConditionalRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveConditionalRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterImportRule(CssImportRuleNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterImportRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveImportRule(CssImportRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveImportRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterMediaRule(CssMediaRuleNode node) {
+    List<CssTreeVisitor> candidates = getChunkCandidates(node.getChunk());
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterMediaRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveMediaRule(CssMediaRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveMediaRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterDefinition(CssDefinitionNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterDefinition(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveDefinition(CssDefinitionNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveDefinition(node);
+    }
+  }
+
+  @Override
+  public boolean enterUnknownAtRule(CssUnknownAtRuleNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterUnknownAtRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveUnknownAtRule(CssUnknownAtRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveUnknownAtRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterMediaTypeListDelimiter(
+      CssNodesListNode<? extends CssNode> node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterMediaTypeListDelimiter(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveMediaTypeListDelimiter(
+      CssNodesListNode<? extends CssNode> node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveMediaTypeListDelimiter(node);
+    }
+  }
+
+  @Override
+  public boolean enterComponent(CssComponentNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterComponent(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveComponent(CssComponentNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveComponent(node);
+    }
+  }
+
+  @Override
+  public boolean enterKeyframesRule(CssKeyframesNode node) {
+    List<CssTreeVisitor> candidates = getChunkCandidates(node.getChunk());
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterKeyframesRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveKeyframesRule(CssKeyframesNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveKeyframesRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterKey(CssKeyNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterKey(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveKey(CssKeyNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveKey(node);
+    }
+  }
+
+  @Override
+  public boolean enterKeyBlock(CssKeyListNode block) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterKeyBlock(block));
+    }
+    return enter(block, candidates);
+  }
+
+  @Override
+  public void leaveKeyBlock(CssKeyListNode block) {
+    for (CssTreeVisitor visitor : leave(block)) {
+      visitor.leaveKeyBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterKeyframeRuleset(CssKeyframeRulesetNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterKeyframeRuleset(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveKeyframeRuleset(CssKeyframeRulesetNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveKeyframeRuleset(node);
+    }
+  }
+
+  @Override
+  public boolean enterMixinDefinition(CssMixinDefinitionNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterMixinDefinition(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveMixinDefinition(CssMixinDefinitionNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveMixinDefinition(node);
+    }
+  }
+
+  @Override
+  public boolean enterMixin(CssMixinNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterMixin(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveMixin(CssMixinNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveMixin(node);
+    }
+  }
+
+  @Override
+  public boolean enterPageRule(CssPageRuleNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterPageRule(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leavePageRule(CssPageRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leavePageRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterPageSelector(CssPageSelectorNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterPageSelector(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leavePageSelector(CssPageSelectorNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leavePageSelector(node);
+    }
+  }
+
+  @Override
+  public boolean enterFontFace(CssFontFaceNode node) {
+    List<CssTreeVisitor> candidates = getChunkCandidates(node.getChunk());
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterFontFace(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveFontFace(CssFontFaceNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveFontFace(node);
+    }
+  }
+
+  @Override
+  public boolean enterAttributeSelector(
+      CssAttributeSelectorNode attributeSelector) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(
+          candidates, i, visitor.enterAttributeSelector(attributeSelector));
+    }
+    return enter(attributeSelector, candidates);
+  }
+
+  @Override
+  public void leaveAttributeSelector(
+      CssAttributeSelectorNode attributeSelector) {
+    for (CssTreeVisitor visitor : leave(attributeSelector)) {
+      visitor.leaveAttributeSelector(attributeSelector);
+    }
+  }
+
+  @Override
+  public boolean enterClassSelector(CssClassSelectorNode classSelector) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterClassSelector(classSelector));
+    }
+    return enter(classSelector, candidates);
+  }
+
+  @Override
+  public void leaveClassSelector(CssClassSelectorNode classSelector) {
+    for (CssTreeVisitor visitor : leave(classSelector)) {
+      visitor.leaveClassSelector(classSelector);
+    }
+  }
+
+  @Override
+  public boolean enterIdSelector(CssIdSelectorNode idSelector) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterIdSelector(idSelector));
+    }
+    return enter(idSelector, candidates);
+  }
+
+  @Override
+  public void leaveIdSelector(CssIdSelectorNode idSelector) {
+    for (CssTreeVisitor visitor : leave(idSelector)) {
+      visitor.leaveIdSelector(idSelector);
+    }
+  }
+
+  @Override
+  public boolean enterPseudoClass(CssPseudoClassNode pseudoClass) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterPseudoClass(pseudoClass));
+    }
+    return enter(pseudoClass, candidates);
+  }
+
+  @Override
+  public void leavePseudoClass(CssPseudoClassNode pseudoClass) {
+    for (CssTreeVisitor visitor : leave(pseudoClass)) {
+      visitor.leavePseudoClass(pseudoClass);
+    }
+  }
+
+  @Override
+  public boolean enterPseudoElement(CssPseudoElementNode pseudoElement) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterPseudoElement(pseudoElement));
+    }
+    return enter(pseudoElement, candidates);
+  }
+
+  @Override
+  public void leavePseudoElement(CssPseudoElementNode pseudoElement) {
+    for (CssTreeVisitor visitor : leave(pseudoElement)) {
+      visitor.leavePseudoElement(pseudoElement);
+    }
+  }
+
+  @Override
+  public boolean enterProvideNode(CssProvideNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterProvideNode(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveProvideNode(CssProvideNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveProvideNode(node);
+    }
+  }
+
+  @Override
+  public boolean enterRequireNode(CssRequireNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterRequireNode(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveRequireNode(CssRequireNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveRequireNode(node);
+    }
+  }
+
+  @Override
+  public boolean enterForLoop(CssForLoopRuleNode node) {
+    List<CssTreeVisitor> candidates = active;
+    for (int i = 0; i < candidates.size(); i++) {
+      CssTreeVisitor visitor = candidates.get(i);
+      recordResult(candidates, i, visitor.enterForLoop(node));
+    }
+    return enter(node, candidates);
+  }
+
+  @Override
+  public void leaveForLoop(CssForLoopRuleNode node) {
+    for (CssTreeVisitor visitor : leave(node)) {
+      visitor.leaveForLoop(node);
+    }
+  }
+}
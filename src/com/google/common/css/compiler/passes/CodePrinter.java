@@ -70,6 +70,14 @@ public abstract class CodePrinter implements CssCompilerPass {
       VisitController visitController, CodeBuffer codeBuffer);
 
   protected final void visit() {
+    visitController.startVisit(createPrintingVisitor(visitController));
+  }
+
+  /**
+   * Returns the visitor that prints into this printer's buffer when driven by the given visit
+   * controller, combined with the visitors for source maps and marked comments.
+   */
+  final CssTreeVisitor createPrintingVisitor(VisitController visitController) {
     List<CssTreeVisitor> visitors = new LinkedList<>();
     /*
      * NOTE(flan): This order is important. We need the SourceMapVisitor to be called first because
@@ -83,7 +91,7 @@ public abstract class CodePrinter implements CssCompilerPass {
       visitors.add(UniformVisitor.Adapters.asVisitor(new CommentPrintingVisitor()));
     }
     visitors.add(createVisitor(visitController, buffer));
-    visitController.startVisit(DelegatingVisitor.from(visitors));
+    return DelegatingVisitor.from(visitors);
   }
 
   // Proxy method for external usage.
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.css.compiler.ast.CssClassSelectorNode;
+import com.google.common.css.compiler.ast.CssCompilerPass;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
+import com.google.common.css.compiler.ast.VisitController;
+
+/**
+ * A compiler pass that counts how often each CSS class name is used in a
+ * selector, so that {@link CssClassRenaming} can be preceded by a call to
+ * {@link com.google.common.css.SubstitutionMap.FrequencyAware#assignByFrequency}
+ * that gives the shortest names to the most frequently used classes.
+ *
+ * <p>The counts are kept in order of first use, so classes that are used
+ * equally often are renamed in the same order as without the counts.
+ */
+public class CollectClassNameFrequencies extends DefaultTreeVisitor
+    implements CssCompilerPass {
+
+  private final VisitController visitController;
+  private final Multiset<String> classNameCounts = LinkedHashMultiset.create();
+
+  public CollectClassNameFrequencies(VisitController visitController) {
+    this.visitController = visitController;
+  }
+
+  @Override
+  public boolean enterClassSelector(CssClassSelectorNode node) {
+    classNameCounts.add(node.getRefinerName());
+    return true;
+  }
+
+  /** Returns the number of selectors that use each class name. */
+  public Multiset<String> getClassNameCounts() {
+    return classNameCounts;
+  }
+
+  @Override
+  public void runPass() {
+    classNameCounts.clear();
+    visitController.startVisit(this);
+  }
+}
@@ -21,23 +21,34 @@ import com.google.common.css.compiler.ast.CssDefinitionNode;
 import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.VisitController;
+import javax.annotation.Nullable;
 
 /**
  * A pass that collects the constant definitions inside the tree.
  *
+ * <p>When the pass is created for a tree, it iterates over the definitions in
+ * the node index of the tree instead of visiting the whole tree.
+ *
  * @author oana@google.com (Oana Florescu)
  */
 public class CollectConstantDefinitions extends DefaultTreeVisitor
     implements CssCompilerPass {
 
+  @Nullable private final CssTree tree;
   private final VisitController visitController;
   private final ConstantDefinitions constantDefinitions;
 
   public CollectConstantDefinitions(CssTree tree) {
-    this(tree.getVisitController());
+    this(tree, tree.getVisitController());
   }
 
   public CollectConstantDefinitions(VisitController visitController) {
+    this(null, visitController);
+  }
+
+  private CollectConstantDefinitions(@Nullable CssTree tree,
+      VisitController visitController) {
+    this.tree = tree;
     this.visitController = visitController;
     this.constantDefinitions = new ConstantDefinitions();
   }
@@ -50,7 +61,13 @@ public class CollectConstantDefinitions extends DefaultTreeVisitor
 
   @Override
   public void runPass() {
-    visitController.startVisit(this);
+    if (tree == null) {
+      visitController.startVisit(this);
+      return;
+    }
+    for (CssDefinitionNode definition : tree.getNodeIndex().getDefinitions()) {
+      enterDefinition(definition);
+    }
   }
 
   public ConstantDefinitions getConstantDefinitions() {
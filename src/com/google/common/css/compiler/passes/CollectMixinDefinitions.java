@@ -17,11 +17,15 @@
 package com.google.common.css.compiler.passes;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.common.css.compiler.ast.CssCompilerPass;
 import com.google.common.css.compiler.ast.CssConstantReferenceNode;
 import com.google.common.css.compiler.ast.CssMixinDefinitionNode;
+import com.google.common.css.compiler.ast.CssNode;
+import com.google.common.css.compiler.ast.CssNodesListNode;
 import com.google.common.css.compiler.ast.CssRootNode;
+import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.CssValueNode;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.ErrorManager;
@@ -32,6 +36,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 /**
  * Compiler pass that collects all mixin definitions and afterwards provides a
  * mapping of mixin definition names to {@link CssMixinDefinitionNode} instances.
@@ -40,6 +46,10 @@ import java.util.Set;
  * exist and that no definition exits that has arguments with the same name
  * exist.
  *
+ * <p>The mixin definitions are removed from the tree. When the pass is created
+ * for a tree, it iterates over the mixin definitions in the node index of the
+ * tree instead of visiting the whole tree.
+ *
  * <p>{@link CreateConstantReferences} has to run before.
  *
  * @author fbenz@google.com (Florian Benz)
@@ -59,12 +69,23 @@ public class CollectMixinDefinitions extends DefaultTreeVisitor
   static final String INVALID_BLOCK_ERROR_MESSAGE =
     "The mixin definition is not placed on the top level";
 
+  @Nullable private final CssTree tree;
   private final MutatingVisitController visitController;
   private final ErrorManager errorManager;
   private final Map<String, CssMixinDefinitionNode> definitions;
 
+  public CollectMixinDefinitions(CssTree tree, ErrorManager errorManager) {
+    this(tree, tree.getMutatingVisitController(), errorManager);
+  }
+
   public CollectMixinDefinitions(MutatingVisitController visitController,
       ErrorManager errorManager) {
+    this(null, visitController, errorManager);
+  }
+
+  private CollectMixinDefinitions(@Nullable CssTree tree,
+      MutatingVisitController visitController, ErrorManager errorManager) {
+    this.tree = tree;
     this.visitController = visitController;
     this.errorManager = errorManager;
     this.definitions = new HashMap<String, CssMixinDefinitionNode>();
@@ -128,6 +149,23 @@ public class CollectMixinDefinitions extends DefaultTreeVisitor
 
   @Override
   public void runPass() {
-    visitController.startVisit(this);
+    if (tree == null) {
+      visitController.startVisit(this);
+      return;
+    }
+    for (CssMixinDefinitionNode node
+        : tree.getNodeIndex().getMixinDefinitions()) {
+      enterMixinDefinition(node);
+      removeFromParent(node);
+    }
+  }
+
+  /** Removes a mixin definition from the block that contains it. */
+  private static void removeFromParent(CssMixinDefinitionNode node) {
+    @SuppressWarnings("unchecked") // Mixin definitions only occur in blocks.
+    CssNodesListNode<CssNode> block =
+        (CssNodesListNode<CssNode>) node.getParent();
+    block.replaceChildAt(
+        block.getChildren().indexOf(node), ImmutableList.<CssNode>of());
   }
 }
@@ -23,12 +23,15 @@ import com.google.common.collect.Maps;
 import com.google.common.css.compiler.ast.CssCompilerPass;
 import com.google.common.css.compiler.ast.CssDefinitionNode;
 import com.google.common.css.compiler.ast.CssMixinDefinitionNode;
+import com.google.common.css.compiler.ast.CssNode;
 import com.google.common.css.compiler.ast.CssProvideNode;
 import com.google.common.css.compiler.ast.CssRequireNode;
+import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.VisitController;
 
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * A compiler pass to help find missing {@code @require} lines for def constant references
@@ -38,8 +41,13 @@ import java.util.Map;
  *
  * NOTE: The maps in this class can only be used within the same set of pass runs.
  *
+ * When the pass is created for a tree, it iterates over the block-level nodes in the node index
+ * of the tree instead of visiting the whole tree. They come in the order of a visit, so both
+ * constructors collect the same maps.
+ *
  */
 public final class CollectProvideNamespaces extends DefaultTreeVisitor implements CssCompilerPass {
+  @Nullable private final CssTree tree;
   private final VisitController visitController;
 
   // Key: filename; Value: provide namespace
@@ -69,7 +77,16 @@ public final class CollectProvideNamespaces extends DefaultTreeVisitor implement
     return defmixinProvideMap;
   }
 
+  public CollectProvideNamespaces(CssTree tree) {
+    this(tree, tree.getVisitController());
+  }
+
   public CollectProvideNamespaces(VisitController visitController) {
+    this(null, visitController);
+  }
+
+  private CollectProvideNamespaces(@Nullable CssTree tree, VisitController visitController) {
+    this.tree = tree;
     this.visitController = visitController;
   }
 
@@ -120,6 +137,20 @@ public final class CollectProvideNamespaces extends DefaultTreeVisitor implement
     filenameRequireMap.clear();
     defProvideMap.clear();
     defmixinProvideMap.clear();
-    visitController.startVisit(this);
+    if (tree == null) {
+      visitController.startVisit(this);
+      return;
+    }
+    for (CssNode node : tree.getNodeIndex().getBlockLevelNodes()) {
+      if (node instanceof CssProvideNode) {
+        enterProvideNode((CssProvideNode) node);
+      } else if (node instanceof CssRequireNode) {
+        enterRequireNode((CssRequireNode) node);
+      } else if (node instanceof CssDefinitionNode) {
+        enterDefinition((CssDefinitionNode) node);
+      } else if (node instanceof CssMixinDefinitionNode) {
+        enterMixinDefinition((CssMixinDefinitionNode) node);
+      }
+    }
   }
 }
@@ -21,8 +21,10 @@ import com.google.common.css.SubstitutionMap;
 import com.google.common.css.compiler.ast.CssClassSelectorNode;
 import com.google.common.css.compiler.ast.CssCompilerPass;
 import com.google.common.css.compiler.ast.CssIdSelectorNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.MutatingVisitController;
+import com.google.common.css.compiler.ast.NodeKind;
 
 /**
  * Compiler pass that does CSS class renaming given a renaming map.
@@ -44,6 +46,12 @@ public class CssClassRenaming extends DefaultTreeVisitor
     this.elementIdMap = elementIdMap;
   }
 
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    return ruleset.mayContain(NodeKind.CLASS_SELECTOR)
+        || ruleset.mayContain(NodeKind.ID_SELECTOR);
+  }
+
   @Override
   public boolean enterClassSelector(CssClassSelectorNode node) {
     if (cssClassRenamingMap == null) {
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.css.compiler.ast.CssCompilerPass;
+import com.google.common.css.compiler.ast.CssTreeVisitor;
+import com.google.common.css.compiler.ast.ErrorManager;
+import com.google.common.css.compiler.ast.GssError;
+import com.google.common.css.compiler.ast.VisitController;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several read-only visitor passes in a single traversal of the tree,
+ * using a {@link FusedVisitor}.
+ *
+ * <p>The errors and warnings of the fused passes are reported in the same
+ * order as if the passes had run one after the other: each pass reports to its
+ * own error manager, obtained from {@link #newErrorManager()} right before the
+ * pass is created, and the reports are forwarded to the real error manager
+ * after the traversal, in the order the error managers were created. For
+ * example:
+ *
+ * <pre>
+ * FusedPasses fused = new FusedPasses(visitController, errorManager);
+ * fused.add(new ValidatePropertyValues(visitController, fused.newErrorManager()));
+ * fused.add(new WarnOnCustomProperty(visitController, fused.newErrorManager()));
+ * fused.runPass();
+ * </pre>
+ *
+ * <p>The passes must satisfy the conditions of {@link FusedVisitor} and their
+ * {@code runPass} methods must do nothing but start a visit of the tree with
+ * themselves as the visitor.
+ */
+public class FusedPasses implements CssCompilerPass {
+
+  private final VisitController visitController;
+  private final ErrorManager errorManager;
+  private final List<CssTreeVisitor> visitors = new ArrayList<>();
+  private final List<DeferredErrorManager> errorManagers = new ArrayList<>();
+
+  public FusedPasses(VisitController visitController,
+      ErrorManager errorManager) {
+    this.visitController = visitController;
+    this.errorManager = errorManager;
+  }
+
+  /**
+   * Returns an error manager for a pass to be fused, whose reports are
+   * forwarded after those of the passes created before.
+   */
+  public ErrorManager newErrorManager() {
+    DeferredErrorManager deferred = new DeferredErrorManager(errorManager);
+    errorManagers.add(deferred);
+    return deferred;
+  }
+
+  /** Adds a pass to be run in the fused traversal. */
+  public <T extends CssTreeVisitor & CssCompilerPass> void add(T pass) {
+    visitors.add(pass);
+  }
+
+  @Override
+  public void runPass() {
+    if (visitors.isEmpty()) {
+      return;
+    }
+    visitController.startVisit(FusedVisitor.from(visitors));
+    for (DeferredErrorManager deferred : errorManagers) {
+      deferred.forward();
+    }
+  }
+
+  /**
+   * An error manager that keeps the errors and warnings reported to it until
+   * they are forwarded to another error manager.
+   */
+  private static final class DeferredErrorManager implements ErrorManager {
+    private final ErrorManager delegate;
+    private final List<GssError> reports = new ArrayList<>();
+    private final List<Boolean> isWarning = new ArrayList<>();
+    private boolean hasErrors = false;
+
+    DeferredErrorManager(ErrorManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void report(GssError error) {
+      reports.add(error);
+      isWarning.add(false);
+      hasErrors = true;
+    }
+
+    @Override
+    public void reportWarning(GssError warning) {
+      reports.add(warning);
+      isWarning.add(true);
+    }
+
+    @Override
+    public void generateReport() {
+      delegate.generateReport();
+    }
+
+    @Override
+    public boolean hasErrors() {
+      return hasErrors || delegate.hasErrors();
+    }
+
+    void forward() {
+      for (int i = 0; i < reports.size(); i++) {
+        if (isWarning.get(i)) {
+          delegate.reportWarning(reports.get(i));
+        } else {
+          delegate.report(reports.get(i));
+        }
+      }
+      reports.clear();
+      isWarning.clear();
+    }
+  }
+}
@@ -0,0 +1,765 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.compiler.ast.CssAttributeSelectorNode;
+import com.google.common.css.compiler.ast.CssBlockNode;
+import com.google.common.css.compiler.ast.CssClassSelectorNode;
+import com.google.common.css.compiler.ast.CssCombinatorNode;
+import com.google.common.css.compiler.ast.CssComponentNode;
+import com.google.common.css.compiler.ast.CssCompositeValueNode;
+import com.google.common.css.compiler.ast.CssConditionalBlockNode;
+import com.google.common.css.compiler.ast.CssConditionalRuleNode;
+import com.google.common.css.compiler.ast.CssDeclarationBlockNode;
+import com.google.common.css.compiler.ast.CssDeclarationNode;
+import com.google.common.css.compiler.ast.CssDefinitionNode;
+import com.google.common.css.compiler.ast.CssFontFaceNode;
+import com.google.common.css.compiler.ast.CssForLoopRuleNode;
+import com.google.common.css.compiler.ast.CssFunctionNode;
+import com.google.common.css.compiler.ast.CssIdSelectorNode;
+import com.google.common.css.compiler.ast.CssImportBlockNode;
+import com.google.common.css.compiler.ast.CssImportRuleNode;
+import com.google.common.css.compiler.ast.CssKeyListNode;
+import com.google.common.css.compiler.ast.CssKeyNode;
+import com.google.common.css.compiler.ast.CssKeyframeRulesetNode;
+import com.google.common.css.compiler.ast.CssKeyframesNode;
+import com.google.common.css.compiler.ast.CssMediaRuleNode;
+import com.google.common.css.compiler.ast.CssMixinDefinitionNode;
+import com.google.common.css.compiler.ast.CssMixinNode;
+import com.google.common.css.compiler.ast.CssNode;
+import com.google.common.css.compiler.ast.CssNodesListNode;
+import com.google.common.css.compiler.ast.CssPageRuleNode;
+import com.google.common.css.compiler.ast.CssPageSelectorNode;
+import com.google.common.css.compiler.ast.CssPropertyValueNode;
+import com.google.common.css.compiler.ast.CssProvideNode;
+import com.google.common.css.compiler.ast.CssPseudoClassNode;
+import com.google.common.css.compiler.ast.CssPseudoElementNode;
+import com.google.common.css.compiler.ast.CssRequireNode;
+import com.google.common.css.compiler.ast.CssRootNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
+import com.google.common.css.compiler.ast.CssSelectorListNode;
+import com.google.common.css.compiler.ast.CssSelectorNode;
+import com.google.common.css.compiler.ast.CssTreeVisitor;
+import com.google.common.css.compiler.ast.CssUnknownAtRuleNode;
+import com.google.common.css.compiler.ast.CssValueNode;
+import com.google.common.css.compiler.ast.VisitorInterests;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A visitor that runs several visitors in a single traversal of the tree.
+ * Like {@link DelegatingVisitor}, all {@code enter*} methods are called in the
+ * order the visitors were given and all {@code leave*} methods are called in
+ * the opposite order, but each callback is dispatched with a direct call
+ * rather than through a reflective proxy, which makes it suitable for fusing
+ * the passes of a compilation.
+ *
+ * <p>Fusing visitors only gives the same result as running them one after the
+ * other if they don't modify the tree and don't depend on each other's
+ * results. They must also agree on which nodes have their children visited: a
+ * fused visitor throws an {@link IllegalStateException} if some of its
+ * visitors accept a node and others reject it. Visitors that accept every
+ * node, like most checking passes, always agree.
+ */
+public class FusedVisitor implements VisitorInterests.Declaring {
+
+  private final CssTreeVisitor[] visitors;
+  private final Set<VisitorInterests.Callback> interests;
+
+  private FusedVisitor(List<CssTreeVisitor> visitors) {
+    this.visitors = visitors.toArray(new CssTreeVisitor[visitors.size()]);
+    this.interests = EnumSet.noneOf(VisitorInterests.Callback.class);
+    for (CssTreeVisitor visitor : visitors) {
+      interests.addAll(VisitorInterests.of(visitor));
+    }
+  }
+
+  /**
+   * Creates a visitor that fuses the given list of visitors. The list must
+   * have at least one element.
+   */
+  public static CssTreeVisitor from(List<? extends CssTreeVisitor> visitors) {
+    Preconditions.checkArgument(visitors.size() >= 1);
+    if (visitors.size() == 1) {
+      return visitors.get(0);
+    }
+    return new FusedVisitor(ImmutableList.<CssTreeVisitor>copyOf(visitors));
+  }
+
+  /** Creates a visitor that fuses the given visitors. */
+  public static CssTreeVisitor from(CssTreeVisitor... visitors) {
+    return from(ImmutableList.copyOf(visitors));
+  }
+
+  /** Returns the callbacks that any of the fused visitors is interested in. */
+  @Override
+  public Set<VisitorInterests.Callback> getVisitorInterests() {
+    return interests;
+  }
+
+  private static void checkAgrees(boolean accepted, boolean otherAccepted) {
+    Preconditions.checkState(accepted == otherAccepted,
+        "Fused visitors disagree on whether to visit the children of a node");
+  }
+
+  @Override
+  public boolean enterTree(CssRootNode root) {
+    boolean accepted = visitors[0].enterTree(root);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterTree(root));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveTree(CssRootNode root) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveTree(root);
+    }
+  }
+
+  @Override
+  public boolean enterImportBlock(CssImportBlockNode block) {
+    boolean accepted = visitors[0].enterImportBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterImportBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveImportBlock(CssImportBlockNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveImportBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterBlock(CssBlockNode block) {
+    boolean accepted = visitors[0].enterBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveBlock(CssBlockNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterConditionalBlock(CssConditionalBlockNode block) {
+    boolean accepted = visitors[0].enterConditionalBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterConditionalBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveConditionalBlock(CssConditionalBlockNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveConditionalBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterDeclarationBlock(CssDeclarationBlockNode block) {
+    boolean accepted = visitors[0].enterDeclarationBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterDeclarationBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveDeclarationBlock(CssDeclarationBlockNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveDeclarationBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    boolean accepted = visitors[0].enterRuleset(ruleset);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterRuleset(ruleset));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveRuleset(CssRulesetNode ruleset) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveRuleset(ruleset);
+    }
+  }
+
+  @Override
+  public boolean enterSelectorBlock(CssSelectorListNode block) {
+    boolean accepted = visitors[0].enterSelectorBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterSelectorBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveSelectorBlock(CssSelectorListNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveSelectorBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterDeclaration(CssDeclarationNode declaration) {
+    boolean accepted = visitors[0].enterDeclaration(declaration);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterDeclaration(declaration));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveDeclaration(CssDeclarationNode declaration) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveDeclaration(declaration);
+    }
+  }
+
+  @Override
+  public boolean enterSelector(CssSelectorNode selector) {
+    boolean accepted = visitors[0].enterSelector(selector);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterSelector(selector));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveSelector(CssSelectorNode selector) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveSelector(selector);
+    }
+  }
+
+  @Override
+  public boolean enterPropertyValue(CssPropertyValueNode propertyValue) {
+    boolean accepted = visitors[0].enterPropertyValue(propertyValue);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterPropertyValue(propertyValue));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leavePropertyValue(CssPropertyValueNode propertyValue) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leavePropertyValue(propertyValue);
+    }
+  }
+
+  @Override
+  public boolean enterCompositeValueNode(CssCompositeValueNode value) {
+    boolean accepted = visitors[0].enterCompositeValueNode(value);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterCompositeValueNode(value));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveCompositeValueNode(CssCompositeValueNode value) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveCompositeValueNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterValueNode(CssValueNode value) {
+    boolean accepted = visitors[0].enterValueNode(value);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterValueNode(value));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveValueNode(CssValueNode value) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveValueNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterCompositeValueNodeOperator(CssCompositeValueNode parent) {
+    boolean accepted = visitors[0].enterCompositeValueNodeOperator(parent);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterCompositeValueNodeOperator(parent));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveCompositeValueNodeOperator(CssCompositeValueNode parent) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveCompositeValueNodeOperator(parent);
+    }
+  }
+
+  @Override
+  public boolean enterFunctionNode(CssFunctionNode value) {
+    boolean accepted = visitors[0].enterFunctionNode(value);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterFunctionNode(value));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveFunctionNode(CssFunctionNode value) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveFunctionNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterArgumentNode(CssValueNode value) {
+    boolean accepted = visitors[0].enterArgumentNode(value);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterArgumentNode(value));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveArgumentNode(CssValueNode value) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveArgumentNode(value);
+    }
+  }
+
+  @Override
+  public boolean enterCombinator(CssCombinatorNode combinator) {
+    boolean accepted = visitors[0].enterCombinator(combinator);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterCombinator(combinator));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveCombinator(CssCombinatorNode combinator) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveCombinator(combinator);
+    }
+  }
+
+  @Override
+  public boolean enterConditionalRule(CssConditionalRuleNode node) {
+    boolean accepted = visitors[0].enterConditionalRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterConditionalRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveConditionalRule(CssConditionalRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveConditionalRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterImportRule(CssImportRuleNode node) {
+    boolean accepted = visitors[0].enterImportRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterImportRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveImportRule(CssImportRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveImportRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterMediaRule(CssMediaRuleNode node) {
+    boolean accepted = visitors[0].enterMediaRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterMediaRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveMediaRule(CssMediaRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveMediaRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterDefinition(CssDefinitionNode node) {
+    boolean accepted = visitors[0].enterDefinition(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterDefinition(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveDefinition(CssDefinitionNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveDefinition(node);
+    }
+  }
+
+  @Override
+  public boolean enterUnknownAtRule(CssUnknownAtRuleNode node) {
+    boolean accepted = visitors[0].enterUnknownAtRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterUnknownAtRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveUnknownAtRule(CssUnknownAtRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveUnknownAtRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterMediaTypeListDelimiter(
+      CssNodesListNode<? extends CssNode> node) {
+    boolean accepted = visitors[0].enterMediaTypeListDelimiter(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterMediaTypeListDelimiter(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveMediaTypeListDelimiter(
+      CssNodesListNode<? extends CssNode> node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveMediaTypeListDelimiter(node);
+    }
+  }
+
+  @Override
+  public boolean enterComponent(CssComponentNode node) {
+    boolean accepted = visitors[0].enterComponent(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterComponent(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveComponent(CssComponentNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveComponent(node);
+    }
+  }
+
+  @Override
+  public boolean enterKeyframesRule(CssKeyframesNode node) {
+    boolean accepted = visitors[0].enterKeyframesRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterKeyframesRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveKeyframesRule(CssKeyframesNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveKeyframesRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterKey(CssKeyNode node) {
+    boolean accepted = visitors[0].enterKey(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterKey(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveKey(CssKeyNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveKey(node);
+    }
+  }
+
+  @Override
+  public boolean enterKeyBlock(CssKeyListNode block) {
+    boolean accepted = visitors[0].enterKeyBlock(block);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterKeyBlock(block));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveKeyBlock(CssKeyListNode block) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveKeyBlock(block);
+    }
+  }
+
+  @Override
+  public boolean enterKeyframeRuleset(CssKeyframeRulesetNode node) {
+    boolean accepted = visitors[0].enterKeyframeRuleset(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterKeyframeRuleset(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveKeyframeRuleset(CssKeyframeRulesetNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveKeyframeRuleset(node);
+    }
+  }
+
+  @Override
+  public boolean enterMixinDefinition(CssMixinDefinitionNode node) {
+    boolean accepted = visitors[0].enterMixinDefinition(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterMixinDefinition(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveMixinDefinition(CssMixinDefinitionNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveMixinDefinition(node);
+    }
+  }
+
+  @Override
+  public boolean enterMixin(CssMixinNode node) {
+    boolean accepted = visitors[0].enterMixin(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterMixin(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveMixin(CssMixinNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveMixin(node);
+    }
+  }
+
+  @Override
+  public boolean enterPageRule(CssPageRuleNode node) {
+    boolean accepted = visitors[0].enterPageRule(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterPageRule(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leavePageRule(CssPageRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leavePageRule(node);
+    }
+  }
+
+  @Override
+  public boolean enterPageSelector(CssPageSelectorNode node) {
+    boolean accepted = visitors[0].enterPageSelector(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterPageSelector(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leavePageSelector(CssPageSelectorNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leavePageSelector(node);
+    }
+  }
+
+  @Override
+  public boolean enterFontFace(CssFontFaceNode node) {
+    boolean accepted = visitors[0].enterFontFace(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterFontFace(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveFontFace(CssFontFaceNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveFontFace(node);
+    }
+  }
+
+  @Override
+  public boolean enterAttributeSelector(
+      CssAttributeSelectorNode attributeSelector) {
+    boolean accepted = visitors[0].enterAttributeSelector(attributeSelector);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterAttributeSelector(attributeSelector));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveAttributeSelector(
+      CssAttributeSelectorNode attributeSelector) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveAttributeSelector(attributeSelector);
+    }
+  }
+
+  @Override
+  public boolean enterClassSelector(CssClassSelectorNode classSelector) {
+    boolean accepted = visitors[0].enterClassSelector(classSelector);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterClassSelector(classSelector));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveClassSelector(CssClassSelectorNode classSelector) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveClassSelector(classSelector);
+    }
+  }
+
+  @Override
+  public boolean enterIdSelector(CssIdSelectorNode idSelector) {
+    boolean accepted = visitors[0].enterIdSelector(idSelector);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterIdSelector(idSelector));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveIdSelector(CssIdSelectorNode idSelector) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveIdSelector(idSelector);
+    }
+  }
+
+  @Override
+  public boolean enterPseudoClass(CssPseudoClassNode pseudoClass) {
+    boolean accepted = visitors[0].enterPseudoClass(pseudoClass);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterPseudoClass(pseudoClass));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leavePseudoClass(CssPseudoClassNode pseudoClass) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leavePseudoClass(pseudoClass);
+    }
+  }
+
+  @Override
+  public boolean enterPseudoElement(CssPseudoElementNode pseudoElement) {
+    boolean accepted = visitors[0].enterPseudoElement(pseudoElement);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterPseudoElement(pseudoElement));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leavePseudoElement(CssPseudoElementNode pseudoElement) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leavePseudoElement(pseudoElement);
+    }
+  }
+
+  @Override
+  public boolean enterProvideNode(CssProvideNode node) {
+    boolean accepted = visitors[0].enterProvideNode(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterProvideNode(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveProvideNode(CssProvideNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveProvideNode(node);
+    }
+  }
+
+  @Override
+  public boolean enterRequireNode(CssRequireNode node) {
+    boolean accepted = visitors[0].enterRequireNode(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterRequireNode(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveRequireNode(CssRequireNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveRequireNode(node);
+    }
+  }
+
+  @Override
+  public boolean enterForLoop(CssForLoopRuleNode node) {
+    boolean accepted = visitors[0].enterForLoop(node);
+    for (int i = 1; i < visitors.length; i++) {
+      checkAgrees(accepted, visitors[i].enterForLoop(node));
+    }
+    return accepted;
+  }
+
+  @Override
+  public void leaveForLoop(CssForLoopRuleNode node) {
+    for (int i = visitors.length - 1; i >= 0; i--) {
+      visitors[i].leaveForLoop(node);
+    }
+  }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.css.compiler.ast.CssCompilerPass;
+import com.google.common.css.compiler.ast.CssDeclarationNode;
+import com.google.common.css.compiler.ast.CssNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
+import com.google.common.css.compiler.ast.CssSelectorNode;
+import com.google.common.css.compiler.ast.CssTree;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
+import com.google.common.css.compiler.ast.MutatingVisitController;
+import com.google.common.css.compiler.ast.Property;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Compiler pass that moves rulesets that are repeated in several chunks into
+ * a chunk that all of them depend on, so that the ruleset is only shipped
+ * once.
+ *
+ * <p>The pass is given the chunk dependency graph, as a map from each chunk to
+ * the chunks it directly depends on, which are always loaded before it. For
+ * each top-level ruleset that is printed identically in two or more chunks,
+ * the target chunk is the nearest chunk that all of those chunks depend on,
+ * or are. The first copy of the ruleset is moved to the target chunk and the
+ * other copies are removed.
+ *
+ * <p>Moving a ruleset to an earlier chunk changes its place in the cascade,
+ * so a ruleset is only hoisted if no other ruleset in the target chunk, in
+ * the chunks it was copied in, or in the chunks between them declares a
+ * property of the same family, such as {@code margin} and {@code margin-top}
+ * or {@code font} and {@code line-height}.
+ * The pass also assumes that the hoisted rulesets do no harm on pages that
+ * load the common dependency without the chunks they were copied in, as is
+ * the case when these chunks are always loaded together; callers should only
+ * include the chunks for which this holds in the dependency graph.
+ *
+ * <p>This pass must run after {@link MapChunkAwareNodesToChunk}. Rulesets
+ * nested in other rules, and rulesets whose selectors are in different
+ * chunks, are never hoisted.
+ *
+ * @param <T> type of chunk id objects
+ */
+public class HoistCommonChunkRulesets<T> extends DefaultTreeVisitor
+    implements CssCompilerPass {
+
+  /**
+   * The shorthands that set properties whose names don't start with their
+   * own, by property, which {@link Property#getShorthands()} doesn't know.
+   */
+  private static final ImmutableSetMultimap<String, String> OTHER_SHORTHANDS =
+      ImmutableSetMultimap.<String, String>builder()
+          .put("line-height", "font")
+          .put("column-width", "columns")
+          .put("column-count", "columns")
+          .put("row-gap", "gap")
+          .put("column-gap", "gap")
+          .put("grid-row-gap", "gap")
+          .put("grid-column-gap", "gap")
+          .put("grid-gap", "gap")
+          .put("top", "inset")
+          .put("right", "inset")
+          .put("bottom", "inset")
+          .put("left", "inset")
+          .put("align-content", "place-content")
+          .put("justify-content", "place-content")
+          .put("align-items", "place-items")
+          .put("justify-items", "place-items")
+          .put("align-self", "place-self")
+          .put("justify-self", "place-self")
+          .build();
+
+  /** The family of the {@code all} shorthand, which sets every property. */
+  private static final String ALL_PROPERTIES = "all";
+
+  private final CssTree tree;
+  private final MutatingVisitController visitController;
+
+  /** The direct dependencies of each chunk, in a deterministic order. */
+  private final ImmutableMap<T, ImmutableSet<T>> chunkDependencies;
+
+  /** The transitive dependencies of each chunk, computed on demand. */
+  private final Map<T, Set<T>> ancestors = Maps.newHashMap();
+
+  private boolean analyzeOnly = false;
+
+  /** The copies to remove from the tree. */
+  private final Set<CssRulesetNode> rulesetsToRemove = Sets.newIdentityHashSet();
+
+  private int hoistedRulesetCount;
+  private int removedRulesetCount;
+  private int savedBytes;
+
+  /**
+   * Creates the pass.
+   *
+   * @param tree the tree, whose chunk-aware nodes have been mapped to chunks
+   * @param chunkDependencies a map from each chunk to the chunks it directly
+   *     depends on
+   */
+  public HoistCommonChunkRulesets(
+      CssTree tree, Map<T, ? extends Iterable<T>> chunkDependencies) {
+    this.tree = tree;
+    this.visitController = tree.getMutatingVisitController();
+    ImmutableMap.Builder<T, ImmutableSet<T>> dependencies = ImmutableMap.builder();
+    for (Map.Entry<T, ? extends Iterable<T>> entry : chunkDependencies.entrySet()) {
+      dependencies.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+    }
+    this.chunkDependencies = dependencies.build();
+  }
+
+  /**
+   * Sets whether the pass only computes the statistics of the hoisting,
+   * without changing the tree.
+   */
+  public void setAnalyzeOnly(boolean analyzeOnly) {
+    this.analyzeOnly = analyzeOnly;
+  }
+
+  /** Returns the number of rulesets that were moved to a common chunk. */
+  public int getHoistedRulesetCount() {
+    return hoistedRulesetCount;
+  }
+
+  /** Returns the number of copies of rulesets that were removed. */
+  public int getRemovedRulesetCount() {
+    return removedRulesetCount;
+  }
+
+  /**
+   * Returns the number of bytes by which the compact output of all chunks
+   * together shrinks.
+   */
+  public int getSavedBytes() {
+    return savedBytes;
+  }
+
+  @Override
+  public void runPass() {
+    hoistedRulesetCount = 0;
+    removedRulesetCount = 0;
+    savedBytes = 0;
+    rulesetsToRemove.clear();
+
+    // The top-level rulesets of a single chunk, grouped by their output.
+    ListMultimap<String, CssRulesetNode> copies =
+        MultimapBuilder.linkedHashKeys().arrayListValues().build();
+    for (CssNode node : tree.getRoot().getBody().childIterable()) {
+      if (node instanceof CssRulesetNode && getChunk((CssRulesetNode) node) != null) {
+        copies.put(CompactPrinter.printCompactly(node), (CssRulesetNode) node);
+      }
+    }
+    if (copies.size() == copies.keySet().size()) {
+      return;
+    }
+    Map<Object, Multiset<String>> declaredFamilies = collectDeclaredPropertyFamilies();
+
+    for (Map.Entry<String, Collection<CssRulesetNode>> entry : copies.asMap().entrySet()) {
+      List<CssRulesetNode> rulesets = (List<CssRulesetNode>) entry.getValue();
+      if (rulesets.size() > 1) {
+        hoist(entry.getKey(), rulesets, declaredFamilies);
+      }
+    }
+
+    if (!analyzeOnly && !rulesetsToRemove.isEmpty()) {
+      visitController.startVisit(this);
+    }
+  }
+
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    if (rulesetsToRemove.contains(ruleset)) {
+      visitController.removeCurrentNode();
+    }
+    return false;
+  }
+
+  private void hoist(
+      String output, List<CssRulesetNode> rulesets,
+      Map<Object, Multiset<String>> declaredFamilies) {
+    Set<T> chunks = new LinkedHashSet<>();
+    for (CssRulesetNode ruleset : rulesets) {
+      chunks.add(getChunk(ruleset));
+    }
+    T target = chunks.size() == 1 ? chunks.iterator().next() : getCommonAncestor(chunks);
+    if (target == null
+        || hasConflictingDeclarations(rulesets, chunks, target, declaredFamilies)) {
+      return;
+    }
+
+    // Keep the copy in the target chunk if there is one, or else the first.
+    CssRulesetNode kept = rulesets.get(0);
+    for (CssRulesetNode ruleset : rulesets) {
+      if (target.equals(getChunk(ruleset))) {
+        kept = ruleset;
+        break;
+      }
+    }
+    if (!target.equals(getChunk(kept))) {
+      hoistedRulesetCount++;
+      // Later rulesets hoisted to the same chunk must not conflict with it.
+      declaredFamilies.get(target).addAll(getDeclaredPropertyFamilies(kept));
+      if (!analyzeOnly) {
+        setChunk(kept, target);
+      }
+    }
+    for (CssRulesetNode ruleset : rulesets) {
+      if (ruleset != kept) {
+        rulesetsToRemove.add(ruleset);
+        removedRulesetCount++;
+        savedBytes += output.length();
+      }
+    }
+  }
+
+  /**
+   * Returns the nearest chunk that all the given chunks depend on or are, or
+   * null if there is none. If there are several, the first in the order of the
+   * dependency graph is returned.
+   */
+  @Nullable
+  private T getCommonAncestor(Set<T> chunks) {
+    Set<T> common = null;
+    for (T chunk : chunks) {
+      Set<T> selfAndAncestors = new LinkedHashSet<>();
+      selfAndAncestors.add(chunk);
+      selfAndAncestors.addAll(getAncestors(chunk));
+      if (common == null) {
+        common = selfAndAncestors;
+      } else {
+        common.retainAll(selfAndAncestors);
+      }
+    }
+    for (T candidate : chunkDependencies.keySet()) {
+      if (!common.contains(candidate)) {
+        continue;
+      }
+      boolean nearest = true;
+      for (T other : common) {
+        if (getAncestors(other).contains(candidate)) {
+          nearest = false;
+          break;
+        }
+      }
+      if (nearest) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private Set<T> getAncestors(T chunk) {
+    Set<T> result = ancestors.get(chunk);
+    if (result == null) {
+      result = new LinkedHashSet<>();
+      Deque<T> pending = new ArrayDeque<>();
+      pending.add(chunk);
+      while (!pending.isEmpty()) {
+        ImmutableSet<T> dependencies = chunkDependencies.get(pending.remove());
+        if (dependencies != null) {
+          for (T dependency : dependencies) {
+            if (result.add(dependency)) {
+              pending.add(dependency);
+            }
+          }
+        }
+      }
+      ancestors.put(chunk, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether moving the copies of a ruleset from the given chunks to
+   * the target could change the cascade, because another ruleset in a chunk
+   * loaded between the target and one of the chunks declares a property of
+   * the same family.
+   */
+  private boolean hasConflictingDeclarations(
+      List<CssRulesetNode> rulesets, Set<T> chunks, T target,
+      Map<Object, Multiset<String>> declaredFamilies) {
+    Set<T> affectedChunks = new LinkedHashSet<>();
+    for (T chunk : chunks) {
+      affectedChunks.add(chunk);
+      for (T ancestor : getAncestors(chunk)) {
+        if (ancestor.equals(target) || getAncestors(ancestor).contains(target)) {
+          affectedChunks.add(ancestor);
+        }
+      }
+    }
+    Multiset<String> families = getDeclaredPropertyFamilies(rulesets.get(0));
+    Multiset<T> copies = HashMultiset.create();
+    for (CssRulesetNode ruleset : rulesets) {
+      copies.add(getChunk(ruleset));
+    }
+    for (T chunk : affectedChunks) {
+      Multiset<String> declared = declaredFamilies.get(chunk);
+      if (declared == null) {
+        continue;
+      }
+      // The all shorthand conflicts with any other declaration.
+      int ownCopies = copies.count(chunk);
+      if (declared.count(ALL_PROPERTIES) > ownCopies * families.count(ALL_PROPERTIES)
+          || (families.contains(ALL_PROPERTIES)
+              && declared.size() > ownCopies * families.size())) {
+        return true;
+      }
+      for (Multiset.Entry<String> family : families.entrySet()) {
+        // Each copy of the ruleset in the chunk accounts for its own families.
+        if (declared.count(family.getElement()) > ownCopies * family.getCount()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Counts the property families declared by the rulesets of each chunk,
+   * including rulesets nested in other rules.
+   */
+  private Map<Object, Multiset<String>> collectDeclaredPropertyFamilies() {
+    final SetMultimap<CssRulesetNode, Object> rulesetChunks = LinkedHashMultimap.create();
+    final Map<Object, Multiset<String>> declaredFamilies = Maps.newHashMap();
+    tree.getVisitController().startVisit(new DefaultTreeVisitor() {
+      @Override
+      public boolean enterRuleset(CssRulesetNode ruleset) {
+        Multiset<String> families = getDeclaredPropertyFamilies(ruleset);
+        for (CssSelectorNode selector : ruleset.getSelectors().childIterable()) {
+          if (selector.getChunk() != null
+              && rulesetChunks.put(ruleset, selector.getChunk())) {
+            Multiset<String> declared = declaredFamilies.get(selector.getChunk());
+            if (declared == null) {
+              declared = HashMultiset.create();
+              declaredFamilies.put(selector.getChunk(), declared);
+            }
+            declared.addAll(families);
+          }
+        }
+        return true;
+      }
+    });
+    for (T chunk : chunkDependencies.keySet()) {
+      if (!declaredFamilies.containsKey(chunk)) {
+        declaredFamilies.put(chunk, HashMultiset.<String>create());
+      }
+    }
+    return declaredFamilies;
+  }
+
+  private static Multiset<String> getDeclaredPropertyFamilies(CssRulesetNode ruleset) {
+    Multiset<String> families = HashMultiset.create();
+    for (CssNode node : ruleset.getDeclarations().childIterable()) {
+      if (node instanceof CssDeclarationNode) {
+        families.addAll(getPropertyFamilies(
+            ((CssDeclarationNode) node).getPropertyName().getPropertyName()));
+      }
+    }
+    return families;
+  }
+
+  /**
+   * Returns the families of a property. Two properties whose declarations
+   * may override each other, such as a shorthand and one of its longhands,
+   * share a family. The families of a property are:
+   * <ul>
+   * <li>its name without vendor prefix up to the first dash, which covers
+   *     {@code transition} and {@code transition-delay} for example;
+   * <li>its shorthands according to {@link Property#getShorthands()};
+   * <li>the shorthands in {@link #OTHER_SHORTHANDS}, which set properties
+   *     whose names don't start with theirs, like {@code font} and
+   *     {@code line-height};
+   * <li>{@link #ALL_PROPERTIES} for the {@code all} shorthand, which sets every
+   *     property.
+   * </ul>
+   */
+  static Set<String> getPropertyFamilies(String propertyName) {
+    if (propertyName.startsWith("--")) {
+      return ImmutableSet.of(propertyName);
+    }
+    int start = 0;
+    if (propertyName.startsWith("-")) {
+      int prefixEnd = propertyName.indexOf('-', 1);
+      start = prefixEnd < 0 ? 0 : prefixEnd + 1;
+    }
+    String unprefixedName = propertyName.substring(start);
+    if (unprefixedName.equals("all")) {
+      return ImmutableSet.of(ALL_PROPERTIES);
+    }
+    int end = unprefixedName.indexOf('-');
+    Set<String> families = new LinkedHashSet<>();
+    families.add(end < 0 ? unprefixedName : unprefixedName.substring(0, end));
+    Property property = Property.byName(propertyName);
+    if (property.isRecognizedProperty()) {
+      families.addAll(property.getShorthands());
+    }
+    families.addAll(OTHER_SHORTHANDS.get(unprefixedName));
+    return families;
+  }
+
+  /**
+   * Returns the chunk of all the selectors of the ruleset, or null if they
+   * are not all in the same chunk of the dependency graph.
+   */
+  @Nullable
+  private T getChunk(CssRulesetNode ruleset) {
+    Object chunk = null;
+    for (CssSelectorNode selector : ruleset.getSelectors().childIterable()) {
+      if (selector.getChunk() == null
+          || (chunk != null && !chunk.equals(selector.getChunk()))) {
+        return null;
+      }
+      chunk = selector.getChunk();
+    }
+    if (chunk == null || !chunkDependencies.containsKey(chunk)) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    T result = (T) chunk;
+    return result;
+  }
+
+  private static void setChunk(CssRulesetNode ruleset, Object chunk) {
+    for (CssSelectorNode selector : ruleset.getSelectors().childIterable()) {
+      for (CssSelectorNode s = selector; s != null;
+          s = s.getCombinator() == null ? null : s.getCombinator().getSelector()) {
+        s.setChunk(chunk);
+      }
+    }
+  }
+}
@@ -35,8 +35,12 @@ import com.google.common.css.compiler.ast.CssRulesetNode;
 import com.google.common.css.compiler.ast.CssSelectorNode;
 import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.CssValueNode;
+import com.google.common.css.compiler.ast.Property;
 import com.google.common.css.compiler.ast.SkippingTreeVisitor;
 import com.google.common.css.compiler.ast.VisitController;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -64,6 +68,8 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
   static final ImmutableSet<String> PROPERTIES_NOT_TO_BE_CHECKED =
       ImmutableSet.of("display", "cursor");
 
+  private static final Object DEFAULT_SCOPE = new Object();
+
   /** The set of rules known to be referenced. */
   private Set<String> referencedRules = null;
 
@@ -110,8 +116,9 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
     // in reverse order, from the last one to the first. We mark as removable
     // those nodes that we are found as overridden already.
     // Collect the already-seen pairs of selectors and property names in this
-    // table, save the CssRulesetNode also.
-    Table<String, String, CssRulesetNode> rules = HashBasedTable.create();
+    // table, save the CssRulesetNode also. There is one table for each scope
+    // of rulesets that can override each other.
+    Map<Object, SeenRulesets> rulesByScope = new HashMap<>();
 
     for (int i = block.numChildren() - 1; i >= 0; i--) {
       if (block.getChildAt(i) instanceof CssRulesetNode) {
@@ -135,6 +142,12 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
           // Make sure the node has only one selector.
           Preconditions.checkArgument(isSkipping() || (ruleset.getSelectors().numChildren() == 1));
 
+          Object scope = getOverrideScope(ruleset);
+          SeenRulesets rules = rulesByScope.get(scope);
+          if (rules == null) {
+            rules = new SeenRulesets();
+            rulesByScope.put(scope, rules);
+          }
           processRuleset(rules, ruleset);
         }
       }
@@ -148,12 +161,21 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
     visitController.startVisit(this);
   }
 
+  /**
+   * Returns the scope of a ruleset that {@link #canModifyRuleset} accepted.
+   * Only rulesets with equal scopes can override each other, so rulesets with
+   * different scopes are processed as if they were in separate trees. By
+   * default all rulesets have the same scope.
+   */
+  Object getOverrideScope(CssRulesetNode ruleset) {
+    return DEFAULT_SCOPE;
+  }
+
   /**
    * Processes the given ruleset, deciding whether it should be kept
    * or removed by looking at the given previous rules.
    */
-  private void processRuleset(
-      Table<String, String, CssRulesetNode> rules, CssRulesetNode ruleset) {
+  private void processRuleset(SeenRulesets rules, CssRulesetNode ruleset) {
     if ((referencedRules != null) && !referencedRules.isEmpty()) {
       // If this rule is not referenced to in the code we remove it.
       if (isSelectorUnreferenced(ruleset.getSelectors().getChildAt(0))) {
@@ -177,11 +199,13 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
     if (PROPERTIES_NOT_TO_BE_CHECKED.contains(propertyName)) {
       return;
     }
+    int propertyOrdinal = propertyNode.getProperty().getOrdinal();
     // If the declaration is star-hacked then we make the star be part of
     // the property name to ensure that we do not consider hacked
     // declarations as overridden by the non-hacked ones.
     if (declaration.hasStarHack()) {
       propertyName = "*" + propertyName;
+      propertyOrdinal = -1;
     }
 
     String selector = PassUtil.printSelector(
@@ -193,7 +217,7 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
       if (isImportantRule(ruleset) && !isImportantRule(previousRuleset)) {
         tree.getRulesetNodesToRemove().addRulesetNode(previousRuleset);
         // Replace the non-important ruleset in the map, keep the important one.
-        rules.put(selector, propertyName, ruleset);
+        rules.put(selector, propertyName, propertyOrdinal, ruleset);
       } else {
         tree.getRulesetNodesToRemove().addRulesetNode(ruleset);
       }
@@ -204,7 +228,7 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
       // declarations that precede it.  However, @alternate rules may be masked
       // by succeeding non-@alternate rules.
     } else {
-      rules.put(selector, propertyName, ruleset);
+      rules.put(selector, propertyName, propertyOrdinal, ruleset);
     }
   }
 
@@ -274,8 +298,7 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
    *
    * @param propertyNode the property node of the rule to check
    * @param selector the printed representation of the selector of the rule
-   * @param rules rulesets occurring after the ruleset to check (represented as
-   *     a map from selector/property pairs to rulesets for easy searching)
+   * @param rules rulesets occurring after the ruleset to check
    * @param ruleset the ruleset to check (assumed to contain one rule)
    * @return whether the given ruleset has an overriding ruleset which uses a
    *     related shorthand property
@@ -283,8 +306,13 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
   private boolean hasOverridingShorthand(
       CssPropertyNode propertyNode,
       String selector,
-      Table<String, String, CssRulesetNode> rules,
+      SeenRulesets rules,
       final CssRulesetNode ruleset) {
+    Property property = propertyNode.getProperty();
+    BitSet seenOrdinals = rules.getPropertyOrdinals(selector);
+    if (seenOrdinals == null || !property.hasAnyShorthand(seenOrdinals)) {
+      return false;
+    }
 
     Supplier<Boolean> rulesetIsImportant = Suppliers.memoize(
         new Supplier<Boolean>() {
@@ -294,14 +322,55 @@ public class MarkRemovableRulesetNodes extends SkippingTreeVisitor
           }
         });
 
-    for (String shorthand : propertyNode.getProperty().getShorthands()) {
-      CssRulesetNode shorthandRuleset = rules.get(selector, shorthand);
-      if ((shorthandRuleset != null)
-          && (!rulesetIsImportant.get() || isImportantRule(shorthandRuleset))) {
+    for (int ordinal = seenOrdinals.nextSetBit(0); ordinal >= 0;
+        ordinal = seenOrdinals.nextSetBit(ordinal + 1)) {
+      if (!property.hasShorthand(ordinal)) {
+        continue;
+      }
+      CssRulesetNode shorthandRuleset =
+          rules.get(selector, Property.byOrdinal(ordinal).getName());
+      if (!rulesetIsImportant.get() || isImportantRule(shorthandRuleset)) {
         return true;
       }
     }
 
     return false;
   }
+
+  /**
+   * The rulesets already seen in a block, indexed by selector and property
+   * name. For each selector, the ordinals of the recognized properties seen
+   * are kept in a bit set, so that overriding shorthands are found with bit
+   * operations instead of a lookup per shorthand.
+   */
+  private static final class SeenRulesets {
+    private final Table<String, String, CssRulesetNode> rules =
+        HashBasedTable.create();
+    private final Map<String, BitSet> propertyOrdinals = new HashMap<>();
+
+    CssRulesetNode get(String selector, String propertyName) {
+      return rules.get(selector, propertyName);
+    }
+
+    BitSet getPropertyOrdinals(String selector) {
+      return propertyOrdinals.get(selector);
+    }
+
+    /**
+     * Records a ruleset. The ordinal is that of the property, or -1 if it is
+     * not a recognized property or the declaration is star-hacked.
+     */
+    void put(String selector, String propertyName, int propertyOrdinal,
+        CssRulesetNode ruleset) {
+      rules.put(selector, propertyName, ruleset);
+      if (propertyOrdinal >= 0) {
+        BitSet ordinals = propertyOrdinals.get(selector);
+        if (ordinals == null) {
+          ordinals = new BitSet();
+          propertyOrdinals.put(selector, ordinals);
+        }
+        ordinals.set(propertyOrdinal);
+      }
+    }
+  }
 }
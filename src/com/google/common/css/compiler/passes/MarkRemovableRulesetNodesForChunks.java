@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.css.compiler.ast.CssRulesetNode;
+import com.google.common.css.compiler.ast.CssSelectorListNode;
+import com.google.common.css.compiler.ast.CssTree;
+
+/**
+ * Compiler pass that marks ruleset nodes that should be removed from the
+ * tree, within the confines of each of several chunks.
+ *
+ * <p>The result is the same as running {@link MarkRemovableRulesetNodesForChunk}
+ * once for each of the chunks, but the tree is only traversed once: the
+ * rulesets of each block are partitioned by the chunk of their selector, as
+ * set by {@link MapChunkAwareNodesToChunk}, and the rulesets of each chunk are
+ * only compared with each other. Processing all the chunks therefore takes
+ * time proportional to the number of rulesets rather than to the number of
+ * rulesets times the number of chunks.
+ *
+ * <p>This pass has the same assumptions as {@link MarkRemovableRulesetNodes}.
+ *
+ * @param <T> type of chunk id objects
+ */
+public class MarkRemovableRulesetNodesForChunks<T>
+    extends MarkRemovableRulesetNodes {
+
+  private final ImmutableSet<T> chunks;
+
+  public MarkRemovableRulesetNodesForChunks(
+      Iterable<T> chunks,
+      CssTree tree,
+      boolean skipping) {
+    super(tree, skipping);
+    this.chunks = ImmutableSet.copyOf(chunks);
+  }
+
+  @Override
+  public boolean canModifyRuleset(CssRulesetNode ruleset) {
+    if (!super.canModifyRuleset(ruleset)) {
+      return false;
+    }
+
+    CssSelectorListNode selectors = ruleset.getSelectors();
+    Preconditions.checkArgument(selectors.numChildren() == 1);
+
+    return chunks.contains(selectors.getChildAt(0).getChunk());
+  }
+
+  @Override
+  Object getOverrideScope(CssRulesetNode ruleset) {
+    return ruleset.getSelectors().getChildAt(0).getChunk();
+  }
+}
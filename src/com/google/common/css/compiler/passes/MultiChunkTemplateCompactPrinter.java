@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.css.compiler.ast.CssCompilerPass;
+import com.google.common.css.compiler.ast.CssTree;
+import com.google.common.css.compiler.ast.CssTreeVisitor;
+import com.google.common.css.compiler.ast.VisitController;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints the templates of several chunks in a single traversal of the tree. The output for each
+ * chunk is the same as that of a {@link TemplateCompactPrinter} for the chunk, but the tree is
+ * walked once instead of once per chunk.
+ *
+ * <p>Each chunk has its own template printing visitor and buffer. A {@link ChunkRoutingVisitor}
+ * forwards every callback to the visitors that are interested in the current node: when the visitor
+ * of a chunk returns {@code false} from an {@code enter*} method, for example for a ruleset none of
+ * whose selectors is in the chunk, it gets no callbacks for the children of that node, just as the
+ * visit controller would skip them in a single-chunk run. A ruleset is therefore only printed by
+ * the visitors of its own chunks. Unless marked comments are preserved, which requires the visitors
+ * of all chunks to see every rule, a chunk-aware rule is not even offered to the visitors of other
+ * chunks, so the cost of printing all chunks is proportional to the size of the tree and of the
+ * output rather than to the size of the tree times the number of chunks.
+ *
+ * @param <T> type of chunk id objects
+ */
+public class MultiChunkTemplateCompactPrinter<T> implements CssCompilerPass {
+
+  private final CssTree tree;
+  private final ImmutableList<T> chunks;
+  private boolean preserveMarkedComments;
+  private ImmutableMap<T, String> compactPrintedStrings = null;
+
+  /**
+   * Creates a template printer for the given chunks.
+   *
+   * @param tree CSS AST to be printed
+   * @param chunks the chunks to print
+   */
+  public MultiChunkTemplateCompactPrinter(CssTree tree, Iterable<T> chunks) {
+    this.tree = tree;
+    this.chunks = ImmutableList.copyOf(chunks);
+  }
+
+  /** @see CodePrinter#setPreserveMarkedComments */
+  public void setPreserveMarkedComments(boolean preserveMarkedComments) {
+    this.preserveMarkedComments = preserveMarkedComments;
+  }
+
+  @Override
+  public void runPass() {
+    VisitController visitController = tree.getVisitController();
+    List<TemplateCompactPrinter<T>> printers = new ArrayList<>(chunks.size());
+    List<CssTreeVisitor> visitors = new ArrayList<>(chunks.size());
+    for (T chunk : chunks) {
+      TemplateCompactPrinter<T> printer = new TemplateCompactPrinter<>(tree, chunk);
+      printer.setPreserveMarkedComments(preserveMarkedComments);
+      printer.resetBuffer();
+      printers.add(printer);
+      visitors.add(printer.createPrintingVisitor(visitController));
+    }
+    if (!visitors.isEmpty()) {
+      Map<T, CssTreeVisitor> visitorsByChunk = null;
+      if (!preserveMarkedComments) {
+        visitorsByChunk = new HashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+          visitorsByChunk.put(chunks.get(i), visitors.get(i));
+        }
+      }
+      visitController.startVisit(new ChunkRoutingVisitor<>(visitors, visitorsByChunk));
+    }
+    ImmutableMap.Builder<T, String> outputs = ImmutableMap.builder();
+    for (int i = 0; i < chunks.size(); i++) {
+      outputs.put(chunks.get(i), printers.get(i).getOutputBuffer());
+    }
+    compactPrintedStrings = outputs.build();
+  }
+
+  /** Returns the printed template of the given chunk. */
+  public String getCompactPrintedString(T chunk) {
+    Preconditions.checkState(compactPrintedStrings != null, "runPass has not been called");
+    Preconditions.checkArgument(
+        compactPrintedStrings.containsKey(chunk), "Unknown chunk: %s", chunk);
+    return compactPrintedStrings.get(chunk);
+  }
+
+  /** Returns the printed templates of all the chunks, in the order they were given. */
+  public Map<T, String> getCompactPrintedStrings() {
+    Preconditions.checkState(compactPrintedStrings != null, "runPass has not been called");
+    return compactPrintedStrings;
+  }
+}
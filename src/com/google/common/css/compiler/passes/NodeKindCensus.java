@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import com.google.common.base.Preconditions;
+import com.google.common.css.compiler.ast.CssAtRuleNode;
+import com.google.common.css.compiler.ast.CssClassSelectorNode;
+import com.google.common.css.compiler.ast.CssClassSelectorNode.ComponentScoping;
+import com.google.common.css.compiler.ast.CssCompilerPass;
+import com.google.common.css.compiler.ast.CssKeyframesNode;
+import com.google.common.css.compiler.ast.CssPseudoClassNode;
+import com.google.common.css.compiler.ast.CssUnknownAtRuleNode;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
+import com.google.common.css.compiler.ast.VisitController;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records which kinds of nodes are present in a freshly parsed tree, so that
+ * passes that only act on nodes of kinds that are absent can be skipped.
+ *
+ * <p>The census is taken once, before any other pass runs. The nodes that the
+ * later passes look for are either created by the parser, like keyframes and
+ * pseudo-classes, or are converted from unknown at-rules of a given name, like
+ * mixins, conditionals, loops and components. None of the passes creates a
+ * node of a kind, or an at-rule of a name, that wasn't present in the parsed
+ * tree, so the census stays valid while the tree is compiled and doesn't need
+ * to be updated.
+ */
+public class NodeKindCensus extends DefaultTreeVisitor
+    implements CssCompilerPass {
+
+  private final VisitController visitController;
+
+  private final Set<String> atRuleNames = new HashSet<>();
+
+  private boolean hasKeyframes = false;
+
+  private boolean hasPseudoClasses = false;
+
+  private boolean hasScopedClassSelectors = false;
+
+  private boolean passWasRun = false;
+
+  public NodeKindCensus(VisitController visitController) {
+    this.visitController = visitController;
+  }
+
+  @Override
+  public boolean enterUnknownAtRule(CssUnknownAtRuleNode node) {
+    atRuleNames.add(node.getName().getValue());
+    return true;
+  }
+
+  @Override
+  public boolean enterKeyframesRule(CssKeyframesNode node) {
+    hasKeyframes = true;
+    return true;
+  }
+
+  @Override
+  public boolean enterPseudoClass(CssPseudoClassNode node) {
+    hasPseudoClasses = true;
+    return true;
+  }
+
+  @Override
+  public boolean enterClassSelector(CssClassSelectorNode node) {
+    if (node.getScoping() != ComponentScoping.DEFAULT) {
+      hasScopedClassSelectors = true;
+    }
+    return true;
+  }
+
+  @Override
+  public void runPass() {
+    visitController.startVisit(this);
+    passWasRun = true;
+  }
+
+  /** Returns whether the tree contains any unknown at-rule. */
+  public boolean hasUnknownAtRules() {
+    Preconditions.checkState(passWasRun);
+    return !atRuleNames.isEmpty();
+  }
+
+  /**
+   * Returns whether the tree contains an unknown at-rule with the canonical
+   * name of any of the given types, such as {@code @if} or {@code @defmixin}.
+   */
+  public boolean hasAtRule(CssAtRuleNode.Type... types) {
+    Preconditions.checkState(passWasRun);
+    for (CssAtRuleNode.Type type : types) {
+      if (atRuleNames.contains(type.getCanonicalName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns whether the tree contains keyframes rules. */
+  public boolean hasKeyframes() {
+    Preconditions.checkState(passWasRun);
+    return hasKeyframes;
+  }
+
+  /** Returns whether the tree contains pseudo-classes. */
+  public boolean hasPseudoClasses() {
+    Preconditions.checkState(passWasRun);
+    return hasPseudoClasses;
+  }
+
+  /**
+   * Returns whether the tree contains class selectors with a {@code %} or
+   * {@code ^} component scoping prefix.
+   */
+  public boolean hasScopedClassSelectors() {
+    Preconditions.checkState(passWasRun);
+    return hasScopedClassSelectors;
+  }
+}
@@ -19,10 +19,13 @@ package com.google.common.css.compiler.passes;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
 import com.google.common.css.JobDescription;
 import com.google.common.css.PrefixingSubstitutionMap;
 import com.google.common.css.RecordingSubstitutionMap;
+import com.google.common.css.RenamingExclusions;
 import com.google.common.css.SubstitutionMap;
+import com.google.common.css.compiler.ast.CssAtRuleNode.Type;
 import com.google.common.css.compiler.ast.CssCompilerPass;
 import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.ErrorManager;
@@ -62,54 +65,100 @@ public class PassRunner {
    * per input file.
    */
   public void runPasses(CssTree cssTree) {
-    new CheckDependencyNodes(cssTree.getMutatingVisitController(),
-        errorManager, job.suppressDependencyCheck).runPass();
-    new CreateStandardAtRuleNodes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new CreateMixins(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new CreateDefinitionNodes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
+    // Find out which kinds of nodes are present, to skip the passes that
+    // would find nothing to do.
+    NodeKindCensus census = new NodeKindCensus(cssTree.getVisitController());
+    census.runPass();
+
+    if (census.hasAtRule(Type.PROVIDE, Type.REQUIRE)) {
+      new CheckDependencyNodes(cssTree.getMutatingVisitController(),
+          errorManager, job.suppressDependencyCheck).runPass();
+    }
+    if (census.hasUnknownAtRules()) {
+      new CreateStandardAtRuleNodes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    boolean hasMixins = census.hasAtRule(Type.DEFMIXIN, Type.MIXIN);
+    if (hasMixins) {
+      new CreateMixins(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    if (census.hasAtRule(Type.DEF)) {
+      new CreateDefinitionNodes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
     new CreateConstantReferences(cssTree.getMutatingVisitController())
         .runPass();
-    new CreateConditionalNodes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new CreateForLoopNodes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new CreateComponentNodes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new ValidatePropertyValues(cssTree.getVisitController(), errorManager).runPass();
-    new WarnOnCustomProperty(cssTree.getVisitController(), errorManager).runPass();
-
-    new HandleUnknownAtRuleNodes(cssTree.getMutatingVisitController(),
-        errorManager, job.allowedAtRules,
-        true /* report */, false /* remove */).runPass();
-    new ProcessKeyframes(cssTree.getMutatingVisitController(),
-        errorManager, job.allowKeyframes || job.allowWebkitKeyframes,
-        job.simplifyCss).runPass();
-    new CreateVendorPrefixedKeyframes(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
-    new EvaluateCompileConstants(cssTree.getMutatingVisitController(),
-        job.compileConstants).runPass();
-    new UnrollLoops(cssTree.getMutatingVisitController(), errorManager).runPass();
-    new ProcessRefiners(cssTree.getMutatingVisitController(), errorManager,
-        job.simplifyCss).runPass();
+    boolean hasConditionals =
+        census.hasAtRule(Type.IF, Type.ELSEIF, Type.ELSE);
+    if (hasConditionals) {
+      new CreateConditionalNodes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    boolean hasLoops = census.hasAtRule(Type.FOR);
+    if (hasLoops) {
+      new CreateForLoopNodes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    boolean hasComponents =
+        census.hasAtRule(Type.COMPONENT, Type.ABSTRACT_COMPONENT);
+    if (hasComponents) {
+      new CreateComponentNodes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    FusedPasses validation =
+        new FusedPasses(cssTree.getVisitController(), errorManager);
+    validation.add(new ValidatePropertyValues(
+        cssTree.getVisitController(), validation.newErrorManager()));
+    validation.add(new WarnOnCustomProperty(
+        cssTree.getVisitController(), validation.newErrorManager()));
+    validation.runPass();
+
+    if (census.hasUnknownAtRules()) {
+      new HandleUnknownAtRuleNodes(cssTree.getMutatingVisitController(),
+          errorManager, job.allowedAtRules,
+          true /* report */, false /* remove */).runPass();
+    }
+    if (census.hasKeyframes()) {
+      new ProcessKeyframes(cssTree.getMutatingVisitController(),
+          errorManager, job.allowKeyframes || job.allowWebkitKeyframes,
+          job.simplifyCss).runPass();
+      new CreateVendorPrefixedKeyframes(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
+    if (!job.compileConstants.isEmpty()) {
+      new EvaluateCompileConstants(cssTree.getMutatingVisitController(),
+          job.compileConstants).runPass();
+    }
+    if (hasLoops) {
+      new UnrollLoops(cssTree.getMutatingVisitController(), errorManager).runPass();
+    }
+    if (census.hasPseudoClasses()) {
+      new ProcessRefiners(cssTree.getMutatingVisitController(), errorManager,
+          job.simplifyCss).runPass();
+    }
 
     // Eliminate conditional nodes.
-    new EliminateConditionalNodes(
-        cssTree.getMutatingVisitController(),
-        ImmutableSet.copyOf(job.trueConditionNames)).runPass();
+    if (hasConditionals) {
+      new EliminateConditionalNodes(
+          cssTree.getMutatingVisitController(),
+          ImmutableSet.copyOf(job.trueConditionNames)).runPass();
+    }
 
     // Collect mixin definitions and replace mixins
-    CollectMixinDefinitions collectMixinDefinitions =
-        new CollectMixinDefinitions(cssTree.getMutatingVisitController(),
-            errorManager);
-    collectMixinDefinitions.runPass();
-    new ReplaceMixins(cssTree.getMutatingVisitController(), errorManager,
-        collectMixinDefinitions.getDefinitions()).runPass();
-
-    new ProcessComponents<Object>(cssTree.getMutatingVisitController(),
-        errorManager).runPass();
+    if (hasMixins) {
+      CollectMixinDefinitions collectMixinDefinitions =
+          new CollectMixinDefinitions(cssTree, errorManager);
+      collectMixinDefinitions.runPass();
+      new ReplaceMixins(cssTree.getMutatingVisitController(), errorManager,
+          collectMixinDefinitions.getDefinitions()).runPass();
+    }
+
+    // Scoped class selectors are reported as errors outside of components.
+    if (hasComponents || census.hasScopedClassSelectors()) {
+      new ProcessComponents<Object>(cssTree.getMutatingVisitController(),
+          errorManager).runPass();
+    }
     // Collect constant definitions.
     CollectConstantDefinitions collectConstantDefinitionsPass =
         new CollectConstantDefinitions(cssTree);
@@ -172,13 +221,33 @@ public class PassRunner {
           cssTree.getMutatingVisitController()).runPass();
     }
     // Unless all unrecognized properties are allowed, check for unrecognized
-    // properties.
+    // properties. Class name frequencies are collected in the same traversal.
+    FusedPasses finalChecks =
+        new FusedPasses(cssTree.getVisitController(), errorManager);
     if (!job.allowUnrecognizedProperties) {
-      new VerifyRecognizedProperties(job.allowedUnrecognizedProperties,
-          cssTree.getVisitController(), errorManager).runPass();
+      finalChecks.add(new VerifyRecognizedProperties(
+          job.allowedUnrecognizedProperties, cssTree.getVisitController(),
+          finalChecks.newErrorManager()));
     }
+    CollectClassNameFrequencies frequencies = null;
+    if (recordingSubstitutionMap != null && job.renameByFrequency) {
+      frequencies = new CollectClassNameFrequencies(cssTree.getVisitController());
+      finalChecks.add(frequencies);
+    }
+    finalChecks.runPass();
     // Rename class names
     if (recordingSubstitutionMap != null) {
+      if (frequencies != null) {
+        Multiset<String> classNameCounts = frequencies.getClassNameCounts();
+        for (Map.Entry<String, Integer> entry : job.classNameUsageCounts.entrySet()) {
+          // Classes that are not in the stylesheets are not renamed here, so
+          // they must not take short names.
+          if (classNameCounts.contains(entry.getKey())) {
+            classNameCounts.add(entry.getKey(), entry.getValue());
+          }
+        }
+        recordingSubstitutionMap.assignByFrequency(classNameCounts);
+      }
       new CssClassRenaming(
           cssTree.getMutatingVisitController(),
           recordingSubstitutionMap, null).runPass();
@@ -208,7 +277,7 @@ public class PassRunner {
             new RecordingSubstitutionMap.Builder()
                 .withSubstitutionMap(map)
                 .shouldRecordMappingForCodeGeneration(
-                    Predicates.not(Predicates.in(job.excludedClassesFromRenaming)))
+                    Predicates.not(RenamingExclusions.compile(job.excludedClassesFromRenaming)))
                 .build();
         recording.initializeWithMappings(job.inputRenamingMap);
         return recording;
@@ -92,10 +92,11 @@ public class PassUtil {
   }
 
   private static CssTree createTreeWithSelector(CssSelectorNode selector) {
-    // Create tree with only this selector.
+    // Create tree with only a copy of this selector, since adding the selector
+    // itself would take it from its ruleset.
     CssDeclarationBlockNode declarations = new CssDeclarationBlockNode();
     CssRulesetNode rulesetNode = new CssRulesetNode(declarations);
-    rulesetNode.addSelector(selector);
+    rulesetNode.addSelector(selector.deepCopy());
     return createTreeWithRuleset(rulesetNode);
   }
 
@@ -103,7 +104,7 @@ public class PassUtil {
       CssSelectorListNode selectorList) {
     CssDeclarationBlockNode declarations = new CssDeclarationBlockNode();
     CssRulesetNode rulesetNode = new CssRulesetNode(declarations);
-    rulesetNode.setSelectors(selectorList);
+    rulesetNode.setSelectors(selectorList.deepCopy());
     return createTreeWithRuleset(rulesetNode);
   }
 
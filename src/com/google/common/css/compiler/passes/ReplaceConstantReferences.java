@@ -25,12 +25,14 @@ import com.google.common.css.compiler.ast.CssCompositeValueNode;
 import com.google.common.css.compiler.ast.CssConstantReferenceNode;
 import com.google.common.css.compiler.ast.CssDefinitionNode;
 import com.google.common.css.compiler.ast.CssLiteralNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
 import com.google.common.css.compiler.ast.CssTree;
 import com.google.common.css.compiler.ast.CssValueNode;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.ErrorManager;
 import com.google.common.css.compiler.ast.GssError;
 import com.google.common.css.compiler.ast.MutatingVisitController;
+import com.google.common.css.compiler.ast.NodeKind;
 import com.google.common.css.compiler.ast.Proxiable;
 
 import java.util.List;
@@ -91,6 +93,11 @@ public class ReplaceConstantReferences extends DefaultTreeVisitor
     return !removeDefs;
   }
 
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    return ruleset.mayContain(NodeKind.CONSTANT_REFERENCE);
+  }
+
   @Override
   public boolean enterValueNode(CssValueNode node) {
     if (node instanceof CssConstantReferenceNode) {
@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.css.compiler.ast.CssCompilerPass;
 import com.google.common.css.compiler.ast.CssCustomFunctionNode;
 import com.google.common.css.compiler.ast.CssFunctionNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
 import com.google.common.css.compiler.ast.CssValueNode;
 import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.ErrorManager;
@@ -29,6 +30,7 @@ import com.google.common.css.compiler.ast.GssError;
 import com.google.common.css.compiler.ast.GssFunction;
 import com.google.common.css.compiler.ast.GssFunctionException;
 import com.google.common.css.compiler.ast.MutatingVisitController;
+import com.google.common.css.compiler.ast.NodeKind;
 import com.google.common.css.compiler.ast.Proxiable;
 
 import java.util.List;
@@ -105,6 +107,12 @@ public class ResolveCustomFunctionNodes extends DefaultTreeVisitor
         allowedNonStandardFunctions);
   }
 
+  @Override
+  public boolean enterRuleset(CssRulesetNode ruleset) {
+    // Most rulesets don't call any custom function.
+    return ruleset.mayContain(NodeKind.CUSTOM_FUNCTION);
+  }
+
   @Override
   public void leaveFunctionNode(CssFunctionNode functionNode) {
     if (!(functionNode instanceof Proxiable)) {
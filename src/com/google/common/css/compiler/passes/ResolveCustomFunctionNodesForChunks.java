@@ -19,22 +19,40 @@ package com.google.common.css.compiler.passes;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.common.css.compiler.ast.CssConstantReferenceNode;
 import com.google.common.css.compiler.ast.CssCustomFunctionNode;
 import com.google.common.css.compiler.ast.CssDefinitionNode;
+import com.google.common.css.compiler.ast.CssFunctionNode;
 import com.google.common.css.compiler.ast.CssLiteralNode;
+import com.google.common.css.compiler.ast.CssRulesetNode;
 import com.google.common.css.compiler.ast.CssValueNode;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
 import com.google.common.css.compiler.ast.ErrorManager;
+import com.google.common.css.compiler.ast.GssError;
 import com.google.common.css.compiler.ast.GssFunction;
 import com.google.common.css.compiler.ast.GssFunctionException;
 import com.google.common.css.compiler.ast.MutatingVisitController;
+import com.google.common.css.compiler.ast.NodeKind;
+import com.google.common.css.compiler.ast.Proxiable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.annotation.Nullable;
 
 /**
  * This compiler pass evaluates {@link CssCustomFunctionNode} instances only when they
@@ -50,9 +68,11 @@ public class ResolveCustomFunctionNodesForChunks<T> extends ResolveCustomFunctio
   /** The prefix for definitions of calls with references */
   public static final String DEF_PREFIX = "__F";
 
+  private final MutatingVisitController visitController;
   private final Function<T, String> nextUniqueSuffix;
   private final Map<T, ConstantDefinitions> constantDefinitions =
       Maps.newHashMap();
+  private Executor executor = null;
 
   /**
    * Constructs the pass.
@@ -73,9 +93,144 @@ public class ResolveCustomFunctionNodesForChunks<T> extends ResolveCustomFunctio
       Function<T, String> nextUniqueSuffix) {
     super(visitController, errorManager, functionMap, allowUnknownFunctions,
         allowedNonStandardFunctions);
+    this.visitController = visitController;
     this.nextUniqueSuffix = nextUniqueSuffix;
   }
 
+  /**
+   * Sets an executor to evaluate the function calls of different chunks
+   * concurrently before the tree is rewritten. The GSS functions must then be
+   * safe to call from several threads. Calls are only evaluated ahead if their
+   * arguments contain no references and no other calls, and a call whose
+   * evaluation reports an error or fails is evaluated again during the
+   * rewrite, so errors are reported in the same order as without an executor.
+   *
+   * @param executor the executor, or null to evaluate all the calls during
+   *     the rewrite, which is the default
+   */
+  public void setExecutor(@Nullable Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void runPass() {
+    if (executor != null) {
+      evaluateCallsConcurrently();
+    }
+    super.runPass();
+  }
+
+  /**
+   * Evaluates the calls that do not depend on the rest of the tree, with one
+   * task for the calls of each chunk, and sets their results on the nodes so
+   * that the rewrite uses them.
+   */
+  private void evaluateCallsConcurrently() {
+    final Map<Object, List<CssCustomFunctionNode>> callsByChunk =
+        new LinkedHashMap<>();
+    visitController.startVisit(new DefaultTreeVisitor() {
+      /** For each enclosing call, whether its arguments contain other calls. */
+      private final Deque<Boolean> hasNestedCalls = new ArrayDeque<>();
+
+      @Override
+      public boolean enterRuleset(CssRulesetNode ruleset) {
+        return ruleset.mayContain(NodeKind.CUSTOM_FUNCTION);
+      }
+
+      @Override
+      public boolean enterFunctionNode(CssFunctionNode node) {
+        if (node instanceof Proxiable) {
+          hasNestedCalls.push(false);
+        }
+        return true;
+      }
+
+      @Override
+      public void leaveFunctionNode(CssFunctionNode node) {
+        if (!(node instanceof Proxiable)) {
+          return;
+        }
+        boolean hasNestedCall = hasNestedCalls.pop();
+        if (!hasNestedCalls.isEmpty()) {
+          hasNestedCalls.pop();
+          hasNestedCalls.push(true);
+        }
+        CssCustomFunctionNode call = (CssCustomFunctionNode) node;
+        if (!hasNestedCall && call.getResult() == null
+            && functionMap.containsKey(call.getFunctionName())) {
+          List<CssCustomFunctionNode> calls = callsByChunk.get(call.getChunk());
+          if (calls == null) {
+            calls = new ArrayList<>();
+            callsByChunk.put(call.getChunk(), calls);
+          }
+          calls.add(call);
+        }
+      }
+    });
+
+    List<FutureTask<List<List<CssValueNode>>>> tasks = new ArrayList<>();
+    for (final List<CssCustomFunctionNode> calls : callsByChunk.values()) {
+      FutureTask<List<List<CssValueNode>>> task = new FutureTask<>(
+          new Callable<List<List<CssValueNode>>>() {
+            @Override
+            public List<List<CssValueNode>> call() {
+              List<List<CssValueNode>> results = new ArrayList<>(calls.size());
+              for (CssCustomFunctionNode call : calls) {
+                results.add(evaluateAhead(call));
+              }
+              return results;
+            }
+          });
+      tasks.add(task);
+      executor.execute(task);
+    }
+
+    // Set the results in the order of the tree, once all are computed, so
+    // that no node is modified while other tasks may read it.
+    int i = 0;
+    for (List<CssCustomFunctionNode> calls : callsByChunk.values()) {
+      List<List<CssValueNode>> results = getUninterruptibly(tasks.get(i++));
+      for (int j = 0; j < calls.size(); j++) {
+        if (results.get(j) != null && calls.get(j).getResult() == null) {
+          calls.get(j).setResult(results.get(j));
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates a call whose arguments contain no other calls, or returns null
+   * if it has to be left to the rewrite: because one of its arguments is a
+   * reference, or because the evaluation reports an error or fails.
+   */
+  @Nullable
+  private List<CssValueNode> evaluateAhead(CssCustomFunctionNode node) {
+    GssFunction function = functionMap.get(node.getFunctionName());
+    List<CssValueNode> arguments =
+        CssCustomFunctionNode.fixupFunctionArguments(node.getArguments().childIterable());
+    Integer expArgNumber = function.getNumExpectedArguments();
+    if ((expArgNumber != null && expArgNumber.intValue() != arguments.size())
+        || Iterables.any(arguments, Predicates.instanceOf(CssConstantReferenceNode.class))) {
+      return null;
+    }
+    ErrorRecorder errors = new ErrorRecorder();
+    try {
+      List<CssValueNode> result = function.getCallResultNodes(arguments, errors);
+      return errors.hasErrors() ? null : result;
+    } catch (GssFunctionException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static <V> V getUninterruptibly(Future<V> future) {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
   @Override
   protected List<CssValueNode> evaluateFunction(
       CssCustomFunctionNode node,
@@ -133,4 +288,31 @@ public class ResolveCustomFunctionNodesForChunks<T> extends ResolveCustomFunctio
     }
     chunkDefinitions.addConstantDefinition(def);
   }
+
+  /**
+   * An error manager confined to one task, which only notes that an error or
+   * warning was reported, so that the call is evaluated again and reports it
+   * to the real error manager.
+   */
+  private static final class ErrorRecorder implements ErrorManager {
+    private boolean reported = false;
+
+    @Override
+    public void report(GssError error) {
+      reported = true;
+    }
+
+    @Override
+    public void reportWarning(GssError warning) {
+      reported = true;
+    }
+
+    @Override
+    public void generateReport() {}
+
+    @Override
+    public boolean hasErrors() {
+      return reported;
+    }
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CompactStringMap}. */
+@RunWith(JUnit4.class)
+public class CompactStringMapTest {
+
+  @Test
+  public void testPutAndGet() {
+    CompactStringMap map = new CompactStringMap();
+    assertThat(map.put("foo", "a")).isNull();
+    assertThat(map.put("bar", "b")).isNull();
+    assertThat(map.get("foo")).isEqualTo("a");
+    assertThat(map.get("baz")).isNull();
+    assertThat(map.get(null)).isNull();
+    assertThat(map.containsKey("bar")).isTrue();
+    assertThat(map.containsKey(1)).isFalse();
+  }
+
+  @Test
+  public void testReplacingKeepsInsertionOrder() {
+    CompactStringMap map = new CompactStringMap();
+    map.put("foo", "a");
+    map.put("bar", "b");
+    assertThat(map.put("foo", "c")).isEqualTo("a");
+    assertThat(map).containsExactly("foo", "c", "bar", "b").inOrder();
+  }
+
+  @Test
+  public void testGrowsLikeLinkedHashMap() {
+    Map<String, String> expected = new LinkedHashMap<>();
+    CompactStringMap map = new CompactStringMap();
+    for (int i = 0; i < 10000; i++) {
+      expected.put("class-" + i, "c" + i);
+      map.put("class-" + i, "c" + i);
+    }
+    assertThat(map).containsExactlyEntriesIn(expected).inOrder();
+    assertThat(new CompactStringMap(expected)).isEqualTo(expected);
+
+    map.putAll(ImmutableMap.of("class-5", "x", "new", "y"));
+    assertThat(map.get("class-5")).isEqualTo("x");
+    assertThat(map).hasSize(10001);
+  }
+
+  @Test(timeout = 10000)
+  public void testManySmallPutAllCalls() {
+    // Each call used to copy the whole arrays, which took about a minute.
+    Map<String, String> expected = new LinkedHashMap<>();
+    CompactStringMap map = new CompactStringMap();
+    for (int i = 0; i < 200000; i++) {
+      Map<String, String> m = ImmutableMap.of("a-" + i, "a" + i, "b-" + i, "b" + i);
+      expected.putAll(m);
+      map.putAll(m);
+    }
+    assertThat(map).containsExactlyEntriesIn(expected).inOrder();
+  }
+
+  @Test
+  public void testImmutableCopyOf() {
+    CompactStringMap map = new CompactStringMap();
+    map.put("foo", "a");
+    CompactStringMap copy = CompactStringMap.immutableCopyOf(map);
+    assertThat(copy).isNotSameAs(map);
+    assertThat(CompactStringMap.immutableCopyOf(copy)).isSameAs(copy);
+    map.put("bar", "b");
+    assertThat(copy).containsExactly("foo", "a");
+    try {
+      copy.put("bar", "b");
+      fail();
+    } catch (UnsupportedOperationException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testNullsAreRejected() {
+    CompactStringMap map = new CompactStringMap();
+    try {
+      map.put("foo", null);
+      fail();
+    } catch (NullPointerException expected) {
+      // Expected.
+    }
+    assertThat(map).isEmpty();
+  }
+}
@@ -21,6 +21,8 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 import org.junit.After;
 import org.junit.Before;
@@ -55,6 +57,15 @@ public class JobDescriptionBuilderTest {
     assertThat(builder.getJobDescription()).isSameAs(job);
   }
 
+  @Test
+  public void testReadInputRenamingMap() throws IOException {
+    job = builder
+        .readInputRenamingMap(OutputRenamingMapFormat.JSCOMP_VARIABLE_MAP,
+            new StringReader("foo:a\nbar:b\n"))
+        .getJobDescription();
+    assertThat(job.inputRenamingMap).containsExactly("foo", "a", "bar", "b").inOrder();
+  }
+
   @Test
   public void testSettingInputs1() {
     SourceCode sourceCode = new SourceCode("tempfile", "filecontents");
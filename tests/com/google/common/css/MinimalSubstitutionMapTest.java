@@ -19,6 +19,8 @@ package com.google.common.css;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import java.math.BigInteger;
@@ -83,6 +85,30 @@ public class MinimalSubstitutionMapTest {
     assertThat(map.get("foo")).isEqualTo("a2");
   }
 
+  /**
+   * Tests that assignByFrequency() gives the shortest names to the most
+   * frequently used keys, while respecting the blacklist and initial mappings.
+   */
+  @Test
+  public void testAssignByFrequency() {
+    map = new MinimalSubstitutionMap(START_CHARS, CHARS, ImmutableSet.of("a2"));
+    map.initializeWithMappings(ImmutableMap.of("init", "a1"));
+    map.assignByFrequency(ImmutableMultiset.<String>builder()
+        .add("rare")
+        .addCopies("common", 10)
+        .addCopies("init", 20)
+        .addCopies("tie1", 5)
+        .addCopies("tie2", 5)
+        .build());
+
+    assertThat(map.get("common")).isEqualTo("a");
+    assertThat(map.get("init")).isEqualTo("a1");
+    assertThat(map.get("tie1")).isEqualTo("a22");
+    assertThat(map.get("tie2")).isEqualTo("a11");
+    assertThat(map.get("rare")).isEqualTo("a21");
+    assertThat(map.get("new")).isEqualTo("a12");
+  }
+
   /**
    * Tests toShortString() by enumerating all values of toShortString(0) to
    * toShortString(2^8-1) and verifying that each value is unique. Also ensures
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link OutputRenamingMapFormat}. */
+@RunWith(JUnit4.class)
+public final class OutputRenamingMapFormatTest {
+
+  @Test
+  public void testLargeMapsRoundTrip() throws IOException {
+    // Large enough to span several buffers of the reader.
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      map.put("class-" + i, "c" + Integer.toString(i, 36));
+    }
+    for (OutputRenamingMapFormat format : OutputRenamingMapFormat.values()) {
+      if (format == OutputRenamingMapFormat.CLOSURE_COMPILED_SPLIT_HYPHENS) {
+        continue;
+      }
+      StringWriter out = new StringWriter();
+      format.writeRenamingMap(map, out);
+      assertThat(format.readRenamingMap(new StringReader(out.toString())))
+          .containsExactlyEntriesIn(map)
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void testJsonWithBraces() throws IOException {
+    assertThat(OutputRenamingMapFormat.CLOSURE_COMPILED.readRenamingMap(
+        new StringReader(" goog.setCssNameMapping({\"a}\": \"b\", \"c\": \"}\"}); \n")))
+        .isEqualTo(ImmutableMap.of("a}", "b", "c", "}"));
+    assertThat(OutputRenamingMapFormat.CLOSURE_COMPILED.readRenamingMap(
+        new StringReader("goog.setCssNameMapping({});")))
+        .isEmpty();
+  }
+
+  @Test
+  public void testOnePerLineIsTrimmed() throws IOException {
+    assertThat(OutputRenamingMapFormat.JSCOMP_VARIABLE_MAP.readRenamingMap(
+        new StringReader("\n a:b\r\nc:d  \n\n  ")))
+        .isEqualTo(ImmutableMap.of("a", "b", "c", "d"));
+  }
+
+  @Test
+  public void testRepeatedKeys() throws IOException {
+    // Like a parsed JSON object, the last value wins in the first position.
+    assertThat(OutputRenamingMapFormat.JSON.readRenamingMap(
+        new StringReader("{\"a\": \"b\", \"c\": \"d\", \"a\": \"e\"}")))
+        .containsExactly("a", "e", "c", "d")
+        .inOrder();
+    try {
+      OutputRenamingMapFormat.PROPERTIES.readRenamingMap(new StringReader("a=b\na=c\n"));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testReadRenamingMapInto() throws IOException {
+    Map<String, String> map = new LinkedHashMap<>();
+    OutputRenamingMapFormat.CLOSURE_COMPILED.readRenamingMapInto(
+        new StringReader("goog.setCssNameMapping({\"a\": \"b\", \"c\": \"d\"});"), map);
+    assertThat(map).containsExactly("a", "b", "c", "d").inOrder();
+  }
+
+  @Test
+  public void testMismatchedInput() {
+    String[] inputs = {
+        "goog.setCssNameMapping({\"a\": \"b\"})",
+        "goog.setCssNameMapping({\"a\": \"b\"}); x",
+        "setCssNameMapping({\"a\": \"b\"});"};
+    for (String input : inputs) {
+      try {
+        OutputRenamingMapFormat.CLOSURE_COMPILED.readRenamingMap(new StringReader(input));
+        fail("Expected an IOException for: " + input);
+      } catch (IOException expected) {
+        // Expected.
+      }
+    }
+  }
+}
@@ -18,10 +18,13 @@ package com.google.common.css;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 import junit.framework.AssertionFailedError;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -95,4 +98,39 @@ public final class RecordingSubstitutionMapTest {
       assertThat(recordingFromString.get("jalapeno")).isEqualTo("x-j");
     }
   }
+
+  @Test
+  public final void testUsedMappings() {
+    RecordingSubstitutionMap recording =
+        new RecordingSubstitutionMap.Builder().withSubstitutionMap(createDelegate()).build();
+    recording.initializeWithMappings(ImmutableMap.of("apple", "a", "banana", "b"));
+    assertThat(recording.get("banana-split")).isEqualTo("x-b-d");
+    assertThat(recording.get("banana")).isEqualTo("x-b");
+
+    assertThat(recording.getMappings())
+        .containsExactly("apple", "a", "banana", "b", "split", "d").inOrder();
+    assertThat(recording.getUsedMappings())
+        .containsExactly("banana", "b", "split", "d").inOrder();
+  }
+
+  @Test
+  public final void testSplittingLookupsAreMemoized() {
+    final List<String> lookups = new ArrayList<>();
+    RecordingSubstitutionMap recording =
+        new RecordingSubstitutionMap.Builder()
+            .withSubstitutionMap(
+                new SplittingSubstitutionMap(
+                    new SubstitutionMap() {
+                      @Override
+                      public String get(String key) {
+                        lookups.add(key);
+                        return key.toUpperCase();
+                      }
+                    }))
+            .build();
+    assertThat(recording.get("a-b")).isEqualTo("A-B");
+    assertThat(recording.get("a-b")).isEqualTo("A-B");
+    assertThat(recording.getMappings()).containsExactly("a", "A", "b", "B").inOrder();
+    assertThat(lookups).containsExactly("a", "b").inOrder();
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RenamingExclusions}. */
+@RunWith(JUnit4.class)
+public class RenamingExclusionsTest {
+
+  @Test
+  public void testClassNames() {
+    RenamingExclusions exclusions = RenamingExclusions.compile(ImmutableList.of("foo", "bar-baz"));
+    assertThat(exclusions.apply("foo")).isTrue();
+    assertThat(exclusions.apply("bar-baz")).isTrue();
+    assertThat(exclusions.apply("fo")).isFalse();
+    assertThat(exclusions.apply("foo-bar")).isFalse();
+    assertThat(exclusions.apply("bar")).isFalse();
+  }
+
+  @Test
+  public void testPrefixPatterns() {
+    RenamingExclusions exclusions = RenamingExclusions.compile(ImmutableList.of("goog-*", "x*"));
+    assertThat(exclusions.apply("goog-")).isTrue();
+    assertThat(exclusions.apply("goog-menu")).isTrue();
+    assertThat(exclusions.apply("x")).isTrue();
+    assertThat(exclusions.apply("xyz")).isTrue();
+    assertThat(exclusions.apply("goog")).isFalse();
+    assertThat(exclusions.apply("a-goog-menu")).isFalse();
+  }
+
+  @Test
+  public void testGlobPatterns() {
+    RenamingExclusions exclusions =
+        RenamingExclusions.compile(ImmutableList.of("*-active", "btn-?", "a*b*c"));
+    assertThat(exclusions.apply("menu-active")).isTrue();
+    assertThat(exclusions.apply("-active")).isTrue();
+    assertThat(exclusions.apply("menu-inactive")).isFalse();
+    assertThat(exclusions.apply("btn-1")).isTrue();
+    assertThat(exclusions.apply("btn-")).isFalse();
+    assertThat(exclusions.apply("btn-12")).isFalse();
+    assertThat(exclusions.apply("abc")).isTrue();
+    assertThat(exclusions.apply("axxbyybzc")).isTrue();
+    assertThat(exclusions.apply("axxbyyc")).isTrue();
+    assertThat(exclusions.apply("axxcyyb")).isFalse();
+  }
+
+  @Test
+  public void testMatchEverything() {
+    assertThat(RenamingExclusions.compile(ImmutableList.of("*")).apply("anything")).isTrue();
+  }
+
+  @Test
+  public void testNoExclusions() {
+    RenamingExclusions exclusions = RenamingExclusions.compile(ImmutableList.<String>of());
+    assertThat(exclusions.apply("foo")).isFalse();
+    assertThat(exclusions.apply("")).isFalse();
+  }
+}
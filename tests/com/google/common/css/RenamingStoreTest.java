@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RenamingStore}. */
+@RunWith(JUnit4.class)
+public class RenamingStoreTest {
+
+  /** Renames the given classes as a build would, and records the build. */
+  private static Map<String, String> build(RenamingStore store, String... classNames) {
+    RecordingSubstitutionMap recording = new RecordingSubstitutionMap.Builder()
+        .withSubstitutionMap(new SplittingSubstitutionMap(new MinimalSubstitutionMap()))
+        .build();
+    recording.initializeWithMappings(store.getMappings());
+    for (String className : classNames) {
+      recording.get(className);
+    }
+    store.recordBuild(recording.getUsedMappings());
+    return store.getMappings();
+  }
+
+  @Test
+  public void testNamesAreStable() {
+    RenamingStore store = new RenamingStore(2);
+    assertThat(build(store, "menu", "button")).containsExactly("menu", "a", "button", "b");
+    assertThat(build(store, "button", "dialog"))
+        .containsExactly("menu", "a", "button", "b", "dialog", "c");
+    assertThat(store.getStats().getAdded()).isEqualTo(1);
+    assertThat(store.getStats().getUnused()).isEqualTo(1);
+  }
+
+  @Test
+  public void testUnusedNamesAreRemovedAndReused() {
+    RenamingStore store = new RenamingStore(2);
+    build(store, "menu", "button");
+    build(store, "button");
+    assertThat(build(store, "button")).containsExactly("button", "b");
+    assertThat(store.getStats().getRemoved()).isEqualTo(1);
+    assertThat(store.getStats().getGeneration()).isEqualTo(3);
+
+    // The name of menu is free again.
+    assertThat(build(store, "button", "dialog")).containsExactly("button", "b", "dialog", "a");
+  }
+
+  @Test
+  public void testReadAndWrite() throws IOException {
+    RenamingStore store = new RenamingStore(5);
+    build(store, "menu", "button");
+    build(store, "button");
+
+    StringWriter out = new StringWriter();
+    store.write(out);
+    assertThat(out.toString())
+        .isEqualTo("# renaming store generation 2\nmenu\ta\t1\nbutton\tb\t2\n");
+
+    RenamingStore copy = RenamingStore.read(new StringReader(out.toString()), 5);
+    assertThat(copy.getGeneration()).isEqualTo(2);
+    assertThat(copy.getMappings()).isEqualTo(store.getMappings());
+    StringWriter copyOut = new StringWriter();
+    copy.write(copyOut);
+    assertThat(copyOut.toString()).isEqualTo(out.toString());
+  }
+
+  @Test
+  public void testReadMalformed() {
+    String[] malformed = {
+        "", "menu\ta\t1\n", "# renaming store generation x\n",
+        "# renaming store generation 1\nmenu\ta\n",
+        "# renaming store generation 1\nmenu\ta\t2\n"};
+    for (String input : malformed) {
+      try {
+        RenamingStore.read(new StringReader(input), 1);
+        fail("Expected an IOException for: " + input);
+      } catch (IOException expected) {
+        // Expected.
+      }
+    }
+  }
+}
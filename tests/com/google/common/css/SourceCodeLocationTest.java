@@ -242,4 +242,50 @@ public class SourceCodeLocationTest {
     assertThat(loc4).hasSpan(1, 1, 1, 6);
     assertThat(loc4).matches("abcde");
   }
+
+  @Test
+  public void testFromOffsets() {
+    SourceCode sourceCode = new SourceCode("testfile", "abc\ndefg\n");
+    SourceCodeLocation l = SourceCodeLocation.fromOffsets(sourceCode, 2, 7);
+    assertThat(l.getBeginLineNumber()).isEqualTo(1);
+    assertThat(l.getBeginIndexInLine()).isEqualTo(3);
+    assertThat(l.getEndLineNumber()).isEqualTo(2);
+    assertThat(l.getEndIndexInLine()).isEqualTo(4);
+    assertThat(l).isEqualTo(new SourceCodeLocation(sourceCode, 2, 1, 3, 7, 2, 4));
+
+    // The end point stays on the line of the last character.
+    SourceCodeLocation newline = SourceCodeLocation.fromOffsets(sourceCode, 8, 9);
+    assertThat(newline.getBeginLineNumber()).isEqualTo(2);
+    assertThat(newline.getEndLineNumber()).isEqualTo(2);
+    assertThat(newline.getEndIndexInLine()).isEqualTo(6);
+
+    SourceCodeLocation empty = SourceCodeLocation.fromOffsets(sourceCode, 9, 9);
+    assertThat(empty.getBeginLineNumber()).isEqualTo(3);
+    assertThat(empty.getEndLineNumber()).isEqualTo(3);
+    assertThat(empty.getEndIndexInLine()).isEqualTo(1);
+  }
+
+  @Test
+  public void testExplicitCoordinatesArePreserved() {
+    SourceCode sourceCode = new SourceCode("testfile", "abc\ndefg");
+    SourceCodeLocation l = new SourceCodeLocation(sourceCode, 4, 5, 1, 5, 5, 2);
+    assertThat(l.getBeginLineNumber()).isEqualTo(5);
+    assertThat(l.getEndIndexInLine()).isEqualTo(2);
+
+    SourceCodeLocation unknownContents =
+        new SourceCodeLocation(new SourceCode("testfile", null), 4, 2, 1, 5, 2, 2);
+    assertThat(unknownContents.getBeginLineNumber()).isEqualTo(2);
+    assertThat(unknownContents.getEndIndexInLine()).isEqualTo(2);
+  }
+
+  @Test
+  public void testMergeFromOffsets() {
+    SourceCode sourceCode = new SourceCode("testfile", "ab\ncd\nef");
+    SourceCodeLocation loc1 = SourceCodeLocation.fromOffsets(sourceCode, 1, 2);
+    SourceCodeLocation loc2 = SourceCodeLocation.fromOffsets(sourceCode, 6, 8);
+    SourceCodeLocation merged = SourceCodeLocation.merge(loc1, loc2);
+    assertThat(merged).isEqualTo(SourceCodeLocation.fromOffsets(sourceCode, 1, 8));
+    assertThat(merged.getEndLineNumber()).isEqualTo(3);
+    assertThat(merged.getEndIndexInLine()).isEqualTo(3);
+  }
 }
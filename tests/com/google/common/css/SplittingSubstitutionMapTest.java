@@ -18,6 +18,8 @@ package com.google.common.css;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.css.MultipleMappingSubstitutionMap.ValueWithMappings;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -51,6 +53,16 @@ public class SplittingSubstitutionMapTest {
     assertThat(map.get(input)).isSameAs(input);
   }
 
+  @Test
+  public void testRepeatedPartsAreMappedOnce() {
+    SplittingSubstitutionMap map = new SplittingSubstitutionMap(
+        new SimpleSubstitutionMap());
+    ValueWithMappings valueWithMappings = map.getValueWithMappings("a-b-a--b");
+    assertThat(valueWithMappings.value).isEqualTo("a_-b_-a_-_-b_");
+    assertThat(valueWithMappings.mappings)
+        .containsExactly("a", "a_", "b", "b_", "", "_").inOrder();
+  }
+
   private static class PassThroughSubstitutionMap implements SubstitutionMap {
     @Override
     public String get(String key) {
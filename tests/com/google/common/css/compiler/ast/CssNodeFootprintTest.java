@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Checks the memory footprint of common nodes. Shallow sizes are estimated
+ * from the declared fields with the layout of a 64-bit HotSpot VM using
+ * compressed references: a 12 byte header, 4 byte references, each class's
+ * fields padded to 4 bytes and objects padded to 8 bytes.
+ */
+@RunWith(JUnit4.class)
+public class CssNodeFootprintTest {
+
+  @Test
+  public void testShallowSizes() {
+    assertThat(shallowSize(CssLiteralNode.class)).isAtMost(32);
+    assertThat(shallowSize(CssNumericNode.class)).isAtMost(40);
+    assertThat(shallowSize(CssDeclarationNode.class)).isAtMost(40);
+    assertThat(shallowSize(CssPropertyValueNode.class)).isAtMost(32);
+    assertThat(shallowSize(CssBlockNode.class)).isAtMost(40);
+    assertThat(shallowSize(CssCompositeValueNode.class)).isAtMost(40);
+  }
+
+  @Test
+  public void testNodesWithoutCommentsShareTheirList() {
+    CssLiteralNode first = new CssLiteralNode("a");
+    CssLiteralNode second = new CssLiteralNode("b");
+    second.setComments(ImmutableList.<CssCommentNode>of());
+    assertThat(first.getComments()).isSameAs(second.getComments());
+
+    first.appendComment(new CssCommentNode("/* c */", null));
+    assertThat(first.getComments()).hasSize(1);
+    assertThat(second.getComments()).isEmpty();
+  }
+
+  @Test
+  public void testEmptyListNodesShareTheirChildren() {
+    CssBlockNode first = new CssBlockNode();
+    CssPropertyValueNode second = new CssPropertyValueNode();
+    assertThat(first.children).isSameAs(second.children);
+
+    first.addChildToBack(new CssRulesetNode());
+    assertThat(first.numChildren()).isEqualTo(1);
+    assertThat(second.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testFlags() {
+    CssDeclarationNode declaration =
+        new CssDeclarationNode(new CssPropertyNode("color"));
+    assertThat(declaration.getShouldBeFlipped()).isTrue();
+    declaration.setStarHack(true);
+    declaration.setShouldBeFlipped(false);
+    assertThat(declaration.hasStarHack()).isTrue();
+    assertThat(declaration.getShouldBeFlipped()).isFalse();
+    declaration.setStarHack(false);
+    assertThat(declaration.hasStarHack()).isFalse();
+    assertThat(declaration.getShouldBeFlipped()).isFalse();
+  }
+
+  private static int shallowSize(Class<?> type) {
+    int size = 12;
+    if (type.getSuperclass() != Object.class) {
+      size = shallowSizeWithoutPadding(type.getSuperclass());
+    }
+    return align(size + fieldsSize(type), 8);
+  }
+
+  private static int shallowSizeWithoutPadding(Class<?> type) {
+    int size = 12;
+    if (type.getSuperclass() != Object.class) {
+      size = shallowSizeWithoutPadding(type.getSuperclass());
+    }
+    return align(size + fieldsSize(type), 4);
+  }
+
+  private static int fieldsSize(Class<?> type) {
+    int size = 0;
+    for (Field field : type.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      Class<?> fieldType = field.getType();
+      if (fieldType == long.class || fieldType == double.class) {
+        size += 8;
+      } else if (fieldType == boolean.class || fieldType == byte.class) {
+        size += 1;
+      } else if (fieldType == char.class || fieldType == short.class) {
+        size += 2;
+      } else {
+        size += 4;
+      }
+    }
+    return size;
+  }
+
+  private static int align(int size, int alignment) {
+    return (size + alignment - 1) / alignment * alignment;
+  }
+}
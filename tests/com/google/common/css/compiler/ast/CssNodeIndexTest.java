@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.SourceCode;
+import com.google.common.css.compiler.passes.CreateDefinitionNodes;
+import com.google.common.css.compiler.passes.DummyErrorManager;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link CssNodeIndex}.
+ */
+@RunWith(JUnit4.class)
+public class CssNodeIndexTest {
+
+  @Test
+  public void testNodesInVisitOrder() throws Exception {
+    CssTree tree = parse(
+        "@def A 1px;",
+        ".a:not(.b) { top: A; left: 0 }",
+        "@media print {",
+        "  @def B 2px;",
+        "  .c { top: B }",
+        "}");
+    CssNodeIndex index = tree.getNodeIndex();
+    assertThat(classNames(index)).containsExactly("a", "b", "c").inOrder();
+    assertThat(index.getRulesets()).hasSize(2);
+    assertThat(index.getDeclarations()).hasSize(3);
+    assertThat(definitionNames(index)).containsExactly("A", "B").inOrder();
+    assertThat(index.getMixinDefinitions()).isEmpty();
+  }
+
+  @Test
+  public void testReplacementThroughVisitController() throws Exception {
+    CssTree tree = parse(".a { top: 0 }", ".b { top: 0 }", ".c { top: 0 }");
+    CssNodeIndex index = tree.getNodeIndex();
+    assertThat(classNames(index)).containsExactly("a", "b", "c").inOrder();
+
+    final CssTree replacementTree = parse(".d { top: 0 }", ".e { top: 0 }");
+    final MutatingVisitController controller =
+        tree.getMutatingVisitController();
+    controller.startVisit(new DefaultTreeVisitor() {
+      @Override
+      public boolean enterRuleset(CssRulesetNode ruleset) {
+        if (ruleset.getSelectors().toString().contains(".b")) {
+          controller.replaceCurrentBlockChildWith(
+              replacementTree.getRoot().getBody().deepCopy().getChildren(),
+              false /* visitTheReplacementNodes */);
+        }
+        return true;
+      }
+    });
+
+    assertThat(classNames(index))
+        .containsExactly("a", "d", "e", "c").inOrder();
+    assertThat(index.getRulesets()).hasSize(4);
+    assertThat(index.getDeclarations()).hasSize(4);
+  }
+
+  @Test
+  public void testRemovalThroughVisitController() throws Exception {
+    CssTree tree = parse("@def A 1px;", "@def B 2px;", ".a { top: A }");
+    CssNodeIndex index = tree.getNodeIndex();
+    assertThat(definitionNames(index)).containsExactly("A", "B").inOrder();
+
+    final MutatingVisitController controller =
+        tree.getMutatingVisitController();
+    controller.startVisit(new DefaultTreeVisitor() {
+      @Override
+      public boolean enterDefinition(CssDefinitionNode definition) {
+        if (definition.getName().getValue().equals("A")) {
+          controller.removeCurrentNode();
+        }
+        return true;
+      }
+    });
+
+    assertThat(definitionNames(index)).containsExactly("B");
+  }
+
+  @Test
+  public void testDirectAttachment() throws Exception {
+    CssTree tree = parse(".a { top: 0 }");
+    CssNodeIndex index = tree.getNodeIndex();
+    assertThat(index.getDeclarations()).hasSize(1);
+
+    CssRulesetNode ruleset = index.getRulesets().get(0);
+    ruleset.addDeclaration(new CssDeclarationNode(
+        new CssPropertyNode("left"),
+        new CssPropertyValueNode(ImmutableList.<CssValueNode>of(
+            new CssLiteralNode("0")))));
+
+    assertThat(index.getDeclarations()).hasSize(2);
+  }
+
+  @Test
+  public void testNodesOutsideTheTree() throws Exception {
+    CssTree tree = parse(".a { top: 0 }");
+    CssRulesetNode copy = tree.getNodeIndex().getRulesets().get(0).deepCopy();
+    copy.addDeclaration(new CssDeclarationNode(
+        new CssPropertyNode("left"),
+        new CssPropertyValueNode(ImmutableList.<CssValueNode>of(
+            new CssLiteralNode("0")))));
+
+    assertThat(tree.getNodeIndex().getRulesets()).hasSize(1);
+    assertThat(tree.getNodeIndex().getDeclarations()).hasSize(1);
+  }
+
+  private static CssTree parse(String... lines) throws Exception {
+    CssTree tree = new GssParser(
+        new SourceCode("test", Joiner.on('\n').join(lines))).parse();
+    new CreateDefinitionNodes(
+        tree.getMutatingVisitController(), new DummyErrorManager()).runPass();
+    return tree;
+  }
+
+  private static List<String> classNames(CssNodeIndex index) {
+    List<String> names = new ArrayList<>();
+    for (CssClassSelectorNode selector : index.getClassSelectors()) {
+      names.add(selector.getRefinerName());
+    }
+    return names;
+  }
+
+  private static List<String> definitionNames(CssNodeIndex index) {
+    List<String> names = new ArrayList<>();
+    for (CssDefinitionNode definition : index.getDefinitions()) {
+      names.add(definition.getName().getValue());
+    }
+    return names;
+  }
+}
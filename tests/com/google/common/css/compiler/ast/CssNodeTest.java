@@ -57,4 +57,45 @@ public class CssNodeTest {
     parentNode.removeAsParentOfNode(childNode);
     assertThat(childNode.getParent()).isNull();
   }
+
+  @Test
+  public void testSubtreeKindsOfNewNodes() {
+    assertThat(new CssLiteralNode("a").mayContain(NodeKind.CONSTANT_REFERENCE))
+        .isFalse();
+    assertThat(new CssConstantReferenceNode("A")
+        .mayContain(NodeKind.CONSTANT_REFERENCE)).isTrue();
+    assertThat(new CssClassSelectorNode("a", null)
+        .mayContain(NodeKind.CLASS_SELECTOR)).isTrue();
+    assertThat(new CssClassSelectorNode("a", null)
+        .mayContain(NodeKind.ID_SELECTOR)).isFalse();
+  }
+
+  @Test
+  public void testSubtreeKindsPropagateToAncestors() {
+    CssRulesetNode ruleset = new CssRulesetNode();
+    CssPropertyValueNode value = new CssPropertyValueNode();
+    ruleset.addDeclaration(
+        new CssDeclarationNode(new CssPropertyNode("color"), value));
+    value.addChildToBack(new CssLiteralNode("red"));
+    assertThat(ruleset.mayContain(NodeKind.CONSTANT_REFERENCE)).isFalse();
+
+    value.addChildToBack(new CssConstantReferenceNode("COLOR"));
+    assertThat(value.mayContain(NodeKind.CONSTANT_REFERENCE)).isTrue();
+    assertThat(ruleset.mayContain(NodeKind.CONSTANT_REFERENCE)).isTrue();
+    assertThat(ruleset.getDeclarations()
+        .mayContain(NodeKind.CONSTANT_REFERENCE)).isTrue();
+    assertThat(ruleset.mayContain(NodeKind.CUSTOM_FUNCTION)).isFalse();
+  }
+
+  @Test
+  public void testSubtreeKindsOfDeepCopy() {
+    CssRulesetNode ruleset = new CssRulesetNode();
+    CssSelectorNode selector = new CssSelectorNode("");
+    selector.getRefiners().addChildToBack(new CssIdSelectorNode("a", null));
+    ruleset.addSelector(selector);
+
+    CssRulesetNode copy = ruleset.deepCopy();
+    assertThat(copy.mayContain(NodeKind.ID_SELECTOR)).isTrue();
+    assertThat(copy.mayContain(NodeKind.CLASS_SELECTOR)).isFalse();
+  }
 }
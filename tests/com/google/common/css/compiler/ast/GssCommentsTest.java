@@ -18,6 +18,8 @@ package com.google.common.css.compiler.ast;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.css.SourceCode;
+import com.google.common.css.SourceCodeLocation;
 import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
 import com.google.common.css.compiler.passes.CreateConditionalNodes;
 import com.google.common.css.compiler.passes.CreateDefinitionNodes;
@@ -204,4 +206,55 @@ public class GssCommentsTest extends NewFunctionalTestBase {
     CssCommentNode zooComment = ruleset.getComments().get(0);
     assertThat(zooComment.getValue()).isEqualTo("/*zoo*/");
   }
+
+  @Test
+  public void testDiscardPlainComments() throws Exception {
+    CssTree tree = new GssParser(new SourceCode("test",
+        "/* plain */ /** doc **/ a {\n"
+        + "  /* @alternate */ color: red;\n"
+        + "  /*!important*/ /**!plain*/ color: blue;\n"
+        + "}\n"
+        + "/* @noflip */ b { /* ! plain */ /*/ plain */ margin: 0 }"))
+        .setDiscardPlainComments(true)
+        .parse();
+    CssBlockNode body = tree.getRoot().getBody();
+
+    CssRulesetNode a = (CssRulesetNode) body.getChildAt(0);
+    assertThat(a.getSelectors().getChildAt(0).getComments()).isEmpty();
+    CssDeclarationBlockNode aDeclarations = a.getDeclarations();
+    assertThat(aDeclarations.getChildAt(0).getComments().get(0).getValue())
+        .isEqualTo("/* @alternate */");
+    assertThat(aDeclarations.getChildAt(1).getComments()).hasSize(1);
+    assertThat(aDeclarations.getChildAt(1).getComments().get(0).getValue())
+        .isEqualTo("/*!important*/");
+
+    CssRulesetNode b = (CssRulesetNode) body.getChildAt(1);
+    assertThat(b.getSelectors().getChildAt(0).getComments().get(0).getValue())
+        .isEqualTo("/* @noflip */");
+    assertThat(b.getDeclarations().getChildAt(0).getComments()).isEmpty();
+  }
+
+  @Test
+  public void testDiscardPlainCommentsKeepsLocations() throws Exception {
+    CssTree tree = new GssParser(new SourceCode("test", "/* a\n b */\n  x {}"))
+        .setDiscardPlainComments(true)
+        .parse();
+    CssRulesetNode x = (CssRulesetNode) tree.getRoot().getBody().getChildAt(0);
+    SourceCodeLocation location = x.getSelectors().getChildAt(0).getSourceCodeLocation();
+    assertThat(location.getBeginCharacterIndex()).isEqualTo(13);
+    assertThat(location.getLineNumber()).isEqualTo(3);
+    assertThat(location.getBeginIndexInLine()).isEqualTo(3);
+  }
+
+  @Test
+  public void testDiscardPlainCommentsStillReportsUnterminatedComments() throws Exception {
+    try {
+      new GssParser(new SourceCode("test", "a {} /* plain */ /* unterminated"))
+          .setDiscardPlainComments(true)
+          .parse();
+      assertThat("no exception").isNull();
+    } catch (GssParserException expected) {
+      assertThat(expected.getMessage()).contains("line 1 column 18");
+    }
+  }
 }
@@ -102,4 +102,40 @@ public class PropertyTest {
     assertThat(borderBottomHeight.isRecognizedProperty()).isFalse();
     assertThat(borderHeight.getShorthands()).isEmpty();
   }
+
+  @Test
+  public void testByNameIgnoresCase() {
+    assertThat(Property.byName("Z-Index")).isSameAs(Property.byName("z-index"));
+    assertThat(Property.byName("BORDER-RADIUS").isRecognizedProperty()).isTrue();
+  }
+
+  @Test
+  public void testUserDefinedPropertiesAreInterned() {
+    Property property = Property.byName("x-unknown-property");
+    assertThat(property.isRecognizedProperty()).isFalse();
+    assertThat(Property.byName("X-Unknown-Property")).isSameAs(property);
+
+    Property custom = Property.byName("--Custom-Color");
+    assertThat(custom.isCustom()).isTrue();
+    assertThat(custom.getName()).isEqualTo("--Custom-Color");
+    assertThat(Property.byName("--Custom-Color")).isSameAs(custom);
+    assertThat(Property.byName("--custom-color")).isNotSameAs(custom);
+  }
+
+  @Test
+  public void testOrdinals() {
+    Property padding = Property.byName("padding");
+    Property paddingTop = Property.byName("padding-top");
+    assertThat(Property.byOrdinal(padding.getOrdinal())).isSameAs(padding);
+    assertThat(paddingTop.hasShorthand(padding.getOrdinal())).isTrue();
+    assertThat(padding.hasShorthand(paddingTop.getOrdinal())).isFalse();
+    assertThat(padding.getLonghandOrdinals().get(paddingTop.getOrdinal())).isTrue();
+    assertThat(paddingTop.getShorthandOrdinals().cardinality())
+        .isEqualTo(paddingTop.getShorthands().size());
+
+    Property unknown = Property.byName("x-unknown-property");
+    assertThat(unknown.getOrdinal()).isEqualTo(-1);
+    assertThat(unknown.getShorthandOrdinals().isEmpty()).isTrue();
+    assertThat(paddingTop.hasShorthand(unknown.getOrdinal())).isFalse();
+  }
 }
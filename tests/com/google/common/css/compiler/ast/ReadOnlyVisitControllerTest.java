@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.css.SourceCode;
+import com.google.common.css.compiler.ast.VisitorInterests.Callback;
+import com.google.common.css.compiler.passes.CheckDependencyNodes;
+import com.google.common.css.compiler.passes.CreateComponentNodes;
+import com.google.common.css.compiler.passes.CreateConditionalNodes;
+import com.google.common.css.compiler.passes.CreateConstantReferences;
+import com.google.common.css.compiler.passes.CreateDefinitionNodes;
+import com.google.common.css.compiler.passes.CreateForLoopNodes;
+import com.google.common.css.compiler.passes.CreateMixins;
+import com.google.common.css.compiler.passes.CreateStandardAtRuleNodes;
+import com.google.common.css.compiler.passes.DummyErrorManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link ReadOnlyVisitController}, which check that it calls
+ * the same callbacks in the same order as a non-mutating
+ * {@link DefaultVisitController}.
+ */
+@RunWith(JUnit4.class)
+public class ReadOnlyVisitControllerTest {
+
+  private static final String STYLESHEET = Joiner.on('\n').join(
+      "@provide 'a.b';",
+      "@import url('x.css') screen;",
+      "@def COLOR red;",
+      "@def SIZE 1px 2px;",
+      "@defmixin m(W) { width: W; }",
+      ".a, .b > #c:hover, d[e='f'] .g::before, .h:not(.i) {",
+      "  color: COLOR;",
+      "  margin: 0 SIZE, 3px;",
+      "  background: url(y.png) rgb(1, 2, 3);",
+      "  @mixin m(4px);",
+      "}",
+      "@media screen and (max-width: 100px), print {",
+      "  .j { top: 0 }",
+      "}",
+      "@if COND { .k { top: 1px } } @elseif OTHER { .l {} } @else { .m {} }",
+      "@for $i from 1 to 3 { .n-$i { top: $i } }",
+      "@keyframes p { from { top: 0 } 50%, to { top: 1px } }",
+      "@font-face { font-family: q; }",
+      "@page :first { margin: 1in; }",
+      "@component r { @def S 1px; .t { top: S } }",
+      "@unknown u v { .w { top: 0 } }");
+
+  private CssTree tree;
+
+  @Before
+  public void setUp() throws Exception {
+    tree = new GssParser(new SourceCode("test", STYLESHEET)).parse();
+    ErrorManager errorManager = new DummyErrorManager();
+    MutatingVisitController controller = tree.getMutatingVisitController();
+    new CheckDependencyNodes(controller, errorManager).runPass();
+    new CreateStandardAtRuleNodes(controller, errorManager).runPass();
+    new CreateMixins(controller, errorManager).runPass();
+    new CreateDefinitionNodes(controller, errorManager).runPass();
+    new CreateConstantReferences(controller).runPass();
+    new CreateConditionalNodes(controller, errorManager).runPass();
+    new CreateForLoopNodes(controller, errorManager).runPass();
+    new CreateComponentNodes(controller, errorManager).runPass();
+  }
+
+  @Test
+  public void testSameCallbacks() {
+    List<String> calls = assertSameCallbacks(EnumSet.allOf(Callback.class), 0);
+    // The stylesheet exercises every kind of node.
+    Set<String> methods = new HashSet<>();
+    for (String call : calls) {
+      methods.add(call.substring(0, call.indexOf(' ')));
+    }
+    assertThat(methods).containsAllOf("enterImportRule", "enterProvideNode",
+        "enterDefinition", "enterMixinDefinition", "enterMixin",
+        "enterCombinator", "enterAttributeSelector", "enterPseudoElement",
+        "enterCompositeValueNodeOperator", "enterFunctionNode",
+        "enterArgumentNode", "enterMediaTypeListDelimiter",
+        "enterConditionalBlock", "enterForLoop", "enterKeyframesRule",
+        "enterKey", "enterFontFace", "enterPageRule", "enterComponent",
+        "enterUnknownAtRule");
+  }
+
+  @Test
+  public void testSameCallbacksWhenEnterReturnsFalse() {
+    assertSameCallbacks(EnumSet.allOf(Callback.class), 2);
+    assertSameCallbacks(EnumSet.allOf(Callback.class), 3);
+  }
+
+  @Test
+  public void testSameCallbacksForPartialInterests() {
+    assertSameCallbacks(
+        EnumSet.of(Callback.RULESET, Callback.DECLARATION), 0);
+    assertSameCallbacks(
+        EnumSet.of(Callback.CLASS_SELECTOR, Callback.PSEUDO_CLASS), 0);
+    assertSameCallbacks(
+        EnumSet.of(Callback.FUNCTION_NODE, Callback.VALUE_NODE), 2);
+    assertSameCallbacks(EnumSet.of(Callback.COMPOSITE_VALUE_NODE), 2);
+  }
+
+  @Test
+  public void testSameCallbacksForSubtree() {
+    CssNode ruleset = tree.getRoot().getBody().getChildAt(5);
+    assertThat(ruleset).isInstanceOf(CssRulesetNode.class);
+    assertThat(record(new ReadOnlyVisitController(ruleset),
+        EnumSet.allOf(Callback.class), 0))
+        .containsExactlyElementsIn(record(
+            new DefaultVisitController(ruleset, false /* allowMutating */),
+            EnumSet.allOf(Callback.class), 0))
+        .inOrder();
+  }
+
+  @Test
+  public void testStopVisit() {
+    final VisitController controller = tree.getVisitController();
+    final List<String> selectors = new ArrayList<>();
+    controller.startVisit(new DefaultTreeVisitor() {
+      @Override
+      public boolean enterClassSelector(CssClassSelectorNode node) {
+        selectors.add(node.getRefinerName());
+        if (selectors.size() == 2) {
+          controller.stopVisit();
+        }
+        return true;
+      }
+    });
+    assertThat(selectors).containsExactly("a", "b").inOrder();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedSubtree() {
+    new ReadOnlyVisitController(tree.getRoot().getBody())
+        .startVisit(new DefaultTreeVisitor());
+  }
+
+  private List<String> assertSameCallbacks(
+      Set<Callback> interests, int falseModulus) {
+    List<String> expected = record(
+        new DefaultVisitController(tree, false /* allowMutating */),
+        interests, falseModulus);
+    List<String> actual =
+        record(tree.getVisitController(), interests, falseModulus);
+    assertThat(actual).containsExactlyElementsIn(expected).inOrder();
+    return actual;
+  }
+
+  /**
+   * Returns the callbacks of a visit with the given interests, as the method
+   * name and the index of the node in the order the nodes were first reached.
+   * When the modulus is positive, the {@code enter*} methods return
+   * {@code false} for the nodes whose index is a multiple of it.
+   */
+  private static List<String> record(VisitController controller,
+      final Set<Callback> interests, final int falseModulus) {
+    final List<String> calls = new ArrayList<>();
+    final List<Object> nodes = new ArrayList<>();
+    InvocationHandler handler = new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getVisitorInterests")) {
+          return Sets.immutableEnumSet(interests);
+        }
+        int index = indexOf(nodes, args[0]);
+        calls.add(method.getName() + " " + index);
+        if (method.getReturnType() == boolean.class) {
+          return falseModulus == 0 || index % falseModulus != 0;
+        }
+        return null;
+      }
+    };
+    controller.startVisit((CssTreeVisitor) Proxy.newProxyInstance(
+        ReadOnlyVisitControllerTest.class.getClassLoader(),
+        new Class<?>[] {VisitorInterests.Declaring.class}, handler));
+    return ImmutableList.copyOf(calls);
+  }
+
+  private static int indexOf(List<Object> nodes, Object node) {
+    for (int i = 0; i < nodes.size(); i++) {
+      if (nodes.get(i) == node) {
+        return i;
+      }
+    }
+    nodes.add(node);
+    return nodes.size() - 1;
+  }
+}
@@ -202,6 +202,24 @@ public class StringCharStreamTest {
     checkLocation(s, line, column, charIndex);
   }
 
+  @Test
+  public void testRepeatedImagesAreShared() throws Exception {
+    StringCharStream s = new StringCharStream("red red rod red");
+    String[] images = new String[4];
+    for (int i = 0; i < images.length; i++) {
+      s.BeginToken();
+      s.readChar();
+      s.readChar();
+      images[i] = s.GetImage();
+      if (i < images.length - 1) {
+        s.readChar();
+      }
+    }
+    assertThat(images).asList().containsExactly("red", "red", "rod", "red").inOrder();
+    assertThat(images[1]).isSameAs(images[0]);
+    assertThat(images[3]).isSameAs(images[0]);
+  }
+
   private void beginTokenCheckLocation(
       StringCharStream s, char c, int line, int column, int charIndex)
       throws IOException {
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.ast;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.css.SourceCode;
+import com.google.common.css.compiler.ast.VisitorInterests.Callback;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link VisitorInterests}.
+ */
+@RunWith(JUnit4.class)
+public class VisitorInterestsTest {
+
+  private static final String SOURCE =
+      ".a:not(.b) > .c { color: red; margin: 0 f(1px, 2px); @mixin m(3px); }";
+
+  @Test
+  public void testDefaultTreeVisitor() {
+    assertThat(VisitorInterests.of(new DefaultTreeVisitor())).isEmpty();
+  }
+
+  @Test
+  public void testOverriddenCallbacks() {
+    CssTreeVisitor visitor = new DefaultTreeVisitor() {
+      @Override
+      public boolean enterDeclaration(CssDeclarationNode declaration) {
+        return true;
+      }
+
+      @Override
+      public void leaveClassSelector(CssClassSelectorNode classSelector) {}
+    };
+    assertThat(VisitorInterests.of(visitor))
+        .containsExactly(Callback.DECLARATION, Callback.CLASS_SELECTOR);
+  }
+
+  @Test
+  public void testOtherVisitorsAreInterestedInEverything() {
+    CssTreeVisitor visitor = mock(CssTreeVisitor.class);
+    assertThat(VisitorInterests.of(visitor)).containsExactlyElementsIn(
+        EnumSet.allOf(Callback.class));
+  }
+
+  @Test
+  public void testEveryCallbackIsKnown() {
+    CssTreeVisitor visitor = new DefaultTreeVisitor() {
+      @Override
+      public boolean enterTree(CssRootNode root) {
+        return true;
+      }
+    };
+    // An unknown callback would make the visitor interested in everything.
+    assertThat(VisitorInterests.of(visitor)).containsExactly(Callback.TREE);
+  }
+
+  @Test
+  public void testDeclaredInterests() {
+    RecordingVisitor visitor = new RecordingVisitor(ImmutableSet.of(Callback.DECLARATION));
+    visit(visitor);
+    assertThat(visitor.calls).containsExactly("enterDeclaration", "enterDeclaration");
+  }
+
+  @Test
+  public void testSkippedCallbacksAndSubtrees() {
+    RecordingVisitor all = new RecordingVisitor(EnumSet.allOf(Callback.class));
+    visit(all);
+    assertThat(all.calls).containsAllOf(
+        "enterClassSelector", "enterDeclaration", "enterValueNode", "enterArgumentNode");
+
+    ImmutableMap<Callback, String> methods = ImmutableMap.of(
+        Callback.DECLARATION, "enterDeclaration",
+        Callback.CLASS_SELECTOR, "enterClassSelector",
+        Callback.VALUE_NODE, "enterValueNode",
+        Callback.ARGUMENT_NODE, "enterArgumentNode");
+    for (Callback callback : methods.keySet()) {
+      RecordingVisitor visitor = new RecordingVisitor(ImmutableSet.of(callback));
+      visit(visitor);
+      List<String> expected = new ArrayList<>();
+      for (String call : all.calls) {
+        if (call.equals(methods.get(callback))) {
+          expected.add(call);
+        }
+      }
+      assertThat(visitor.calls).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  private static void visit(CssTreeVisitor visitor) {
+    try {
+      CssTree tree = new GssParser(new SourceCode("test", SOURCE)).parse();
+      tree.getVisitController().startVisit(visitor);
+    } catch (GssParserException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /** A visitor that records some of the callbacks it receives. */
+  private static class RecordingVisitor extends DefaultTreeVisitor
+      implements VisitorInterests.Declaring {
+    private final Set<Callback> interests;
+    private final List<String> calls = new ArrayList<>();
+
+    RecordingVisitor(Set<Callback> interests) {
+      this.interests = interests;
+    }
+
+    @Override
+    public Set<Callback> getVisitorInterests() {
+      return interests;
+    }
+
+    @Override
+    public boolean enterDeclaration(CssDeclarationNode declaration) {
+      calls.add("enterDeclaration");
+      return true;
+    }
+
+    @Override
+    public boolean enterClassSelector(CssClassSelectorNode classSelector) {
+      calls.add("enterClassSelector");
+      return true;
+    }
+
+    @Override
+    public boolean enterValueNode(CssValueNode value) {
+      calls.add("enterValueNode");
+      return true;
+    }
+
+    @Override
+    public boolean enterArgumentNode(CssValueNode value) {
+      calls.add("enterArgumentNode");
+      return true;
+    }
+  }
+}
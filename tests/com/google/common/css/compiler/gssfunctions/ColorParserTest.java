@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.gssfunctions;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link ColorParser}.
+ */
+@RunWith(JUnit4.class)
+public class ColorParserTest {
+
+  @Test
+  public void testHexFormats() {
+    assertThat(ColorParser.parseAny("#f6e43a")).isEqualTo(0xFFF6E43A);
+    assertThat(ColorParser.parseAny("#F6E43A")).isEqualTo(0xFFF6E43A);
+    assertThat(ColorParser.parseAny("#c4d")).isEqualTo(0xFFCC44DD);
+    assertThat(new ColorParser(ColorParser.Format.HEX4).parse("#c4d8"))
+        .isEqualTo(0x88CC44DD);
+    assertThat(new ColorParser(ColorParser.Format.HEX8).parse("#f6e43a80"))
+        .isEqualTo(0x80F6E43A);
+  }
+
+  @Test
+  public void testRgbFormats() {
+    assertThat(ColorParser.parseAny("rgb(255, 10, 0)")).isEqualTo(0xFFFF0A00);
+    assertThat(ColorParser.parseAny("rgb( 300 ,-5,+7 )")).isEqualTo(0xFFFF0007);
+    assertThat(ColorParser.parseAny("rgb(100%, 0%, 10%)"))
+        .isEqualTo(0xFFFF001A);
+    assertThat(ColorParser.parseAny("rgb(50.5%,.5%,0%)")).isEqualTo(0xFF810100);
+    assertThat(ColorParser.parseAny("rgba(255, 10, 0, 0.5)"))
+        .isEqualTo(0x80FF0A00);
+    assertThat(ColorParser.parseAny("rgba(100%, 0%, 10%, 2)"))
+        .isEqualTo(0xFFFF001A);
+  }
+
+  @Test
+  public void testKeywords() {
+    assertThat(ColorParser.parseAny("red")).isEqualTo(0xFFFF0000);
+    assertThat(ColorParser.parseAny(" NavajoWhite ")).isEqualTo(0xFFFFDEAD);
+    assertThat(new ColorParser(ColorParser.Format.HTML_KEYWORDS)
+        .parse("teal")).isEqualTo(0xFF008080);
+  }
+
+  @Test
+  public void testFormatsDoNotMatch() {
+    assertThat(ColorParser.Format.HEX6.parse("#abc"))
+        .isEqualTo(ColorParser.NO_MATCH);
+    assertThat(ColorParser.Format.HTML_KEYWORDS.parse("orange"))
+        .isEqualTo(ColorParser.NO_MATCH);
+    assertThat(ColorParser.Format.CSS_RGB.parse("rgba(1, 2, 3, 1)"))
+        .isEqualTo(ColorParser.NO_MATCH);
+  }
+
+  @Test
+  public void testIllegalColors() {
+    String[] illegalColors = {
+        "", "#", "#ggg", "#12345", "rgb()", "rgb(1, 2)", "rgb(1, 2, 3",
+        "rgb(1.5, 2, 3)", "rgb(10%, 20, 30)", "rgb(1., 2, 3)",
+        "rgba(1, 2, 3)", "rgba(1, 2, 3, 50%)", "reddish"};
+    for (String color : illegalColors) {
+      try {
+        ColorParser.parseAny(color);
+        fail("Expected an IllegalArgumentException for: " + color);
+      } catch (IllegalArgumentException expected) {
+        // Expected.
+      }
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.collect.ImmutableList;
 import com.google.common.css.compiler.ast.GssFunction;
 import com.google.common.css.compiler.ast.GssFunctionException;
+import java.awt.Color;
 import java.util.Locale;
 import org.junit.Assert;
 import org.junit.Test;
@@ -66,6 +67,15 @@ public class GssFunctionsTest {
     testFunctionCallFail(funct, ImmutableList.of("60px", "30em"));
   }
 
+  @Test
+  public void testAddValuesToHsbComponents() {
+    GssFunctions.AddHsbToCssColor funct = new GssFunctions.AddHsbToCssColor();
+    assertThat(funct.addValuesToHsbComponents(new Color(0xFF0000), 120, 0, 0))
+        .isEqualTo(new Color(0x00FF00));
+    assertThat(funct.addValuesToHsbComponents(0xFFFF0000, 120, 0, 0)).isEqualTo(0xFF00FF00);
+    assertThat(funct.addHsbToCssColor("#FF0000", 120, 0, 0)).isEqualTo("#00FF00");
+  }
+
   @Test
   public void testMultGetCallResultString() throws GssFunctionException {
     GssFunctions.Mult funct = new GssFunctions.Mult();
@@ -181,6 +181,33 @@ public class BiDiFlipperFunctionalTest extends PassesTestBase {
         "[[foo]{[background:[url(/foo/background-left.png)];]}]");
   }
 
+  /**
+   * Tests that
+   *   background : url(/foo/rtl/right-ltr/bg-left.png)
+   * is flipped to
+   *   background : url(/foo/rtl/right-rtl/bg-right.png)
+   * which swaps the first "ltr" and the first "left" only.
+   */
+  @Test
+  public void testUrlWithSeveralFlippableWords() {
+    testTreeConstruction(
+        "foo { background: url(/foo/rtl/right-ltr/bg-left.png); }",
+        "[[foo]{[background:[url(/foo/rtl/right-rtl/bg-right.png)];]}]");
+  }
+
+  /**
+   * Tests that
+   *   background : url(/foo/ultra/bright-ltr1.png)
+   * remains unchanged because no word is followed by a separator or
+   * preceded by a non-letter.
+   */
+  @Test
+  public void testUrlWithEmbeddedWords() {
+    testTreeConstruction(
+        "foo { background: url(/foo/ultra/bright-ltr1.png); }",
+        "[[foo]{[background:[url(/foo/ultra/bright-ltr1.png)];]}]");
+  }
+
   /**
    * Tests that
    *   background : url(/foo/background.png)
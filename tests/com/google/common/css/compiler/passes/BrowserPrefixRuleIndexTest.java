@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.compiler.ast.CssDeclarationNode;
+import com.google.common.css.compiler.ast.CssFunctionNode;
+import com.google.common.css.compiler.ast.CssLiteralNode;
+import com.google.common.css.compiler.ast.CssPropertyNode;
+import com.google.common.css.compiler.ast.CssPropertyValueNode;
+import com.google.common.css.compiler.ast.CssValueNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link BrowserPrefixRuleIndex}. */
+@RunWith(JUnit4.class)
+public class BrowserPrefixRuleIndexTest {
+
+  private final BrowserPrefixRule displayFlex = new BrowserPrefixRule.Builder()
+      .matchPropertyName("display")
+      .matchPropertyValue("flex")
+      .isFunction(false)
+      .addExpandPropertyValue("-webkit-flex")
+      .build();
+  private final BrowserPrefixRule calc = new BrowserPrefixRule.Builder()
+      .matchPropertyValue("calc")
+      .isFunction(true)
+      .addExpandPropertyValue("-webkit-calc")
+      .build();
+  private final BrowserPrefixRule width = new BrowserPrefixRule.Builder()
+      .matchPropertyName("width")
+      .isFunction(false)
+      .addExpandPropertyName("-webkit-width")
+      .build();
+  private final BrowserPrefixRuleIndex index =
+      new BrowserPrefixRuleIndex(ImmutableList.of(displayFlex, calc, width));
+
+  @Test
+  public void testCandidatesByPropertyName() {
+    assertThat(index.getCandidateRules(declaration("display", literal("flex"))))
+        .containsExactly(displayFlex);
+    assertThat(index.getCandidateRules(declaration("color", literal("red"))))
+        .isEmpty();
+  }
+
+  @Test
+  public void testValueOnlyCandidatesKeepRuleOrder() {
+    assertThat(index.getCandidateRules(
+        declaration("width", function("calc"), function("calc"))))
+        .containsExactly(calc, width)
+        .inOrder();
+    assertThat(index.getCandidateRules(declaration("margin", function("calc"))))
+        .containsExactly(calc);
+  }
+
+  @Test
+  public void testValueOnlyCandidatesNeedFunctionName() {
+    assertThat(index.getCandidateRules(declaration("margin", function("url"))))
+        .isEmpty();
+  }
+
+  private static CssValueNode literal(String value) {
+    return new CssLiteralNode(value);
+  }
+
+  private static CssValueNode function(String name) {
+    return new CssFunctionNode(CssFunctionNode.Function.byName(name), null);
+  }
+
+  private static CssDeclarationNode declaration(
+      String propertyName, CssValueNode... values) {
+    return new CssDeclarationNode(
+        new CssPropertyNode(propertyName),
+        new CssPropertyValueNode(ImmutableList.copyOf(values)));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.css.compiler.ast.CssBlockNode;
+import com.google.common.css.compiler.ast.CssSelectorNode;
+import com.google.common.css.compiler.ast.CssTreeVisitor;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
+import com.google.common.css.compiler.ast.VisitorInterests;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests {@link ChunkRoutingVisitor} */
+@RunWith(JUnit4.class)
+public class ChunkRoutingVisitorTest {
+
+  @Test
+  public void testRejectingVisitorSkipsChildren() {
+    List<String> record = new ArrayList<>();
+    ChunkRoutingVisitor<Object> routingVisitor = new ChunkRoutingVisitor<>(
+        ImmutableList.<CssTreeVisitor>of(
+            new RecordingVisitor("visitor1", true, record),
+            new RecordingVisitor("visitor2", false, record)),
+        null /* visitorsByChunk */);
+    CssBlockNode block = new CssBlockNode();
+    CssSelectorNode selector = new CssSelectorNode("a");
+
+    assertThat(routingVisitor.enterBlock(block)).isTrue();
+    assertThat(routingVisitor.enterSelector(selector)).isTrue();
+    routingVisitor.leaveSelector(selector);
+    routingVisitor.leaveBlock(block);
+
+    assertThat(record)
+        .containsExactly(
+            "enterBlock visitor1", "enterBlock visitor2",
+            "enterSelector visitor1", "leaveSelector visitor1",
+            "leaveBlock visitor1")
+        .inOrder();
+  }
+
+  @Test
+  public void testLeavingRejectedNodeIsAnError() {
+    List<String> record = new ArrayList<>();
+    ChunkRoutingVisitor<Object> routingVisitor = new ChunkRoutingVisitor<>(
+        ImmutableList.<CssTreeVisitor>of(
+            new RecordingVisitor("visitor", false, record)),
+        null /* visitorsByChunk */);
+    CssBlockNode block = new CssBlockNode();
+
+    assertThat(routingVisitor.enterBlock(block)).isFalse();
+    try {
+      routingVisitor.leaveBlock(block);
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    assertThat(record).containsExactly("enterBlock visitor");
+  }
+
+  @Test
+  public void testDeclaresInterestsOfVisitors() {
+    ChunkRoutingVisitor<Object> routingVisitor = new ChunkRoutingVisitor<>(
+        ImmutableList.<CssTreeVisitor>of(
+            new RecordingVisitor("visitor", true, new ArrayList<String>())),
+        null /* visitorsByChunk */);
+    assertThat(VisitorInterests.of(routingVisitor))
+        .containsExactly(
+            VisitorInterests.Callback.BLOCK, VisitorInterests.Callback.SELECTOR);
+  }
+
+  private static class RecordingVisitor extends DefaultTreeVisitor {
+
+    private final String name;
+    private final boolean acceptBlocks;
+    private final List<String> record;
+
+    RecordingVisitor(String name, boolean acceptBlocks, List<String> record) {
+      this.name = name;
+      this.acceptBlocks = acceptBlocks;
+      this.record = record;
+    }
+
+    @Override
+    public boolean enterBlock(CssBlockNode block) {
+      record.add("enterBlock " + name);
+      return acceptBlocks;
+    }
+
+    @Override
+    public void leaveBlock(CssBlockNode block) {
+      record.add("leaveBlock " + name);
+    }
+
+    @Override
+    public boolean enterSelector(CssSelectorNode selector) {
+      record.add("enterSelector " + name);
+      return true;
+    }
+
+    @Override
+    public void leaveSelector(CssSelectorNode selector) {
+      record.add("leaveSelector " + name);
+    }
+  }
+}
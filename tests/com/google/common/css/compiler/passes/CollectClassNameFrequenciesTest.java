@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link CollectClassNameFrequencies}.
+ */
+@RunWith(JUnit4.class)
+public class CollectClassNameFrequenciesTest extends NewFunctionalTestBase {
+
+  @Test
+  public void testCountsSelectorsInOrderOfFirstUse() {
+    parseAndBuildTree(linesToString(
+        ".b .a { top: 0 }",
+        ".a, div.a:not(.c) { top: 1px }",
+        "@media print { .b { top: 2px } }"));
+    CollectClassNameFrequencies pass =
+        new CollectClassNameFrequencies(tree.getVisitController());
+    pass.runPass();
+
+    assertThat(pass.getClassNameCounts().elementSet())
+        .containsExactly("b", "a", "c").inOrder();
+    assertThat(pass.getClassNameCounts().count("a")).isEqualTo(3);
+    assertThat(pass.getClassNameCounts().count("b")).isEqualTo(2);
+    assertThat(pass.getClassNameCounts().count("c")).isEqualTo(1);
+
+    pass.runPass();
+    assertThat(pass.getClassNameCounts().count("a")).isEqualTo(3);
+  }
+}
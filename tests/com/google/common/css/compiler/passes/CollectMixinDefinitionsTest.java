@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.css.compiler.ast.CssMixinDefinitionNode;
 import com.google.common.css.compiler.ast.GssParserException;
+import com.google.common.css.compiler.passes.testing.AstPrinter;
 import com.google.common.css.compiler.passes.testing.PassesTestBase;
 import java.util.Map;
 import org.junit.Test;
@@ -34,6 +35,7 @@ import org.junit.runners.JUnit4;
 @RunWith(JUnit4.class)
 public class CollectMixinDefinitionsTest extends PassesTestBase {
   private Map<String, CssMixinDefinitionNode> definitions;
+  private boolean useTreeConstructor = false;
 
   @Test
   public void testSimpleMixinDefinition() {
@@ -81,14 +83,41 @@ public class CollectMixinDefinitionsTest extends PassesTestBase {
         CollectMixinDefinitions.INVALID_BLOCK_ERROR_MESSAGE);
   }
 
+  @Test
+  public void testTreeConstructorMatchesVisitController()
+      throws GssParserException {
+    String source = linesToString(
+        "@defmixin test1(PAR1, PAR2) { width: PAR1; height: PAR2; }",
+        ".a { color: red; }",
+        "@if (COND) { @defmixin test2(PAR) {} }",
+        "@defmixin test1() {}",
+        "@defmixin test3(PAR1) { color: PAR1; }");
+    String[] expectedMessages = {
+        CollectMixinDefinitions.INVALID_BLOCK_ERROR_MESSAGE,
+        CollectMixinDefinitions.DUPLICATE_MIXIN_DEFINITION_NAME_ERROR_MESSAGE};
+
+    parseAndRun(source, expectedMessages);
+    Map<String, CssMixinDefinitionNode> visitedDefinitions = definitions;
+    String visitedTree = AstPrinter.print(tree);
+
+    useTreeConstructor = true;
+    parseAndRun(source, expectedMessages);
+    assertThat(definitions.keySet())
+        .containsExactlyElementsIn(visitedDefinitions.keySet());
+    assertThat(definitions.keySet()).containsExactly("test1", "test3");
+    assertThat(AstPrinter.print(tree)).isEqualTo(visitedTree);
+  }
+
   @Override
   protected void runPass() {
     // This pass has to run before.
     new CreateMixins(tree.getMutatingVisitController(), errorManager).runPass();
     new CreateConstantReferences(tree.getMutatingVisitController()).runPass();
 
-    CollectMixinDefinitions collectDefinitions = new CollectMixinDefinitions(
-        tree.getMutatingVisitController(), errorManager);
+    CollectMixinDefinitions collectDefinitions = useTreeConstructor
+        ? new CollectMixinDefinitions(tree, errorManager)
+        : new CollectMixinDefinitions(
+            tree.getMutatingVisitController(), errorManager);
     collectDefinitions.runPass();
     definitions = collectDefinitions.getDefinitions();
   }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link CollectProvideNamespaces}.
+ */
+@RunWith(JUnit4.class)
+public class CollectProvideNamespacesTest extends NewFunctionalTestBase {
+
+  @Test
+  public void testTreeConstructorKeepsDocumentOrder() {
+    parseAndBuildTree(ImmutableMap.of(
+        "a.gss", linesToString(
+            "@def EARLY 1px;",
+            "@provide 'foo.a';",
+            "@require 'foo.b';",
+            "@def A 2px;",
+            "@defmixin m(X) { top: X; }"),
+        "b.gss", linesToString(
+            "@provide 'foo.b';",
+            "@def B 3px;",
+            "@provide 'foo.b2';",
+            "@def B 4px;",
+            "@require 'foo.a';")));
+    new CheckDependencyNodes(tree.getMutatingVisitController(), errorManager)
+        .runPass();
+    new CreateDefinitionNodes(tree.getMutatingVisitController(), errorManager)
+        .runPass();
+    new CreateMixins(tree.getMutatingVisitController(), errorManager).runPass();
+
+    CollectProvideNamespaces visiting =
+        new CollectProvideNamespaces(tree.getVisitController());
+    visiting.runPass();
+    CollectProvideNamespaces indexed = new CollectProvideNamespaces(tree);
+    indexed.runPass();
+
+    assertThat(indexed.getDefProvideMap().asMap())
+        .containsExactly(
+            "EARLY", Arrays.asList((String) null),
+            "A", Arrays.asList("foo.a"),
+            "B", Arrays.asList("foo.b", "foo.b2"))
+        .inOrder();
+    assertThat(indexed.getFilenameProvideMap())
+        .isEqualTo(visiting.getFilenameProvideMap());
+    assertThat(indexed.getFilenameRequireMap())
+        .isEqualTo(visiting.getFilenameRequireMap());
+    assertThat(indexed.getDefProvideMap())
+        .isEqualTo(visiting.getDefProvideMap());
+    assertThat(indexed.getDefmixinProvideMap())
+        .isEqualTo(visiting.getDefmixinProvideMap());
+    assertThat(indexed.getDefmixinProvideMap()).containsEntry("m", "foo.a");
+  }
+}
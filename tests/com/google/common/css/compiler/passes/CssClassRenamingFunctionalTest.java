@@ -74,6 +74,15 @@ public class CssClassRenamingFunctionalTest extends PassesTestBase {
         "[[.CSS_RULE_1_#ID_ID^]{[padding:[[1px]];]}]");
   }
 
+  @Test
+  public void testCssClassRenamingInsideNot() {
+    testTreeConstruction(linesToString(
+        "a:not(.CSS_RULE_1) {",
+        "  padding: 1px;",
+        "}"),
+        "[[a:not(.CSS_RULE_1_)]{[padding:[[1px]];]}]");
+  }
+
   @Override
   protected void runPass() {
     SubstitutionMap classMap = new SubstitutionMap() {
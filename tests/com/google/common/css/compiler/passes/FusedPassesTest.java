@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.css.compiler.ast.ErrorManager;
+import com.google.common.css.compiler.ast.GssError;
+import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link FusedPasses}.
+ */
+@RunWith(JUnit4.class)
+public class FusedPassesTest extends NewFunctionalTestBase {
+
+  private static final String SOURCE = linesToString(
+      ".a { --x: 1px; }",
+      "@font-face { unicode-range: U+110000; }",
+      ".b { color: var(--x); }",
+      "@font-face { unicode-range: U+120000; }");
+
+  @Test
+  public void testReportsInPassOrder() {
+    RecordingErrorManager sequential = new RecordingErrorManager();
+    parseAndBuildTree(SOURCE);
+    new ValidatePropertyValues(tree.getVisitController(), sequential).runPass();
+    new WarnOnCustomProperty(tree.getVisitController(), sequential).runPass();
+
+    RecordingErrorManager fusedErrors = new RecordingErrorManager();
+    parseAndBuildTree(SOURCE);
+    FusedPasses fused = new FusedPasses(tree.getVisitController(), fusedErrors);
+    fused.add(new ValidatePropertyValues(tree.getVisitController(), fused.newErrorManager()));
+    fused.add(new WarnOnCustomProperty(tree.getVisitController(), fused.newErrorManager()));
+    fused.runPass();
+
+    assertThat(sequential.reports).hasSize(4);
+    assertThat(fusedErrors.reports).containsExactlyElementsIn(sequential.reports).inOrder();
+    assertThat(fusedErrors.hasErrors()).isTrue();
+  }
+
+  @Test
+  public void testNoPasses() {
+    parseAndBuildTree(SOURCE);
+    new FusedPasses(tree.getVisitController(), new RecordingErrorManager()).runPass();
+  }
+
+  private static class RecordingErrorManager implements ErrorManager {
+    private final List<String> reports = new ArrayList<>();
+    private boolean hasErrors = false;
+
+    @Override
+    public void report(GssError error) {
+      reports.add("error at " + error.getLocation().getBeginCharacterIndex()
+          + ": " + error.getMessage());
+      hasErrors = true;
+    }
+
+    @Override
+    public void reportWarning(GssError warning) {
+      reports.add("warning at " + warning.getLocation().getBeginCharacterIndex()
+          + ": " + warning.getMessage());
+    }
+
+    @Override
+    public void generateReport() {}
+
+    @Override
+    public boolean hasErrors() {
+      return hasErrors;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link HoistCommonChunkRulesets}.
+ */
+@RunWith(JUnit4.class)
+public class HoistCommonChunkRulesetsTest extends NewFunctionalTestBase {
+
+  private static final ImmutableMap<String, ImmutableList<String>> DEPENDENCIES =
+      ImmutableMap.of(
+          "base", ImmutableList.<String>of(),
+          "a", ImmutableList.of("base"),
+          "b", ImmutableList.of("base"),
+          "c", ImmutableList.<String>of());
+
+  private HoistCommonChunkRulesets<String> pass;
+
+  @Test
+  public void testHoistToCommonDependency() {
+    runPass(".base{margin:0}", ".x{color:red}.a{top:0}", ".b{top:1px}.x{color:red}", "");
+
+    assertThat(print("base")).isEqualTo(".base{margin:0}.x{color:red}");
+    assertThat(print("a")).isEqualTo(".a{top:0}");
+    assertThat(print("b")).isEqualTo(".b{top:1px}");
+    assertThat(pass.getHoistedRulesetCount()).isEqualTo(1);
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(1);
+    assertThat(pass.getSavedBytes()).isEqualTo(".x{color:red}".length());
+  }
+
+  @Test
+  public void testCopyInDependencyIsKept() {
+    runPass(".x{color:red}", ".x{color:red}", "", "");
+
+    assertThat(print("base")).isEqualTo(".x{color:red}");
+    assertThat(print("a")).isEmpty();
+    assertThat(pass.getHoistedRulesetCount()).isEqualTo(0);
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNoCommonDependency() {
+    runPass("", ".x{color:red}", "", ".x{color:red}");
+
+    assertThat(print("a")).isEqualTo(".x{color:red}");
+    assertThat(print("c")).isEqualTo(".x{color:red}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testConflictingDeclarationsPreventHoisting() {
+    // Hoisting .x would let the earlier .y override it in chunk a.
+    runPass("", ".y{color:blue}.x{color:red}", ".x{color:red}", "");
+
+    assertThat(print("a")).isEqualTo(".y{color:blue}.x{color:red}");
+    assertThat(print("b")).isEqualTo(".x{color:red}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testConflictingShorthandInDependencyPreventsHoisting() {
+    runPass(".z{margin:0}", ".x{margin-top:1px}", ".x{margin-top:1px}", "");
+
+    assertThat(print("a")).isEqualTo(".x{margin-top:1px}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testAnalyzeOnly() {
+    runPass(true, "", ".x{color:red}", ".x{color:red}", "");
+
+    assertThat(print("base")).isEmpty();
+    assertThat(print("a")).isEqualTo(".x{color:red}");
+    assertThat(print("b")).isEqualTo(".x{color:red}");
+    assertThat(pass.getHoistedRulesetCount()).isEqualTo(1);
+    assertThat(pass.getSavedBytes()).isEqualTo(".x{color:red}".length());
+  }
+
+  @Test
+  public void testConflictingCrossNameShorthandPreventsHoisting() {
+    // font resets line-height, so hoisting .x would let .z override it.
+    runPass("", ".z{font:12px serif}.x{line-height:2}", ".x{line-height:2}", "");
+
+    assertThat(print("a")).isEqualTo(".z{font:12px serif}.x{line-height:2}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+
+    runPass(".z{gap:0}", ".x{row-gap:1px}", ".x{row-gap:1px}", "");
+
+    assertThat(print("a")).isEqualTo(".x{row-gap:1px}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testAllShorthandPreventsHoisting() {
+    runPass("", ".z{all:unset}.x{color:red}", ".x{color:red}", "");
+
+    assertThat(print("a")).isEqualTo(".z{all:unset}.x{color:red}");
+    assertThat(pass.getRemovedRulesetCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPropertyFamilies() {
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("margin-top")).contains("margin");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("-webkit-border-radius"))
+        .contains("border");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("color")).containsExactly("color");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("--main-color"))
+        .containsExactly("--main-color");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("border-top-color"))
+        .containsAllOf("border", "border-top", "border-color");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("line-height")).contains("font");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("top")).contains("inset");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("column-count"))
+        .contains("columns");
+    assertThat(HoistCommonChunkRulesets.getPropertyFamilies("align-items"))
+        .contains("place-items");
+  }
+
+  private void runPass(String base, String a, String b, String c) {
+    runPass(false, base, a, b, c);
+  }
+
+  private void runPass(boolean analyzeOnly, String base, String a, String b, String c) {
+    parseAndBuildTree(ImmutableMap.of("base", base, "a", a, "b", b, "c", c));
+    new MapChunkAwareNodesToChunk<>(
+        tree, ImmutableMap.of("base", "base", "a", "a", "b", "b", "c", "c")).runPass();
+    pass = new HoistCommonChunkRulesets<>(tree, DEPENDENCIES);
+    pass.setAnalyzeOnly(analyzeOnly);
+    pass.runPass();
+  }
+
+  private String print(String chunk) {
+    TemplateCompactPrinter<String> printer = new TemplateCompactPrinter<>(tree, chunk);
+    printer.runPass();
+    return printer.getCompactPrintedString()
+        .replace(Character.toString(TemplateCompactPrinter.RULE_START), "")
+        .replace(Character.toString(TemplateCompactPrinter.RULE_END), "")
+        .replace(Character.toString(TemplateCompactPrinter.DECLARATION_START), "")
+        .replace(Character.toString(TemplateCompactPrinter.DECLARATION_END), "");
+  }
+}
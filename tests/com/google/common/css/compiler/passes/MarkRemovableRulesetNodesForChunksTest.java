@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.css.compiler.ast.CssRulesetNode;
+import com.google.common.css.compiler.ast.CssSelectorNode;
+import com.google.common.css.compiler.ast.DefaultTreeVisitor;
+import com.google.common.css.compiler.passes.testing.PassesTestBase;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link MarkRemovableRulesetNodesForChunks}.
+ */
+@RunWith(JUnit4.class)
+public class MarkRemovableRulesetNodesForChunksTest extends PassesTestBase {
+
+  private static final String SOURCE = linesToString(
+      ".CSS_RULE {",
+      "  border: 1px;",
+      "}",
+      ".CSS_RULE {",
+      "  border-color: red;",
+      "}",
+      ".CSS_RULE {",
+      "  border: 2px;",
+      "}",
+      ".CSS_RULE {",
+      "  border: 3px;",
+      "}",
+      ".CSS_OTHER {",
+      "  color: red;",
+      "}",
+      ".CSS_RULE {",
+      "  border-color: blue !important;",
+      "}",
+      ".CSS_OTHER {",
+      "  color: blue;",
+      "}",
+      ".CSS_RULE {",
+      "  display: inline-box;",
+      "}",
+      ".CSS_RULE {",
+      "  display: -moz-inline-box;",
+      "}");
+
+  private static final ImmutableList<String> CHUNKS =
+      ImmutableList.of("C1", "C2", "C1", "C2", "C1", "C1", "C3", "C2", "C2");
+
+  @Test
+  public void testOneChunkPerRuleset() {
+    collectRemovableRulesetNodes(
+        linesToString(
+              ".CSS_RULE {",
+              "  border: 1px;",
+              "}",
+              ".CSS_RULE {",
+              "  border: 2px;",
+              "}",
+              ".CSS_RULE {",
+              "  border: 3px;",
+              "}"),
+        ImmutableList.of("C1", "C1", "C2"),
+        ImmutableSet.of("C1", "C2"));
+    Collection<CssRulesetNode> rules = tree.getRulesetNodesToRemove().getRulesetNodes();
+    assertThat(rules).hasSize(1);
+    checkRuleset("[[.CSS_RULE]{[border:[[1px]];]}]", rules.iterator().next());
+  }
+
+  @Test
+  public void testSameResultAsOnePassPerChunk() {
+    for (boolean skipping : new boolean[] {false, true}) {
+      parseAndBuildTree(SOURCE);
+      mapChunks(CHUNKS);
+      for (String chunk : ImmutableList.of("C1", "C2")) {
+        new MarkRemovableRulesetNodesForChunk<>(chunk, tree, skipping).runPass();
+      }
+      Set<String> expected = printRulesets(tree.getRulesetNodesToRemove().getRulesetNodes());
+
+      collectRemovableRulesetNodes(SOURCE, CHUNKS, ImmutableSet.of("C1", "C2"), skipping);
+      assertThat(printRulesets(tree.getRulesetNodesToRemove().getRulesetNodes()))
+          .isEqualTo(expected);
+      assertThat(expected).isNotEmpty();
+    }
+  }
+
+  private void collectRemovableRulesetNodes(
+      String source, List<String> selectorChunks, Set<String> chunks) {
+    collectRemovableRulesetNodes(source, selectorChunks, chunks, true);
+  }
+
+  private void collectRemovableRulesetNodes(
+      String source, List<String> selectorChunks, Set<String> chunks, boolean skipping) {
+    parseAndBuildTree(source);
+    mapChunks(selectorChunks);
+    new MarkRemovableRulesetNodesForChunks<>(chunks, tree, skipping).runPass();
+  }
+
+  private static Set<String> printRulesets(Collection<CssRulesetNode> rulesets) {
+    ImmutableSet.Builder<String> printed = ImmutableSet.builder();
+    for (CssRulesetNode ruleset : rulesets) {
+      printed.add(ruleset.getSourceCodeLocation().getBeginCharacterIndex()
+          + ":" + ruleset.toString());
+    }
+    return printed.build();
+  }
+
+  private void mapChunks(final List<String> chunks) {
+    tree.getVisitController().startVisit(
+        new DefaultTreeVisitor() {
+          private int count = 0;
+          @Override
+          public boolean enterSelector(CssSelectorNode selector) {
+            selector.setChunk(chunks.get(count++));
+            return true;
+          }
+        });
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.css.compiler.passes.TemplateCompactPrinterTest.SetSelectorChunk;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link MultiChunkTemplateCompactPrinter}. */
+@RunWith(JUnit4.class)
+public class MultiChunkTemplateCompactPrinterTest extends AbstractCompactPrinterTest {
+
+  private static final ImmutableList<String> CHUNKS = ImmutableList.of("foo", "bar", "baz", "qux");
+
+  private static final Map<String, String> SELECTOR_TO_CHUNK =
+      new ImmutableMap.Builder<String, String>()
+          .put("foo", "foo")
+          .put("a", "foo")
+          .put("a#a", "foo")
+          .put("a#a b", "foo")
+          .put("b+i", "foo")
+          .put(".bar", "bar")
+          .put("b", "bar")
+          .put("b#b", "bar")
+          .put("b>i+em", "bar")
+          .put("hr", "baz")
+          .put("i", "baz")
+          .put("a i", "baz")
+          .put("a+i", "baz")
+          .put("my-animation", "bar")
+          .put("print", "foo")
+          .put("screen", "baz")
+          .build();
+
+  private static final String SOURCE =
+      "/* @license MIT */ foo,hr,.bar,i{color:red} "
+          + "a,i{} "
+          + "/*! important */ b,hr{margin:0} "
+          + "a#a{} "
+          + "b#b{} "
+          + "i,hr{}"
+          + "a i{}"
+          + "b > i + em, a#a b {padding:1px}"
+          + "b + i, a+i {}"
+          + "@media print { foo { /* @preserve in media */ color: red } }"
+          + "@media screen { hr {} }"
+          + "@page { margin: 1in }"
+          + "@keyframes my-animation { 0% { top: 0 } }"
+          + "@font-face { font-family:'Roboto'; }";
+
+  @Test
+  public void testSameOutputAsTemplateCompactPrinter() {
+    assertSameOutputAsTemplateCompactPrinter(false);
+  }
+
+  @Test
+  public void testSameOutputAsTemplateCompactPrinter_preservingMarkedComments() {
+    assertSameOutputAsTemplateCompactPrinter(true);
+  }
+
+  @Test
+  public void testChunkOutput() {
+    parseStyleSheet("a{} hr{} b{}");
+    new SetSelectorChunk(newTree, SELECTOR_TO_CHUNK).runPass();
+
+    MultiChunkTemplateCompactPrinter<String> printer =
+        new MultiChunkTemplateCompactPrinter<>(newTree, CHUNKS);
+    printer.runPass();
+
+    char rS = TemplateCompactPrinter.RULE_START;
+    char rE = TemplateCompactPrinter.RULE_END;
+    assertThat(printer.getCompactPrintedStrings())
+        .containsExactly(
+            "foo", rS + "a{}" + rE,
+            "bar", rS + "b{}" + rE,
+            "baz", rS + "hr{}" + rE,
+            "qux", "")
+        .inOrder();
+  }
+
+  private void assertSameOutputAsTemplateCompactPrinter(boolean preserveMarkedComments) {
+    parseStyleSheet(SOURCE);
+    new SetSelectorChunk(newTree, SELECTOR_TO_CHUNK).runPass();
+
+    MultiChunkTemplateCompactPrinter<String> printer =
+        new MultiChunkTemplateCompactPrinter<>(newTree, CHUNKS);
+    printer.setPreserveMarkedComments(preserveMarkedComments);
+    printer.runPass();
+
+    for (String chunk : CHUNKS) {
+      TemplateCompactPrinter<String> chunkPrinter = new TemplateCompactPrinter<>(newTree, chunk);
+      chunkPrinter.setPreserveMarkedComments(preserveMarkedComments);
+      chunkPrinter.runPass();
+      assertThat(printer.getCompactPrintedString(chunk))
+          .isEqualTo(chunkPrinter.getCompactPrintedString());
+    }
+  }
+}
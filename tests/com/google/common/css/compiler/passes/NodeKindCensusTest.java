@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.css.compiler.ast.CssAtRuleNode.Type;
+import com.google.common.css.compiler.ast.testing.NewFunctionalTestBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link NodeKindCensus}.
+ */
+@RunWith(JUnit4.class)
+public class NodeKindCensusTest extends NewFunctionalTestBase {
+
+  private NodeKindCensus census;
+
+  @Test
+  public void testPlainCss() {
+    runCensus(".a { color: red } .b > .c { top: 0 }");
+    assertThat(census.hasUnknownAtRules()).isFalse();
+    assertThat(census.hasAtRule(Type.IF, Type.FOR, Type.DEFMIXIN)).isFalse();
+    assertThat(census.hasKeyframes()).isFalse();
+    assertThat(census.hasPseudoClasses()).isFalse();
+    assertThat(census.hasScopedClassSelectors()).isFalse();
+  }
+
+  @Test
+  public void testNestedAtRules() {
+    runCensus(linesToString(
+        "@def COLOR red;",
+        "@media print {",
+        "  @if COND {",
+        "    .a { @mixin m(); }",
+        "  }",
+        "}"));
+    assertThat(census.hasUnknownAtRules()).isTrue();
+    assertThat(census.hasAtRule(Type.DEF)).isTrue();
+    assertThat(census.hasAtRule(Type.IF)).isTrue();
+    assertThat(census.hasAtRule(Type.ELSE, Type.MIXIN)).isTrue();
+    assertThat(census.hasAtRule(Type.ELSE, Type.FOR)).isFalse();
+    assertThat(census.hasAtRule(Type.COMPONENT)).isFalse();
+  }
+
+  @Test
+  public void testKeyframes() {
+    runCensus("@keyframes a { from { top: 0 } to { top: 1px } }");
+    assertThat(census.hasKeyframes()).isTrue();
+  }
+
+  @Test
+  public void testPseudoClasses() {
+    runCensus(".a:nth-child(2n+1) { top: 0 }");
+    assertThat(census.hasPseudoClasses()).isTrue();
+  }
+
+  @Test
+  public void testScopedClassSelectors() {
+    runCensus(".a .b { top: 0 }");
+    assertThat(census.hasScopedClassSelectors()).isFalse();
+    runCensus(".a .%b { top: 0 }");
+    assertThat(census.hasScopedClassSelectors()).isTrue();
+    runCensus(".^a { top: 0 }");
+    assertThat(census.hasScopedClassSelectors()).isTrue();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPassNotRun() {
+    new NodeKindCensus(null).hasKeyframes();
+  }
+
+  private void runCensus(String source) {
+    parseAndBuildTree(source);
+    census = new NodeKindCensus(tree.getVisitController());
+    census.runPass();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.css.compiler.passes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.css.JobDescription;
+import com.google.common.css.JobDescriptionBuilder;
+import com.google.common.css.MinimalSubstitutionMap;
+import com.google.common.css.RecordingSubstitutionMap;
+import com.google.common.css.SourceCode;
+import com.google.common.css.compiler.ast.GssParser;
+import com.google.common.css.compiler.ast.GssParserException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link PassRunner}.
+ */
+@RunWith(JUnit4.class)
+public class PassRunnerTest {
+
+  private static final String STYLESHEET =
+      ".rare { top: 0 } .common { top: 1px } .common .x { top: 2px }";
+
+  @Test
+  public void testRenameByFrequency() throws GssParserException {
+    RecordingSubstitutionMap map = runPasses(
+        new JobDescriptionBuilder().setRenameByFrequency(true));
+
+    assertThat(map.getMappings())
+        .containsExactly("common", "a", "rare", "b", "x", "c");
+  }
+
+  @Test
+  public void testUsageCountsOnlyCountForClassesInStylesheets()
+      throws GssParserException {
+    RecordingSubstitutionMap map = runPasses(
+        new JobDescriptionBuilder()
+            .setRenameByFrequency(true)
+            .setClassNameUsageCounts(ImmutableMap.of("rare", 10, "jsOnly", 100)));
+
+    // jsOnly is not in the stylesheet, so it does not take the name "a".
+    assertThat(map.getMappings())
+        .containsExactly("rare", "a", "common", "b", "x", "c");
+  }
+
+  private static RecordingSubstitutionMap runPasses(JobDescriptionBuilder builder)
+      throws GssParserException {
+    JobDescription job = builder.getJobDescription();
+    RecordingSubstitutionMap map = new RecordingSubstitutionMap.Builder()
+        .withSubstitutionMap(new MinimalSubstitutionMap())
+        .shouldRecordMappingForCodeGeneration(Predicates.<String>alwaysTrue())
+        .build();
+    new PassRunner(job, new DummyErrorManager(), map)
+        .runPasses(new GssParser(new SourceCode("test", STYLESHEET)).parse());
+    return map;
+  }
+}
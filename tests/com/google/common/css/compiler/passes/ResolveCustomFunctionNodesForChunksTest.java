@@ -23,6 +23,8 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.css.compiler.ast.CssDefinitionNode;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -65,9 +67,16 @@ public class ResolveCustomFunctionNodesForChunksTest extends ResolveCustomFuncti
               }
             });
 
+    resolveForChunksPass.setExecutor(getExecutor());
     resolveForChunksPass.runPass();
   }
 
+  /** Returns the executor to evaluate function calls with, if any. */
+  @Nullable
+  protected Executor getExecutor() {
+    return null;
+  }
+
   @Test
   public void testCreateDef1() {
     assertConstants(